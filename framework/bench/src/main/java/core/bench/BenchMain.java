@@ -0,0 +1,21 @@
+package core.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: JMH's own Main, with the GC profiler
+ * (allocation per operation, gc.alloc.rate.norm) enabled unless -prof is given.
+ */
+public class BenchMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> all = new ArrayList<>(Arrays.asList(args));
+        if (!all.contains("-prof")) {
+            all.add("-prof");
+            all.add("gc");
+        }
+        org.openjdk.jmh.Main.main(all.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,81 @@
+package core.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Value objects and request fixtures shared by the benchmarks. */
+public final class BenchModel {
+
+    private BenchModel() {
+    }
+
+    public static class Address {
+        String street;
+        String city;
+        int zip;
+    }
+
+    public static class Item {
+        String sku;
+        int qty;
+        double price;
+    }
+
+    public static class OrderForm {
+        String customer;
+        String email;
+        boolean express;
+        Address address;
+        List<Item> items;
+        String[] tags;
+    }
+
+    public static class Row {
+        long id;
+        String name;
+        String email;
+        double amount;
+        boolean active;
+        List<String> tags;
+        Address address;
+    }
+
+    /** Form of a checkout page: flat, nested and indexed fields. */
+    public static Map<String, String[]> orderForm(int items) {
+        Map<String, String[]> p = new HashMap<>();
+        p.put("customer", new String[] { "Rakoto Jean" });
+        p.put("email", new String[] { "rakoto@example.com" });
+        p.put("express", new String[] { "on" });
+        p.put("address.street", new String[] { "Lot II A 12" });
+        p.put("address.city", new String[] { "Antananarivo" });
+        p.put("address.zip", new String[] { "101" });
+        p.put("tags", new String[] { "web", "promo", "vip" });
+        for (int i = 0; i < items; i++) {
+            p.put("items[" + i + "].sku", new String[] { "SKU-" + i });
+            p.put("items[" + i + "].qty", new String[] { String.valueOf(i + 1) });
+            p.put("items[" + i + "].price", new String[] { String.valueOf(9.99 + i) });
+        }
+        return p;
+    }
+
+    public static List<Row> rows(int n) {
+        List<Row> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Row r = new Row();
+            r.id = i;
+            r.name = "Customer \"" + i + "\"";
+            r.email = "user" + i + "@example.com";
+            r.amount = i * 12.5;
+            r.active = (i & 1) == 0;
+            r.tags = List.of("a", "b\n", "cé");
+            r.address = new Address();
+            r.address.street = "Street " + i;
+            r.address.city = "Antananarivo";
+            r.address.zip = 101;
+            rows.add(r);
+        }
+        return rows;
+    }
+}
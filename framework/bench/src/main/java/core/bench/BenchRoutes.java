@@ -0,0 +1,57 @@
+package core.bench;
+
+import core.RouteRegistry;
+import core.annotation.RequestParam;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Route table used by the dispatch benchmark, loaded by RouterServlet through
+ * META-INF/services/core.RouteRegistry (the same path as a build-time generated registry).
+ * System property bench.routes sets the number of filler routes.
+ */
+public class BenchRoutes implements RouteRegistry {
+
+    public static class Controller {
+        public Map<String, Object> user(int id, @RequestParam("q") String q) {
+            return Map.of("id", id, "q", String.valueOf(q));
+        }
+
+        public String order(BenchModel.OrderForm form) {
+            return form.customer;
+        }
+
+        public List<BenchModel.Row> report() {
+            return REPORT;
+        }
+
+        public String hello(String name) {
+            return "Hello " + name;
+        }
+
+        public String filler(String id) {
+            return id;
+        }
+    }
+
+    static final List<BenchModel.Row> REPORT = BenchModel.rows(500);
+
+    @Override
+    public void registerRoutes(Registrar r) throws Exception {
+        Controller c = new Controller();
+        int fillers = Integer.getInteger("bench.routes", 100);
+        for (int i = 0; i < fillers; i++) {
+            r.route(c, "/api/module" + i + "/items/{id}", "GET", true, null, "filler",
+                    new Class<?>[] { String.class }, args -> c.filler((String) args[0]));
+        }
+        r.route(c, "/api/users/{id}", "GET", true, null, "user",
+                new Class<?>[] { int.class, String.class }, args -> c.user((int) args[0], (String) args[1]));
+        r.route(c, "/api/orders", "POST", true, null, "order",
+                new Class<?>[] { BenchModel.OrderForm.class }, args -> c.order((BenchModel.OrderForm) args[0]));
+        r.route(c, "/api/report", "GET", true, null, "report",
+                new Class<?>[] {}, args -> c.report());
+        r.route(c, "/hello/{name}", "GET", false, null, "hello",
+                new Class<?>[] { String.class }, args -> c.hello((String) args[0]));
+    }
+}
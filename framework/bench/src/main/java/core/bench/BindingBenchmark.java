@@ -0,0 +1,31 @@
+package core.bench;
+
+import core.ObjectBinder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Value-object binding (ObjectBinder) of a checkout form with flat, nested and indexed fields. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BindingBenchmark {
+
+    @Param({ "1", "10", "50" })
+    public int items;
+
+    private InMemoryRequest request;
+
+    @Setup
+    public void setup() {
+        request = new InMemoryRequest("POST", "/api/orders", BenchModel.orderForm(items));
+    }
+
+    @Benchmark
+    public Object bindOrderForm() throws Exception {
+        return ObjectBinder.bind(BenchModel.OrderForm.class, request, null);
+    }
+}
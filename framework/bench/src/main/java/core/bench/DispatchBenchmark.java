@@ -0,0 +1,90 @@
+package core.bench;
+
+import core.RouterServlet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end RouterServlet.service() with in-memory request/response stand-ins:
+ * routing, authorization, argument binding, invocation and response writing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int routes;
+
+    private RouterServlet servlet;
+    private InMemoryRequest restGet;
+    private InMemoryRequest formPost;
+    private InMemoryRequest report;
+    private InMemoryRequest reportGzip;
+    private InMemoryRequest text;
+    private InMemoryRequest notFound;
+    private InMemoryResponse response;
+
+    @Setup
+    public void setup() throws Exception {
+        System.setProperty("bench.routes", String.valueOf(routes));
+        servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of()));
+
+        restGet = new InMemoryRequest("GET", "/api/users/42", Map.of("q", new String[] { "search" }));
+        formPost = new InMemoryRequest("POST", "/api/orders", BenchModel.orderForm(10));
+        formPost.setContentType("application/x-www-form-urlencoded");
+        report = new InMemoryRequest("GET", "/api/report", Map.of());
+        reportGzip = new InMemoryRequest("GET", "/api/report", Map.of()).header("Accept-Encoding", "gzip");
+        text = new InMemoryRequest("GET", "/hello/world", Map.of());
+        notFound = new InMemoryRequest("GET", "/api/nothing/here", Map.of());
+        response = new InMemoryResponse();
+    }
+
+    @TearDown
+    public void tearDown() {
+        servlet.destroy();
+    }
+
+    @Benchmark
+    public long restGetWithPathParam() throws Exception {
+        return run(restGet);
+    }
+
+    @Benchmark
+    public long formPostBinding() throws Exception {
+        return run(formPost);
+    }
+
+    @Benchmark
+    public long largeJsonReport() throws Exception {
+        return run(report);
+    }
+
+    @Benchmark
+    public long largeJsonReportGzip() throws Exception {
+        return run(reportGzip);
+    }
+
+    @Benchmark
+    public long textResult() throws Exception {
+        return run(text);
+    }
+
+    @Benchmark
+    public long notFound() throws Exception {
+        return run(notFound);
+    }
+
+    private long run(InMemoryRequest req) throws Exception {
+        req.reset();
+        response.reset();
+        servlet.service(req, response);
+        return response.getBytesWritten();
+    }
+}
@@ -0,0 +1,124 @@
+package core.bench;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpSession;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request stand-in for benchmarks: what the router reads is held in fields,
+ * anything else fails loudly so a benchmark can't silently measure an unsupported path.
+ */
+public class InMemoryRequest extends HttpServletRequestWrapper {
+
+    private static final HttpServletRequest UNSUPPORTED = (HttpServletRequest) Proxy.newProxyInstance(
+            InMemoryRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException("InMemoryRequest." + method.getName());
+            });
+
+    private final String method;
+    private final String uri;
+    private final Map<String, String[]> parameters;
+    private final Map<String, String> headers = new HashMap<>();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private String contentType;
+
+    public InMemoryRequest(String method, String uri, Map<String, String[]> parameters) {
+        super(UNSUPPORTED);
+        this.method = method;
+        this.uri = uri;
+        this.parameters = parameters;
+    }
+
+    public InMemoryRequest header(String name, String value) {
+        headers.put(name.toLowerCase(), value);
+        return this;
+    }
+
+    /** Clears per-request state so one instance can be replayed by a benchmark. */
+    public void reset() {
+        attributes.clear();
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return (values != null && values.length > 0) ? values[0] : null;
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        attributes.put(name, o);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create)
+            throw new UnsupportedOperationException("sessions are not simulated");
+        return null;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+}
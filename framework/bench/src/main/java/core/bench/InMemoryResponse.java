@@ -0,0 +1,149 @@
+package core.bench;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Response stand-in for benchmarks: counts body bytes instead of keeping them,
+ * so the measured allocation is the router's, not the sink's.
+ */
+public class InMemoryResponse extends HttpServletResponseWrapper {
+
+    private static final HttpServletResponse UNSUPPORTED = (HttpServletResponse) Proxy.newProxyInstance(
+            InMemoryResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException("InMemoryResponse." + method.getName());
+            });
+
+    private int status = 200;
+    private String contentType;
+    private final Map<String, String> headers = new HashMap<>();
+    private long bytes;
+    private PrintWriter writer;
+
+    private final ServletOutputStream out = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    };
+
+    public InMemoryResponse() {
+        super(UNSUPPORTED);
+    }
+
+    public void reset() {
+        status = 200;
+        contentType = null;
+        headers.clear();
+        bytes = 0;
+        writer = null;
+    }
+
+    public long getBytesWritten() {
+        if (writer != null)
+            writer.flush();
+        return bytes;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        status = sc;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        contentType = type;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return "UTF-8";
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        headers.merge(name, value, (a, b) -> a + ", " + b);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null)
+            writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null)
+            writer.flush();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+package core.bench;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+
+/** Servlet config/context stand-in: enough for RouterServlet.init() (init-params, getRealPath). */
+public class InMemoryServletConfig implements ServletConfig {
+
+    private final Map<String, String> initParameters;
+    private final ServletContext context;
+
+    public InMemoryServletConfig(Map<String, String> initParameters) {
+        this.initParameters = initParameters;
+        String root = System.getProperty("java.io.tmpdir");
+        this.context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ServletContext.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getRealPath":
+                            return root + args[0];
+                        case "getInitParameter":
+                        case "getAttribute":
+                        case "getMimeType":
+                            return null;
+                        case "getInitParameterNames":
+                        case "getAttributeNames":
+                            return Collections.emptyEnumeration();
+                        case "log":
+                            return null;
+                        case "toString":
+                            return "InMemoryServletContext";
+                        default:
+                            throw new UnsupportedOperationException("ServletContext." + method.getName());
+                    }
+                });
+    }
+
+    @Override
+    public String getServletName() {
+        return "router";
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return context;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return initParameters.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+        return Collections.enumeration(initParameters.keySet());
+    }
+}
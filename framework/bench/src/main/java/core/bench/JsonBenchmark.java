@@ -0,0 +1,53 @@
+package core.bench;
+
+import core.rest.ApiResponse;
+import core.rest.JsonWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** ApiResponse serialization of a large object graph, streamed to a discarding sink and to a byte[]. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    @Param({ "100", "5000" })
+    public int rows;
+
+    private ApiResponse response;
+
+    private static final OutputStream SINK = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        List<BenchModel.Row> data = BenchModel.rows(rows);
+        response = new ApiResponse(200, "success", data);
+    }
+
+    @Benchmark
+    public void streamToSink() throws IOException {
+        JsonWriter w = new JsonWriter(SINK);
+        w.write(response);
+        w.flush();
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return JsonWriter.toBytes(response);
+    }
+}
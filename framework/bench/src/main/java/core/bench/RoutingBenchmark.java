@@ -0,0 +1,81 @@
+package core.bench;
+
+import core.RouteIndex;
+import core.RoutePattern;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** RoutePattern.match (the old linear scan) vs the RouteIndex trie, at growing route counts. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int routes;
+
+    private List<RoutePattern> patterns;
+    private RouteIndex index;
+    private String lastPath;
+    private String firstPath;
+
+    @Setup
+    public void setup() throws Exception {
+        Method handler = BenchRoutes.Controller.class.getMethod("filler", String.class);
+        Object controller = new BenchRoutes.Controller();
+        patterns = new ArrayList<>();
+        for (int i = 0; i < routes; i++) {
+            String path = (i % 2 == 0) ? "/api/module" + i + "/items/{id}" : "/api/module" + i + "/list";
+            patterns.add(new RoutePattern(path, handler, controller, "GET"));
+        }
+        index = new RouteIndex(patterns);
+        firstPath = "/api/module0/items/42";
+        int last = (routes - 1) - ((routes - 1) % 2); // last parameterized route
+        lastPath = "/api/module" + last + "/items/42";
+    }
+
+    @Benchmark
+    public RoutePattern linearScanLast(Blackhole bh) {
+        return linear(lastPath, bh);
+    }
+
+    @Benchmark
+    public RoutePattern linearScanFirst(Blackhole bh) {
+        return linear(firstPath, bh);
+    }
+
+    @Benchmark
+    public RouteIndex.Match indexLookupLast() {
+        return index.lookup(lastPath, "GET");
+    }
+
+    @Benchmark
+    public RouteIndex.Match indexLookupFirst() {
+        return index.lookup(firstPath, "GET");
+    }
+
+    @Benchmark
+    public RouteIndex.Match indexLookupMiss() {
+        return index.lookup("/api/unknown/items/42", "GET");
+    }
+
+    private RoutePattern linear(String path, Blackhole bh) {
+        for (RoutePattern rp : patterns) {
+            Map<String, String> p = rp.match(path);
+            if (p != null && rp.httpMethod.equalsIgnoreCase("GET")) {
+                bh.consume(p);
+                return rp;
+            }
+        }
+        return null;
+    }
+}
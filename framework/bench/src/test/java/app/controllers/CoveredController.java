@@ -0,0 +1,14 @@
+package app.controllers;
+
+import core.annotation.Controller;
+import core.annotation.Route;
+
+/** Listed by core.TestRoutes.controllerClasses() without routes: the scan must skip it. */
+@Controller
+public class CoveredController {
+
+    @Route("/test/covered")
+    public String covered() {
+        return "covered";
+    }
+}
@@ -0,0 +1,14 @@
+package app.controllers;
+
+import core.annotation.Controller;
+import core.annotation.Route;
+
+/** Controller no registry lists: the servlet must still find it by scanning. */
+@Controller
+public class ScannedController {
+
+    @Route("/test/scanned")
+    public String scanned() {
+        return "scanned";
+    }
+}
@@ -0,0 +1,116 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionTest {
+
+    private static TestRequest from(String addr) {
+        return new TestRequest("GET", "/api/x").remoteAddr(addr);
+    }
+
+    @Test
+    void gcraAllowsTheBurstThenOneRequestPerInterval() {
+        long second = 1_000_000_000L;
+        Admission.RateLimiter bucket = new Admission.RateLimiter(10, 3, 0); // 100 ms per token
+
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(second / 10 - 1));
+        assertTrue(bucket.tryAcquire(second / 10));
+        assertFalse(bucket.tryAcquire(second / 10));
+        assertFalse(bucket.isIdle(second / 10));
+
+        // a long pause refills the bucket up to the burst, not beyond
+        assertTrue(bucket.isIdle(10 * second));
+        for (int i = 0; i < 3; i++)
+            assertTrue(bucket.tryAcquire(10 * second));
+        assertFalse(bucket.tryAcquire(10 * second));
+    }
+
+    @Test
+    void withoutABurstTheBucketHoldsOneSecondOfTokens() {
+        Admission.RateLimiter bucket = new Admission.RateLimiter(5, 0, 0);
+        int admitted = 0;
+        while (bucket.tryAcquire(0))
+            admitted++;
+        assertEquals(5, admitted);
+    }
+
+    @Test
+    void clientsHaveTheirOwnBuckets() {
+        Admission admission = new Admission("/api/x", "GET", 0, 0, 0, 0, 0.001, 2, 1);
+
+        assertEquals(Admission.ADMITTED, admission.admit(from("10.0.0.1")));
+        assertEquals(Admission.ADMITTED, admission.admit(from("10.0.0.1")));
+        assertEquals(Admission.RATE_LIMITED, admission.admit(from("10.0.0.1")));
+        assertEquals(Admission.ADMITTED, admission.admit(from("10.0.0.2")));
+        assertEquals(1000, admission.retryAfter(Admission.RATE_LIMITED));
+        assertEquals(1, admission.getRejected());
+    }
+
+    @Test
+    void concurrencyLimitShedsOnceTheQueueIsFull() {
+        Admission admission = new Admission("/api/x", "GET", 1, 0, 0, 0, 0, 0, 4);
+
+        assertEquals(Admission.ADMITTED, admission.admit(from("10.0.0.1")));
+        assertEquals(Admission.OVERLOADED, admission.admit(from("10.0.0.2")));
+        assertEquals(4, admission.retryAfter(Admission.OVERLOADED));
+        admission.release();
+        assertEquals(Admission.ADMITTED, admission.admit(from("10.0.0.2")));
+    }
+
+    @Test
+    void aFloodOfNewClientsDoesNotResetTheOthersBuckets() {
+        Admission admission = new Admission("/api/x", "GET", 0, 0, 0, 0, 0.001, 1, 1);
+        assertEquals(Admission.ADMITTED, admission.admit(from("10.0.0.1")));
+        assertEquals(Admission.RATE_LIMITED, admission.admit(from("10.0.0.1")));
+
+        // the limited client keeps trying during the flood
+        for (int i = 0; i < 2 * Admission.MAX_CLIENTS; i++) {
+            admission.admit(from("192.168." + (i >> 8) + "." + (i & 0xFF)));
+            if (i % 100 == 0)
+                assertEquals(Admission.RATE_LIMITED, admission.admit(from("10.0.0.1")));
+        }
+
+        assertTrue(admission.clientCount() <= Admission.MAX_CLIENTS);
+        assertTrue(admission.clientCount() > Admission.MAX_CLIENTS / 2);
+        assertEquals(Admission.RATE_LIMITED, admission.admit(from("10.0.0.1")));
+    }
+
+    @Test
+    void limitWithoutRetryAfterTakesTheServletDefault() throws Exception {
+        RouterServlet servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of("retryAfterSeconds", "7")));
+        TestRoutes.inside = new CountDownLatch(1);
+        TestRoutes.release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                servlet.service(new TestRequest("GET", "/test/limited"), new TestResponse());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            holder.start();
+            assertTrue(TestRoutes.inside.await(5, TimeUnit.SECONDS));
+
+            TestResponse resp = new TestResponse();
+            servlet.service(new TestRequest("GET", "/test/limited"), resp);
+            assertEquals(503, resp.getStatus());
+            assertEquals("7", resp.getHeader("Retry-After"));
+        } finally {
+            TestRoutes.release.countDown();
+            holder.join();
+            servlet.destroy();
+        }
+    }
+}
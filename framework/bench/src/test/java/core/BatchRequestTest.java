@@ -0,0 +1,78 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRequestTest {
+
+    @Test
+    void aCancelledCallNoLongerReadsTheBatchRequest() {
+        TestRequest batch = new TestRequest("POST", "/api/_batch").header("X-Trace", "t1");
+        BatchRequest call = new BatchRequest(batch, "GET", "/test/list", Map.of("q", new String[] { "x" }));
+        assertEquals("t1", call.getHeader("X-Trace"));
+
+        call.cancel();
+        assertTrue(call.isCancelled());
+        assertThrows(IllegalStateException.class, () -> call.getHeader("X-Trace"));
+        assertThrows(IllegalStateException.class, () -> call.getAttribute("core.Session"));
+        assertEquals("x", call.getParameter("q")); // the call's own state stays readable
+    }
+
+    @Test
+    void timedOutCallsAnswer503AndFailedCallsTheirError() throws Exception {
+        RouterServlet servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of("asyncTimeoutMs", "300")));
+        try {
+            TestResponse resp = new TestResponse();
+            servlet.service(new TestRequest("POST", "/api/_batch").json(
+                    "[{\"path\":\"/test/slow\"},{\"path\":\"/test/error\"},{\"path\":\"/test/list\"}]"), resp);
+
+            assertEquals(200, resp.getStatus());
+            assertEquals("[{\"code\":503,\"message\":\"error\",\"data\":\"Batch call timed out\"},"
+                    + "{\"code\":500,\"message\":\"error\",\"data\":\"handler error\"},"
+                    + "{\"code\":200,\"message\":\"success\",\"data\":[\"a\",\"b\"]}]", resp.text());
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    private static TestResponse batch(Map<String, String> params, String json) throws Exception {
+        RouterServlet servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(params));
+        try {
+            TestResponse resp = new TestResponse();
+            servlet.service(new TestRequest("POST", "/api/_batch").json(json), resp);
+            return resp;
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    @Test
+    void resultsComeBackInCallOrder() throws Exception {
+        TestResponse resp = batch(Map.of(), "[{\"path\":\"/test/list\"},{\"path\":\"/test/nowhere\"},"
+                + "{\"method\":\"POST\",\"path\":\"/test/list\"},"
+                + "{\"method\":\"POST\",\"path\":\"/test/echo\",\"params\":{\"name\":\"pen\",\"qty\":\"2\"}},"
+                + "{\"path\":\"/test/list\"}]");
+
+        assertEquals(200, resp.getStatus());
+        assertEquals("[{\"code\":200,\"message\":\"success\",\"data\":[\"a\",\"b\"]},"
+                + "{\"code\":404,\"message\":\"error\",\"data\":\"Not Found: /test/nowhere\"},"
+                + "{\"code\":405,\"message\":\"error\",\"data\":\"Method POST Not Allowed on /test/list\"},"
+                + "{\"code\":200,\"message\":\"success\",\"data\":\"pen:2:0\"},"
+                + "{\"code\":200,\"message\":\"success\",\"data\":[\"a\",\"b\"]}]", resp.text());
+    }
+
+    @Test
+    void invalidBatchesAre400() throws Exception {
+        assertEquals(400, batch(Map.of(), "{\"path\":\"/test/list\"}").getStatus());
+        assertEquals(400, batch(Map.of(), "[{\"path\":\"test/list\"}]").getStatus());
+        assertEquals(400, batch(Map.of(), "[{\"path\":\"/test/list?q=1\"}]").getStatus());
+        assertEquals(400, batch(Map.of("batchMaxCalls", "2"),
+                "[{\"path\":\"/test/list\"},{\"path\":\"/test/list\"},{\"path\":\"/test/list\"}]").getStatus());
+    }
+}
@@ -0,0 +1,126 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import core.rest.BinaryFormat;
+import core.rest.BinaryReader;
+import core.rest.JsonParseException;
+import core.rest.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFormatTest {
+
+    private static BinaryReader reader(BinaryFormat format, byte[] bytes, long maxBytes) {
+        return format.newReader(new ByteArrayInputStream(bytes), maxBytes, 64);
+    }
+
+    private static Map<String, Object> item(String name, int qty, List<Object> children) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("name", name);
+        m.put("qty", qty);
+        m.put("children", children);
+        m.put("extra", Map.of("f", 1.5, "n", -300, "big", Long.MIN_VALUE, "none", List.of(), "x", "é€😀"));
+        return m;
+    }
+
+    @Test
+    void bodiesRoundTripThroughTheBinder() throws Exception {
+        for (BinaryFormat format : BinaryFormat.values()) {
+            byte[] bytes = format.toBytes(item("pen", 3, List.of(item("cap", 1, List.of()), item("ink", 2, List.of()))));
+            TestRoutes.Item item = (TestRoutes.Item) ObjectBinder.bindJson(TestRoutes.Item.class,
+                    new TestRequest("POST", "/test/echo"), reader(format, bytes, 1 << 20));
+
+            assertEquals("pen", item.name, format.name());
+            assertEquals(3, item.qty);
+            assertEquals(2, item.children.size());
+            assertEquals("ink", item.children.get(1).name);
+            assertEquals(2, item.children.get(1).qty);
+        }
+    }
+
+    @Test
+    void routesAnswerInTheFormatTheClientAccepts() throws Exception {
+        RouterServlet servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of()));
+        try {
+            for (BinaryFormat format : BinaryFormat.values()) {
+                TestResponse resp = new TestResponse();
+                servlet.service(new TestRequest("POST", "/test/echo")
+                        .body(format.mediaType, format.toBytes(item("pen", 3, List.of())))
+                        .header("Accept", format.mediaType), resp);
+
+                assertEquals(200, resp.getStatus());
+                assertEquals(format.mediaType, resp.getContentType());
+                BinaryReader r = reader(format, resp.body(), 1 << 20);
+                r.beginObject();
+                Map<String, String> fields = new LinkedHashMap<>();
+                while (r.hasNext())
+                    fields.put(r.nextName(), r.nextString());
+                r.endObject();
+                r.endDocument();
+                assertEquals(Map.of("code", "200", "message", "success", "data", "pen:3:0"), fields);
+            }
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    @Test
+    void acceptNegotiationPrefersTheHighestQ() {
+        assertEquals(BinaryFormat.CBOR, BinaryFormat.fromAccept("application/cbor"));
+        assertEquals(BinaryFormat.MSGPACK, BinaryFormat.fromAccept("application/x-msgpack, application/json;q=0.5"));
+        assertNull(BinaryFormat.fromAccept("application/cbor;q=0.5, application/json"));
+        assertNull(BinaryFormat.fromAccept("application/cbor;q=0.5, */*"));
+        assertNull(BinaryFormat.fromAccept("application/json"));
+        assertEquals(BinaryFormat.CBOR, BinaryFormat.fromContentType("application/vnd.api+cbor; charset=x"));
+    }
+
+    @Test
+    void declaredLengthsBeyondTheLimitAreRefusedBeforeReading() throws IOException {
+        // CBOR text of 2^32-1 bytes, MessagePack str32 of the same: neither is buffered
+        byte[][] bodies = { HexFormat.of().parseHex("7affffffff"), HexFormat.of().parseHex("dbffffffff") };
+        BinaryFormat[] formats = { BinaryFormat.CBOR, BinaryFormat.MSGPACK };
+        for (int i = 0; i < formats.length; i++) {
+            BinaryReader r = reader(formats[i], bodies[i], 1024);
+            JsonParseException e = assertThrows(JsonParseException.class, r::nextString, formats[i].name());
+            assertTrue(e.isTooLarge());
+        }
+    }
+
+    @Test
+    void nestingIsCapped() throws IOException {
+        for (BinaryFormat format : BinaryFormat.values()) {
+            byte[] one = (format == BinaryFormat.CBOR) ? new byte[] { (byte) 0x81 } : new byte[] { (byte) 0x91 };
+            byte[] deep = new byte[JsonReader.MAX_DEPTH + 2];
+            for (int i = 0; i <= JsonReader.MAX_DEPTH; i++)
+                deep[i] = one[0];
+            deep[JsonReader.MAX_DEPTH + 1] = (format == BinaryFormat.CBOR) ? (byte) 0xF6 : (byte) 0xC0; // null
+
+            BinaryReader r = reader(format, deep, 1 << 20);
+            JsonParseException e = assertThrows(JsonParseException.class, r::skipValue, format.name());
+            assertFalse(e.isTooLarge());
+        }
+    }
+
+    @Test
+    void truncatedOrTrailingInputIsMalformed() throws IOException {
+        for (BinaryFormat format : BinaryFormat.values()) {
+            byte[] bytes = format.toBytes(List.of("abc", 1));
+            BinaryReader truncated = reader(format, java.util.Arrays.copyOf(bytes, bytes.length - 2), 1 << 20);
+            assertThrows(JsonParseException.class, truncated::skipValue, format.name());
+
+            byte[] trailing = java.util.Arrays.copyOf(bytes, bytes.length + 1);
+            BinaryReader extra = reader(format, trailing, 1 << 20);
+            extra.skipValue();
+            assertThrows(JsonParseException.class, extra::endDocument, format.name());
+        }
+    }
+}
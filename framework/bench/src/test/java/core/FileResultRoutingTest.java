@@ -0,0 +1,60 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileResultRoutingTest {
+
+    @TempDir
+    Path dir;
+
+    private RouterServlet servlet;
+
+    @BeforeEach
+    void init() throws Exception {
+        TestRoutes.file = Files.writeString(dir.resolve("report.txt"), "file body");
+        servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of()));
+    }
+
+    @AfterEach
+    void destroy() {
+        servlet.destroy();
+    }
+
+    @Test
+    void cachedRestRouteReturningAPathSendsTheFile() throws Exception {
+        for (int i = 0; i < 2; i++) { // the miss must not cache a JSON rendering either
+            TestResponse resp = new TestResponse();
+            servlet.service(new TestRequest("GET", "/test/cached-file"), resp);
+            assertEquals(200, resp.getStatus());
+            assertEquals("file body", resp.text());
+            assertNotNull(resp.getHeader("ETag"));
+        }
+    }
+
+    @Test
+    void batchCallsReturningFilesOrPublishersAreRejected() throws Exception {
+        TestResponse resp = new TestResponse();
+        servlet.service(new TestRequest("POST", "/api/_batch").json(
+                "[{\"path\":\"/test/file\"},{\"path\":\"/test/publisher\"},{\"path\":\"/test/list\"}]"), resp);
+
+        assertEquals(200, resp.getStatus());
+        String body = resp.text();
+        assertTrue(body.startsWith("[{\"code\":406,"), body);
+        assertTrue(body.contains("{\"code\":406,\"message\":\"error\",\"data\":\"Not available in a batch: /test/publisher\"}"), body);
+        assertTrue(body.endsWith("{\"code\":200,\"message\":\"success\",\"data\":[\"a\",\"b\"]}]"), body);
+        assertFalse(body.contains(dir.toString()), body);
+        assertArrayEquals("file body".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(TestRoutes.file));
+    }
+}
@@ -0,0 +1,108 @@
+package core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSenderTest {
+
+    @TempDir
+    Path dir;
+
+    private FileResult file;
+
+    @BeforeEach
+    void write() throws Exception {
+        file = new FileResult(Files.writeString(dir.resolve("digits.txt"), "0123456789"));
+    }
+
+    private TestResponse send(TestRequest req) throws Exception {
+        TestResponse resp = new TestResponse();
+        assertTrue(FileSender.send(req, resp, file, "text/plain"));
+        return resp;
+    }
+
+    private static TestRequest get() {
+        return new TestRequest("GET", "/digits.txt");
+    }
+
+    @Test
+    void parseRangeHandlesTheSingleRangeForms() {
+        assertArrayEquals(new long[] { 2, 5 }, FileSender.parseRange("bytes=2-5", 10));
+        assertArrayEquals(new long[] { 7, 9 }, FileSender.parseRange("bytes=7-", 10));
+        assertArrayEquals(new long[] { 6, 9 }, FileSender.parseRange("bytes=-4", 10));
+        assertArrayEquals(new long[] { 0, 9 }, FileSender.parseRange("bytes=-40", 10));
+        assertArrayEquals(new long[] { 8, 9 }, FileSender.parseRange("bytes=8-400", 10));
+        assertEquals(0, FileSender.parseRange("bytes=10-", 10).length);
+        assertEquals(0, FileSender.parseRange("bytes=-0", 10).length);
+        assertNull(FileSender.parseRange("bytes=5-2", 10));
+        assertNull(FileSender.parseRange("bytes=0-1,4-5", 10));
+        assertNull(FileSender.parseRange("items=0-1", 10));
+        assertNull(FileSender.parseRange("bytes=x-1", 10));
+    }
+
+    @Test
+    void aRangeIsAnswered206() throws Exception {
+        TestResponse resp = send(get().header("Range", "bytes=2-5"));
+
+        assertEquals(206, resp.getStatus());
+        assertEquals("bytes 2-5/10", resp.getHeader("Content-Range"));
+        assertEquals("2345", resp.text());
+        assertEquals("bytes", resp.getHeader("Accept-Ranges"));
+    }
+
+    @Test
+    void anUnsatisfiableRangeIsAnswered416() throws Exception {
+        TestResponse resp = send(get().header("Range", "bytes=20-"));
+
+        assertEquals(416, resp.getStatus());
+        assertEquals("bytes */10", resp.getHeader("Content-Range"));
+        assertEquals(0, resp.body().length);
+    }
+
+    @Test
+    void ifRangeOnlyHoldsForTheCurrentRepresentation() throws Exception {
+        TestResponse first = send(get());
+        String etag = first.getHeader("ETag");
+        String lastModified = first.getHeader("Last-Modified");
+
+        assertEquals(206, send(get().header("Range", "bytes=0-0").header("If-Range", etag)).getStatus());
+        assertEquals(206, send(get().header("Range", "bytes=0-0").header("If-Range", lastModified)).getStatus());
+
+        TestResponse stale = send(get().header("Range", "bytes=0-0").header("If-Range", "\"other\""));
+        assertEquals(200, stale.getStatus());
+        assertEquals("0123456789", stale.text());
+        assertEquals(200, send(get().header("Range", "bytes=0-0").header("If-Range", "W/" + etag)).getStatus());
+    }
+
+    @Test
+    void validatorsAnswer304() throws Exception {
+        TestResponse first = send(get());
+
+        assertEquals(304, send(get().header("If-None-Match", first.getHeader("ETag"))).getStatus());
+        assertEquals(304, send(get().header("If-Modified-Since", first.getHeader("Last-Modified"))).getStatus());
+        // If-None-Match wins over If-Modified-Since
+        assertEquals(200, send(get().header("If-None-Match", "\"other\"")
+                .header("If-Modified-Since", first.getHeader("Last-Modified"))).getStatus());
+    }
+
+    @Test
+    void headSendsNoBody() throws Exception {
+        TestResponse resp = send(new TestRequest("HEAD", "/digits.txt"));
+
+        assertEquals(200, resp.getStatus());
+        assertEquals(0, resp.body().length);
+    }
+
+    @Test
+    void aMissingFileIsLeftToTheCaller() throws Exception {
+        TestResponse resp = new TestResponse();
+        assertFalse(FileSender.send(get(), resp, new FileResult(dir.resolve("gone.txt")), "text/plain"));
+        assertFalse(FileSender.send(get(), resp, new FileResult(dir), "text/plain"));
+    }
+}
@@ -0,0 +1,129 @@
+package core;
+
+import jakarta.servlet.http.Part;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUploadTest {
+
+    @TempDir
+    Path dir;
+
+    /** Disk-backed part whose stream is not a FileInputStream, like Tomcat's. */
+    static class DiskPart implements Part {
+        Path file;
+        int writes;
+
+        DiskPart(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(file);
+        }
+
+        @Override
+        public void write(String fileName) throws IOException {
+            writes++;
+            file = Files.move(file, Path.of(fileName), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(file);
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/plain";
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getSubmittedFileName() {
+            return "notes.txt";
+        }
+
+        @Override
+        public void delete() {
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            return List.of();
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            return List.of();
+        }
+    }
+
+    @Test
+    void aStreamedPartIsMovedByTheContainerAndStaysReadable() throws Exception {
+        long threshold = FileUpload.getMemoryThreshold();
+        FileUpload.setMemoryThreshold(4);
+        try {
+            DiskPart part = new DiskPart(Files.writeString(dir.resolve("upload.tmp"), "streamed content"));
+            FileUpload upload = FileUpload.fromPart(part);
+            assertFalse(upload.isInMemory());
+
+            Path target = dir.resolve("saved.txt");
+            assertEquals(16, upload.transferTo(target));
+            assertEquals(1, part.writes);
+            assertEquals("streamed content", Files.readString(target));
+
+            try (ReadableByteChannel channel = upload.getChannel()) {
+                assertInstanceOf(FileChannel.class, channel);
+            }
+            assertEquals(16, upload.transferTo(target)); // onto itself: not truncated
+            assertEquals("streamed content", new String(upload.getBytes(), StandardCharsets.UTF_8));
+
+            Path copy = dir.resolve("copy.txt");
+            assertEquals(16, upload.transferTo(copy));
+            assertEquals("streamed content", Files.readString(copy));
+            assertEquals(1, part.writes);
+        } finally {
+            FileUpload.setMemoryThreshold(threshold);
+        }
+    }
+
+    @Test
+    void smallPartsAreReadIntoMemory() throws Exception {
+        DiskPart part = new DiskPart(Files.writeString(dir.resolve("small.tmp"), "small"));
+        FileUpload upload = FileUpload.fromPart(part);
+        assertTrue(upload.isInMemory());
+
+        Path target = dir.resolve("small.txt");
+        assertEquals(5, upload.transferTo(target));
+        assertEquals("small", Files.readString(target));
+        assertEquals(0, part.writes);
+    }
+}
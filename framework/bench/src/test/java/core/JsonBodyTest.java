@@ -0,0 +1,87 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import core.rest.JsonParseException;
+import core.rest.JsonReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonBodyTest {
+
+    private RouterServlet servlet;
+
+    @BeforeEach
+    void init() throws Exception {
+        servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of("maxJsonBodyBytes", "256")));
+    }
+
+    @AfterEach
+    void destroy() {
+        servlet.destroy();
+    }
+
+    private TestResponse post(String json) throws Exception {
+        TestResponse resp = new TestResponse();
+        servlet.service(new TestRequest("POST", "/test/echo").json(json), resp);
+        return resp;
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 1 << 20);
+    }
+
+    @Test
+    void aJsonBodyIsBoundIntoTheParameter() throws Exception {
+        TestResponse resp = post("{\"qty\":3,\"ignored\":[{\"x\":null}],\"name\":\"pen\",\"children\":[{},{}]}");
+
+        assertEquals(200, resp.getStatus());
+        assertTrue(resp.text().contains("\"data\":\"pen:3:2\""), resp.text());
+    }
+
+    @Test
+    void malformedBodiesAre400() throws Exception {
+        for (String bad : new String[] { "{\"name\":", "{\"name\":\"pen\"} trailing", "{name:\"pen\"}",
+                "{\"qty\":\"many\"}", "[1,2]", "{\"name\":\"\\u12\"}" }) {
+            TestResponse resp = post(bad);
+            assertEquals(400, resp.getStatus(), bad);
+            assertTrue(resp.text().startsWith("{\"code\":400,"), resp.text());
+        }
+    }
+
+    @Test
+    void bodiesOverTheLimitAre413() throws Exception {
+        TestResponse resp = post("{\"name\":\"" + "x".repeat(300) + "\"}");
+
+        assertEquals(413, resp.getStatus());
+    }
+
+    @Test
+    void nestingIsCapped() throws IOException {
+        String deep = "[".repeat(JsonReader.MAX_DEPTH + 1) + "]".repeat(JsonReader.MAX_DEPTH + 1);
+        JsonReader json = reader(deep);
+
+        assertThrows(JsonParseException.class, json::skipValue);
+        String ok = "[".repeat(JsonReader.MAX_DEPTH) + "]".repeat(JsonReader.MAX_DEPTH);
+        JsonReader shallow = reader(ok);
+        shallow.skipValue();
+        shallow.endDocument();
+    }
+
+    @Test
+    void theReaderStopsAtMaxBytes() {
+        JsonReader json = new JsonReader(new ByteArrayInputStream(("\"" + "x".repeat(100) + "\"")
+                .getBytes(StandardCharsets.US_ASCII)), 50, 16);
+
+        JsonParseException e = assertThrows(JsonParseException.class, json::nextString);
+        assertTrue(e.isTooLarge());
+    }
+}
@@ -0,0 +1,137 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MappedSessionStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private MappedSessionStore open(Path file) throws Exception {
+        return new MappedSessionStore(file, 4096 + 16 * 512, 512, 4, 60_000, 60_000);
+    }
+
+    // one stripe of 8 slots: every id shares the probe sequence
+    private MappedSessionStore small(long timeoutMillis) throws Exception {
+        return new MappedSessionStore(dir.resolve("small.dat"), 4096 + 8 * 512, 512, 1, timeoutMillis, 60_000);
+    }
+
+    @Test
+    void attributesRoundTrip() throws Exception {
+        try (MappedSessionStore store = open(dir.resolve("sessions.dat"))) {
+            assertFalse(store.exists("s1"));
+            store.set("s1", "user", "alice");
+            store.set("s1", "cart", List.of(1, 2));
+            store.set("s1", "user", "bob");
+
+            assertTrue(store.exists("s1"));
+            assertEquals("bob", store.get("s1", "user"));
+            assertEquals(Map.of("user", "bob", "cart", List.of(1, 2)), store.getAll("s1"));
+            store.remove("s1", "cart");
+            assertNull(store.get("s1", "cart"));
+
+            store.invalidate("s1");
+            assertFalse(store.exists("s1"));
+            assertNull(store.get("s1", "user"));
+            store.remove("s1", "user"); // no session: nothing created
+            assertFalse(store.exists("s1"));
+        }
+    }
+
+    @Test
+    void sessionsSurviveAReopenAndAreSharedBetweenInstances() throws Exception {
+        Path file = dir.resolve("sessions.dat");
+        try (MappedSessionStore store = open(file)) {
+            store.set("s1", "user", "alice");
+        }
+        try (MappedSessionStore a = open(file); MappedSessionStore b = open(file)) {
+            assertEquals("alice", a.get("s1", "user"));
+            b.set("s1", "user", "bob");
+            assertEquals("bob", a.get("s1", "user"));
+        }
+    }
+
+    @Test
+    void aFileWithAnotherLayoutIsRefused() throws Exception {
+        Path file = dir.resolve("sessions.dat");
+        open(file).close();
+
+        assertThrows(IllegalStateException.class,
+                () -> new MappedSessionStore(file, 4096 + 16 * 512, 512, 8, 60_000, 60_000));
+    }
+
+    @Test
+    void tooLargeSessionsAndIdsAreRejected() throws Exception {
+        try (MappedSessionStore store = open(dir.resolve("sessions.dat"))) {
+            assertThrows(IllegalStateException.class, () -> store.set("s1", "blob", "x".repeat(1000)));
+            assertThrows(IllegalArgumentException.class, () -> store.set("s".repeat(65), "k", "v"));
+        }
+    }
+
+    @Test
+    void sessionsExpireWithoutAccess() throws Exception {
+        try (MappedSessionStore store = small(100)) {
+            store.set("s1", "k", "v");
+            Thread.sleep(150);
+            assertFalse(store.exists("s1"));
+        }
+    }
+
+    @Test
+    void sweepCompactsDeletedSlotsWithoutLosingLiveSessions() throws Exception {
+        try (MappedSessionStore store = small(60_000)) {
+            for (int i = 0; i < 8; i++)
+                store.set("s" + i, "n", i);
+            for (int i = 0; i < 8; i += 2)
+                store.invalidate("s" + i);
+
+            store.sweep();
+            for (int i = 1; i < 8; i += 2)
+                assertEquals(i, store.get("s" + i, "n"));
+            for (int i = 0; i < 8; i += 2)
+                assertFalse(store.exists("s" + i));
+
+            // the freed slots are usable again
+            for (int i = 8; i < 12; i++)
+                store.set("s" + i, "n", i);
+            for (int i = 1; i < 12; i += (i < 8) ? 2 : 1)
+                assertEquals(i, store.get("s" + i, "n"));
+        }
+    }
+
+    @Test
+    void aFullStripeEvictsTheSessionClosestToExpiry() throws Exception {
+        try (MappedSessionStore store = small(60_000)) {
+            for (int i = 0; i < 8; i++) {
+                store.set("s" + i, "n", i);
+                Thread.sleep(2);
+            }
+            store.get("s0", "n"); // s0 pushed back: s1 is now the oldest
+            store.set("new", "n", 99);
+
+            assertEquals(99, store.get("new", "n"));
+            assertFalse(store.exists("s1"));
+            assertTrue(store.exists("s0"));
+            assertTrue(store.exists("s7"));
+        }
+    }
+
+    @Test
+    void aNewStoreFileIsOwnerOnly() throws Exception {
+        assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path file = dir.resolve("sessions.dat");
+        try (MappedSessionStore store = open(file)) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+    }
+}
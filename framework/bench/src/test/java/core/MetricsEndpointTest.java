@@ -0,0 +1,39 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsEndpointTest {
+
+    private static TestResponse get(Map<String, String> params, String path) throws Exception {
+        RouterServlet servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(params));
+        try {
+            TestResponse resp = new TestResponse();
+            servlet.service(new TestRequest("GET", path), resp);
+            return resp;
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    @Test
+    void metricsAreNotExposedByDefault() throws Exception {
+        TestResponse resp = get(Map.of(), "/_router/metrics");
+
+        assertEquals(404, resp.getStatus());
+        assertFalse(resp.text().contains("/test/list"));
+    }
+
+    @Test
+    void metricsPathInitParamExposesThem() throws Exception {
+        TestResponse resp = get(Map.of("metricsPath", "/_router/metrics"), "/_router/metrics");
+
+        assertEquals(200, resp.getStatus());
+        assertTrue(resp.text().contains("/test/list"), resp.text());
+    }
+}
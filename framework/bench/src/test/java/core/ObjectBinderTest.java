@@ -0,0 +1,92 @@
+package core;
+
+import core.rest.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectBinderTest {
+
+    static class Address {
+        String city;
+        int zip;
+    }
+
+    static class Line {
+        String sku;
+        int qty;
+    }
+
+    static class Order {
+        String name;
+        long id;
+        boolean paid;
+        Address address;
+        List<Line> lines;
+        List<Integer> counts;
+        String[] tags;
+        int[] slots;
+        Session session;
+    }
+
+    private static Order bind(Map<String, String[]> params) throws Exception {
+        return (Order) ObjectBinder.bind(Order.class, new TestRequest("POST", "/orders", params), null);
+    }
+
+    @Test
+    void flatValuesAreConverted() throws Exception {
+        Order o = bind(Map.of("name", new String[] { "x" }, "id", new String[] { "42" },
+                "paid", new String[] { "true" }, "counts", new String[] { "1", "2" }));
+
+        assertEquals("x", o.name);
+        assertEquals(42L, o.id);
+        assertTrue(o.paid);
+        assertEquals(List.of(1, 2), o.counts);
+        assertNotNull(o.session);
+    }
+
+    @Test
+    void nestedAndIndexedKeysBuildTheGraph() throws Exception {
+        Order o = bind(Map.of("address.city", new String[] { "Lyon" }, "address.zip", new String[] { "69001" },
+                "lines[1].sku", new String[] { "B" }, "lines[0].qty", new String[] { "3" },
+                "tags[2]", new String[] { "t" }, "slots[1]", new String[] { "7" }));
+
+        assertEquals("Lyon", o.address.city);
+        assertEquals(69001, o.address.zip);
+        assertEquals(2, o.lines.size());
+        assertEquals(3, o.lines.get(0).qty);
+        assertEquals("B", o.lines.get(1).sku);
+        assertArrayEquals(new String[] { null, null, "t" }, o.tags);
+        assertArrayEquals(new int[] { 0, 7 }, o.slots);
+    }
+
+    @Test
+    void outOfRangeOrMalformedIndexesAreIgnored() throws Exception {
+        Order o = bind(Map.of("lines[" + (ObjectBinder.MAX_INDEX + 1) + "].sku", new String[] { "A" },
+                "tags[-1]", new String[] { "t" }, "tags[1][2]", new String[] { "t" },
+                "name.city", new String[] { "x" }, "unknown", new String[] { "y" }));
+
+        assertNull(o.lines);
+        assertNull(o.tags);
+        assertNull(o.name);
+    }
+
+    @Test
+    void jsonBodiesBindThroughTheSamePlans() throws Exception {
+        String body = "{\"name\":\"x\",\"extra\":{\"a\":[1,2]},\"address\":{\"city\":\"Lyon\"},"
+                + "\"lines\":[{\"sku\":\"A\",\"qty\":2}],\"tags\":[\"a\",\"b\"]}";
+        JsonReader json = new JsonReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), 1 << 20, 64);
+        Order o = (Order) ObjectBinder.bindJson(Order.class, new TestRequest("POST", "/orders"), json);
+
+        assertEquals("x", o.name);
+        assertEquals("Lyon", o.address.city);
+        assertEquals("A", o.lines.get(0).sku);
+        assertEquals(2, o.lines.get(0).qty);
+        assertArrayEquals(new String[] { "a", "b" }, o.tags);
+    }
+}
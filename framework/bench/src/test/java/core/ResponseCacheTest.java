@@ -0,0 +1,78 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private RouterServlet servlet;
+
+    @BeforeEach
+    void init() throws Exception {
+        servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of()));
+        TestRoutes.reports.set(0);
+    }
+
+    @AfterEach
+    void destroy() {
+        servlet.destroy();
+    }
+
+    private TestResponse get(TestRequest req) throws Exception {
+        TestResponse resp = new TestResponse();
+        servlet.service(req, resp);
+        return resp;
+    }
+
+    @Test
+    void hitsAreServedWithoutCallingTheController() throws Exception {
+        TestResponse first = get(new TestRequest("GET", "/test/cached"));
+        TestResponse second = get(new TestRequest("GET", "/test/cached"));
+
+        assertEquals(200, second.getStatus());
+        assertEquals(first.text(), second.text());
+        assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+        assertEquals(1, TestRoutes.reports.get());
+
+        get(new TestRequest("GET", "/test/cached", Map.of("q", new String[] { "other" })));
+        assertEquals(2, TestRoutes.reports.get()); // listed params are part of the key
+    }
+
+    @Test
+    void aMatchingIfNoneMatchGets304() throws Exception {
+        String etag = get(new TestRequest("GET", "/test/cached")).getHeader("ETag");
+
+        TestResponse resp = get(new TestRequest("GET", "/test/cached").header("If-None-Match", "\"x\", " + etag));
+        assertEquals(304, resp.getStatus());
+        assertEquals(0, resp.body().length);
+
+        assertEquals(200, get(new TestRequest("GET", "/test/cached").header("If-None-Match", "\"x\"")).getStatus());
+    }
+
+    @Test
+    void theGzipVariantHasItsOwnEtag() throws Exception {
+        TestResponse plain = get(new TestRequest("GET", "/test/cached"));
+        TestResponse gzip = get(new TestRequest("GET", "/test/cached").header("Accept-Encoding", "gzip"));
+
+        assertEquals("gzip", gzip.getHeader("Content-Encoding"));
+        assertNotEquals(plain.getHeader("ETag"), gzip.getHeader("ETag"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertEquals(plain.text(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        // the plain ETag doesn't validate the gzip representation
+        TestResponse revalidated = get(new TestRequest("GET", "/test/cached").header("Accept-Encoding", "gzip")
+                .header("If-None-Match", plain.getHeader("ETag")));
+        assertEquals(200, revalidated.getStatus());
+        assertEquals(1, TestRoutes.reports.get());
+    }
+}
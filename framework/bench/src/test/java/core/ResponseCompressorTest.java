@@ -0,0 +1,85 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressorTest {
+
+    private final ResponseCompressor compressor = new ResponseCompressor(true, 64, 2);
+
+    private String negotiate(String acceptEncoding) {
+        TestRequest req = new TestRequest("GET", "/");
+        if (acceptEncoding != null)
+            req.header("Accept-Encoding", acceptEncoding);
+        return compressor.negotiate(req, "application/json;charset=UTF-8");
+    }
+
+    @Test
+    void negotiationHonoursQZero() {
+        assertEquals("gzip", negotiate("gzip, deflate"));
+        assertEquals("deflate", negotiate("gzip;q=0, deflate"));
+        assertEquals("deflate", negotiate("*, gzip; q=0.0"));
+        assertEquals("gzip", negotiate("gzip;q=0.5"));
+        assertNull(negotiate("gzip;q=0, deflate;q=0, *"));
+        assertNull(negotiate("*;q=0"));
+        assertNull(negotiate("br"));
+        assertNull(negotiate(null));
+    }
+
+    @Test
+    void onlyTextualTypesAreCompressed() {
+        TestRequest req = new TestRequest("GET", "/").header("Accept-Encoding", "gzip");
+
+        assertNull(compressor.negotiate(req, "image/png"));
+        assertNull(compressor.negotiate(req, null));
+        assertEquals("gzip", compressor.negotiate(req, "application/problem+json"));
+        assertNull(new ResponseCompressor(false, 64, 2).negotiate(req, "text/plain"));
+    }
+
+    @Test
+    void bodiesBelowTheThresholdGoOutAsIs() throws IOException {
+        TestResponse resp = new TestResponse();
+        byte[] small = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = compressor.open(resp, "gzip")) {
+            out.write(small);
+        }
+
+        assertNull(resp.getHeader("Content-Encoding"));
+        assertArrayEquals(small, resp.body());
+    }
+
+    @Test
+    void largerBodiesAreCompressed() throws IOException {
+        byte[] large = "0123456789".repeat(100).getBytes(StandardCharsets.US_ASCII);
+        for (String encoding : new String[] { "gzip", "deflate" }) {
+            for (int round = 0; round < 3; round++) { // pooled Deflaters must come back reset
+                TestResponse resp = new TestResponse();
+                try (OutputStream out = compressor.open(resp, encoding)) {
+                    out.write(large, 0, 10);
+                    out.write(large, 10, large.length - 10);
+                }
+
+                assertEquals(encoding, resp.getHeader("Content-Encoding"));
+                assertTrue(resp.body().length < large.length);
+                assertArrayEquals(large, inflate(encoding, resp.body()));
+            }
+            assertArrayEquals(large, inflate(encoding, compressor.compress(large, encoding)));
+        }
+    }
+
+    private static byte[] inflate(String encoding, byte[] body) throws IOException {
+        InputStream raw = new ByteArrayInputStream(body);
+        try (InputStream in = "gzip".equals(encoding) ? new GZIPInputStream(raw) : new InflaterInputStream(raw)) {
+            return in.readAllBytes();
+        }
+    }
+}
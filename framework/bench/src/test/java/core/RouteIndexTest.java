@@ -0,0 +1,70 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteIndexTest {
+
+    static class Users {
+        public String handle() {
+            return "";
+        }
+    }
+
+    private static RoutePattern route(String httpMethod, String path) throws Exception {
+        Method handler = Users.class.getMethod("handle");
+        return new RoutePattern(path, handler, new Users(), httpMethod);
+    }
+
+    @Test
+    void staticBranchWithoutTheMethodBacktracksToTheParamBranch() throws Exception {
+        RoutePattern me = route("GET", "/api/users/me");
+        RoutePattern put = route("PUT", "/api/users/{id}");
+        RoutePattern delete = route("DELETE", "/api/users/{id}");
+        RouteIndex index = new RouteIndex(List.of(me, put, delete));
+
+        assertSame(me, index.lookup("/api/users/me", "GET").route);
+
+        RouteIndex.Match match = index.lookup("/api/users/me", "PUT");
+        assertSame(put, match.route);
+        assertEquals("me", match.params.get("id"));
+
+        assertSame(delete, index.lookup("/api/users/42", "DELETE").route);
+        assertSame(me, index.lookup("/api/users/me", "HEAD").route);
+    }
+
+    @Test
+    void allowHeaderIsTheUnionOfEveryMatchingBranch() throws Exception {
+        RouteIndex index = new RouteIndex(List.of(
+                route("GET", "/api/users/me"),
+                route("PUT", "/api/users/{id}"),
+                route("DELETE", "/api/users/{id}"),
+                route("POST", "/api/users/m{suffix}")));
+
+        RouteIndex.Match match = index.lookup("/api/users/me", "PATCH");
+        assertNull(match.route);
+        assertEquals(Set.of("GET", "HEAD", "PUT", "DELETE", "POST"), match.allowedMethods());
+
+        match = index.lookup("/api/users/42", "PATCH");
+        assertEquals(Set.of("PUT", "DELETE"), match.allowedMethods());
+
+        assertNull(index.lookup("/api/other", "GET"));
+    }
+
+    @Test
+    void regexRoutesAreTriedWhenTheTrieHasNoRouteForTheMethod() throws Exception {
+        RoutePattern file = route("GET", "/files/{id}");
+        RoutePattern upload = route("POST", "/files/f-{id}");
+        RouteIndex index = new RouteIndex(List.of(file, upload));
+
+        assertSame(file, index.lookup("/files/f-1", "GET").route);
+        RouteIndex.Match match = index.lookup("/files/f-1", "POST");
+        assertSame(upload, match.route);
+        assertEquals("1", match.params.get("id"));
+    }
+}
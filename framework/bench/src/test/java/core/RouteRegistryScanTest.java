@@ -0,0 +1,55 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteRegistryScanTest {
+
+    @TempDir
+    Path webRoot;
+
+    private RouterServlet init() throws Exception {
+        Path classes = Files.createDirectories(webRoot.resolve("WEB-INF/classes/app/controllers"));
+        Files.createFile(classes.resolve("ScannedController.class"));
+        Files.createFile(classes.resolve("CoveredController.class"));
+
+        String tmp = System.getProperty("java.io.tmpdir");
+        System.setProperty("java.io.tmpdir", webRoot.toString()); // InMemoryServletConfig's web root
+        try {
+            RouterServlet servlet = new RouterServlet();
+            servlet.init(new InMemoryServletConfig(Map.of()));
+            return servlet;
+        } finally {
+            System.setProperty("java.io.tmpdir", tmp);
+        }
+    }
+
+    private static TestResponse get(RouterServlet servlet, String path) throws Exception {
+        TestResponse resp = new TestResponse();
+        servlet.service(new TestRequest("GET", path), resp);
+        return resp;
+    }
+
+    @Test
+    void controllersNoRegistryCoversAreScannedTheOthersSkipped() throws Exception {
+        RouterServlet servlet = init();
+        try {
+            assertEquals("[\"a\",\"b\"]", get(servlet, "/test/list").text().replaceAll(".*\"data\":(.*)}", "$1"));
+
+            TestResponse scanned = get(servlet, "/test/scanned");
+            assertEquals(200, scanned.getStatus());
+            assertEquals("scanned", scanned.text());
+
+            assertEquals(404, get(servlet, "/test/covered").getStatus());
+        } finally {
+            servlet.destroy();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCodecTest {
+
+    @AfterEach
+    void resetFilter() {
+        SessionCodec.allowClasses(null);
+    }
+
+    private static byte[] record(Object... keyValues) {
+        byte[] data = new byte[0];
+        for (int i = 0; i < keyValues.length; i += 2)
+            data = SessionCodec.put(data, data.length, (String) keyValues[i], keyValues[i + 1]);
+        return data;
+    }
+
+    @Test
+    void nativeAndSerializedValuesRoundTrip() {
+        List<Object> list = new ArrayList<>(List.of("x", 1, LocalDate.of(2024, 2, 29)));
+        byte[] data = record("s", "é€", "i", -7, "l", Long.MIN_VALUE, "t", true, "f", false, "d", 0.1,
+                "roles", new String[] { "admin", null, "" }, "list", list, "ints", new int[] { 1, 2 });
+
+        Map<String, Object> all = SessionCodec.decodeAll(data, data.length);
+        assertEquals(List.of("s", "i", "l", "t", "f", "d", "roles", "list", "ints"), new ArrayList<>(all.keySet()));
+        assertEquals("é€", all.get("s"));
+        assertEquals(-7, all.get("i"));
+        assertEquals(Long.MIN_VALUE, all.get("l"));
+        assertEquals(Boolean.TRUE, all.get("t"));
+        assertEquals(Boolean.FALSE, all.get("f"));
+        assertEquals(0.1, all.get("d"));
+        assertArrayEquals(new String[] { "admin", null, "" }, (String[]) all.get("roles"));
+        assertEquals(list, all.get("list"));
+        assertArrayEquals(new int[] { 1, 2 }, (int[]) all.get("ints"));
+    }
+
+    @Test
+    void putReplacesAndRemovesWithoutTouchingTheOthers() {
+        byte[] data = record("a", "1", "b", 2, "c", "3");
+        data = SessionCodec.put(data, data.length, "b", "two");
+        assertEquals("two", SessionCodec.find(data, data.length, "b"));
+        assertEquals("3", SessionCodec.find(data, data.length, "c"));
+
+        data = SessionCodec.put(data, data.length, "a", null);
+        assertNull(SessionCodec.find(data, data.length, "a"));
+        assertEquals(List.of("c", "b"), new ArrayList<>(SessionCodec.decodeAll(data, data.length).keySet()));
+        assertNull(SessionCodec.find(data, data.length, "missing"));
+    }
+
+    @Test
+    void classesOutsideTheAllowListAreNotDeserialized() {
+        byte[] data = record("uri", URI.create("http://example.com/"));
+        assertThrows(IllegalStateException.class, () -> SessionCodec.find(data, data.length, "uri"));
+
+        SessionCodec.allowClasses("java.net.URI");
+        assertEquals(URI.create("http://example.com/"), SessionCodec.find(data, data.length, "uri"));
+    }
+
+    @Test
+    void unserializableValuesAreRejectedOnWrite() {
+        assertThrows(IllegalArgumentException.class, () -> record("o", new Object()));
+    }
+}
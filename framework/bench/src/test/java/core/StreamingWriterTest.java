@@ -0,0 +1,107 @@
+package core;
+
+import core.bench.InMemoryServletConfig;
+import core.rest.BinaryFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingWriterTest {
+
+    @Test
+    void aSilentPublisherTimesOut() throws IOException {
+        Flow.Publisher<Object> silent = s -> s.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        StreamingWriter writer = new StreamingWriter(silent, true, null, null, null, 100);
+        TestResponse resp = new TestResponse();
+
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class, () -> writer.writeBlocking(resp.getOutputStream()));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+
+    @Test
+    void aPublisherThatKeepsSendingStreamsToTheEnd() throws IOException {
+        SubmissionPublisher<String> publisher = new SubmissionPublisher<>();
+        StreamingWriter writer = new StreamingWriter(publisher, true, null, null, null, 1_000);
+        Thread producer = new Thread(() -> {
+            for (String s : List.of("a", "b", "c")) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                publisher.submit(s);
+            }
+            publisher.close();
+        });
+        TestResponse resp = new TestResponse();
+        producer.start();
+        writer.writeBlocking(resp.getOutputStream());
+
+        assertEquals("\"a\"\n\"b\"\n\"c\"\n", resp.text());
+    }
+
+    @Test
+    void cborWrapsTheElementsInAnIndefiniteLengthArray() throws IOException {
+        TestResponse resp = new TestResponse();
+        new StreamingWriter(Stream.of("a", "b"), false, BinaryFormat.CBOR, null, null, 0)
+                .writeBlocking(resp.getOutputStream());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.writeBytes(HexFormat.of().parseHex("a3" + "64" + hex("code") + "18c8"
+                + "67" + hex("message") + "67" + hex("success") + "64" + hex("data")));
+        expected.writeBytes(HexFormat.of().parseHex("9f" + "61" + hex("a") + "61" + hex("b") + "ff"));
+        assertArrayEquals(expected.toByteArray(), resp.body());
+    }
+
+    @Test
+    void msgPackWritesASequenceOfValues() throws IOException {
+        TestResponse resp = new TestResponse();
+        new StreamingWriter(Stream.of("a", 1), true, BinaryFormat.MSGPACK, null, null, 0)
+                .writeBlocking(resp.getOutputStream());
+
+        assertEquals("a1" + hex("a") + "01", HexFormat.of().formatHex(resp.body()));
+    }
+
+    @Test
+    void streamedRoutesHonourABinaryAccept() throws Exception {
+        RouterServlet servlet = new RouterServlet();
+        servlet.init(new InMemoryServletConfig(Map.of()));
+        try {
+            TestResponse resp = new TestResponse();
+            servlet.service(new TestRequest("GET", "/test/publisher").header("Accept", "application/cbor"), resp);
+
+            assertEquals(200, resp.getStatus());
+            assertEquals("application/cbor", resp.getContentType());
+            byte[] body = resp.body();
+            assertEquals((byte) 0xa3, body[0]);
+            assertEquals("9fff", HexFormat.of().formatHex(body, body.length - 2, body.length));
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    private static String hex(String s) {
+        return HexFormat.of().formatHex(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
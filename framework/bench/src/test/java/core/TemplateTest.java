@@ -0,0 +1,102 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateTest {
+
+    @TempDir
+    Path dir;
+
+    static class User {
+        String name;
+        String city;
+
+        User(String name, String city) {
+            this.name = name;
+            this.city = city;
+        }
+    }
+
+    private static String render(String source, Map<String, Object> data) throws IOException {
+        StringWriter out = new StringWriter();
+        Template.parse("t", source).render(data, out, null);
+        return out.toString();
+    }
+
+    @Test
+    void valuesAreHtmlEscapedUnlessTripled() throws IOException {
+        Map<String, Object> data = Map.of("v", "<a href=\"x\">'&'</a>");
+
+        assertEquals("&lt;a href=&quot;x&quot;&gt;&#39;&amp;&#39;&lt;/a&gt;", render("{{v}}", data));
+        assertEquals("<a href=\"x\">'&'</a>", render("{{{v}}}", data));
+        assertEquals("<a href=\"x\">'&'</a>", render("{{& v}}", data));
+        assertEquals("[]", render("[{{missing}}]", data));
+    }
+
+    @Test
+    void sectionsLoopAndLookUpEnclosingScopes() throws IOException {
+        Map<String, Object> data = Map.of("sep", ";", "users",
+                List.of(new User("<b>", "Lyon"), new User("Ann", "Paris")), "none", List.of(), "tags",
+                new String[] { "x", "y" });
+
+        assertEquals("&lt;b&gt;@Lyon;Ann@Paris;",
+                render("{{#users}}{{name}}@{{city}}{{sep}}{{/users}}", data));
+        assertEquals("empty", render("{{#none}}items{{/none}}{{^none}}empty{{/none}}", data));
+        assertEquals("x,y,", render("{{! tags }}{{#tags}}{{.}},{{/tags}}", data));
+    }
+
+    @Test
+    void malformedTemplatesAreRejected() {
+        assertThrows(IllegalStateException.class, () -> Template.parse("t", "{{#a}}open"));
+        assertThrows(IllegalStateException.class, () -> Template.parse("t", "{{#a}}{{/b}}"));
+        assertThrows(IllegalStateException.class, () -> Template.parse("t", "{{name"));
+        assertThrows(IllegalStateException.class, () -> Template.parse("t", "{{ }}"));
+    }
+
+    @Test
+    void viewsOutsideTheViewsDirectoryAreRefused() throws IOException {
+        Path views = Files.createDirectory(dir.resolve("views"));
+        Files.writeString(dir.resolve("secret.html"), "secret");
+        Files.writeString(views.resolve("page.html"), "{{> ../secret.html}}");
+        TemplateEngine engine = new TemplateEngine(views, ".html", false);
+
+        assertThrows(IOException.class, () -> engine.get("../secret.html"));
+        assertThrows(IOException.class, () -> engine.get("sub/../../secret.html"));
+        assertThrows(IOException.class, () -> engine.get("page.html").render(Map.of(), new StringWriter(), engine));
+    }
+
+    @Test
+    void partialsRenderAndDevModeReloadsChangedFiles() throws IOException {
+        Path page = Files.writeString(dir.resolve("page.html"), "<h1>{{> title.html}}</h1>");
+        Files.writeString(dir.resolve("title.html"), "{{title}}");
+        TemplateEngine engine = new TemplateEngine(dir, ".html", true);
+        StringWriter out = new StringWriter();
+        engine.get("page.html").render(Map.of("title", "Hi"), out, engine);
+        assertEquals("<h1>Hi</h1>", out.toString());
+        assertTrue(engine.handles("page.html"));
+        assertFalse(engine.handles("page.jsp"));
+
+        Files.writeString(page, "changed");
+        Files.setLastModifiedTime(page, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertSame(engine.get("page.html"), engine.get("page.html")); // checked at most once a second
+        try {
+            Thread.sleep(TemplateEngine.CHECK_INTERVAL_MS + 50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        StringWriter reloaded = new StringWriter();
+        engine.get("page.html").render(Map.of(), reloaded, engine);
+        assertEquals("changed", reloaded.toString());
+    }
+}
@@ -0,0 +1,119 @@
+package core;
+
+import core.bench.InMemoryRequest;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.Cookie;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** InMemoryRequest with what the tests also need: a body, cookies and a remote address. */
+class TestRequest extends InMemoryRequest {
+
+    private byte[] body = new byte[0];
+    private final List<Cookie> cookies = new ArrayList<>();
+    private String remoteAddr = "127.0.0.1";
+
+    TestRequest(String method, String uri) {
+        this(method, uri, Map.of());
+    }
+
+    TestRequest(String method, String uri, Map<String, String[]> parameters) {
+        super(method, uri, parameters);
+    }
+
+    @Override
+    public TestRequest header(String name, String value) {
+        super.header(name, value);
+        return this;
+    }
+
+    TestRequest body(String contentType, byte[] bytes) {
+        setContentType(contentType);
+        this.body = bytes;
+        return this;
+    }
+
+    TestRequest json(String json) {
+        return body("application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    TestRequest cookie(String name, String value) {
+        cookies.add(new Cookie(name, value));
+        return this;
+    }
+
+    TestRequest remoteAddr(String addr) {
+        this.remoteAddr = addr;
+        return this;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener listener) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return body.length;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return cookies.isEmpty() ? null : cookies.toArray(new Cookie[0]);
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        return (value == null) ? -1
+                : ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,69 @@
+package core;
+
+import core.bench.InMemoryResponse;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/** InMemoryResponse that keeps the body, for assertions. */
+class TestResponse extends InMemoryResponse {
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private PrintWriter writer;
+
+    private final ServletOutputStream out = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(int b) {
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            body.write(b, off, len);
+        }
+    };
+
+    byte[] body() {
+        if (writer != null)
+            writer.flush();
+        return body.toByteArray();
+    }
+
+    String text() {
+        return new String(body(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atOffset(ZoneOffset.UTC)));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null)
+            writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return writer;
+    }
+}
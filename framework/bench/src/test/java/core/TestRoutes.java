@@ -0,0 +1,102 @@
+package core;
+
+import core.annotation.Cached;
+import core.annotation.Limit;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/** Routes the servlet-level tests dispatch to, loaded like a generated registry (META-INF/services). */
+public class TestRoutes implements RouteRegistry {
+
+    /** File returned by the file routes; set by the test. */
+    static volatile Path file;
+
+    /** /test/limited signals inside, then waits for release. */
+    static volatile CountDownLatch inside = new CountDownLatch(1);
+    static volatile CountDownLatch release = new CountDownLatch(1);
+
+    /** Calls that reached /test/cached, i.e. cache misses. */
+    static final AtomicInteger reports = new AtomicInteger();
+
+    /** Body of /test/echo. */
+    public static class Item {
+        String name;
+        int qty;
+        List<Item> children;
+    }
+
+    public static class Files {
+        public String echo(Item item) {
+            return item.name + ":" + item.qty + ":" + ((item.children != null) ? item.children.size() : 0);
+        }
+
+        @Cached(ttlSeconds = 60, params = "q")
+        public List<String> report() {
+            reports.incrementAndGet();
+            return IntStream.range(0, 200).mapToObj(i -> "row " + i).collect(Collectors.toList());
+        }
+
+        @Cached(ttlSeconds = 60)
+        public Path cachedFile() {
+            return file;
+        }
+
+        public Path file() {
+            return file;
+        }
+
+        public Flow.Publisher<String> publisher() {
+            SubmissionPublisher<String> publisher = new SubmissionPublisher<>();
+            publisher.close();
+            return publisher;
+        }
+
+        public List<String> list() {
+            return List.of("a", "b");
+        }
+
+        public String slow() throws InterruptedException {
+            Thread.sleep(2000);
+            return "late";
+        }
+
+        public String error() {
+            throw new Error("handler error");
+        }
+
+        @Limit(maxConcurrent = 1, queueSize = 0)
+        public String limited() throws InterruptedException {
+            inside.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "done";
+        }
+    }
+
+    @Override
+    public Set<String> controllerClasses() {
+        return Set.of("app.controllers.CoveredController");
+    }
+
+    @Override
+    public void registerRoutes(Registrar r) throws Exception {
+        Files files = new Files();
+        r.route(files, "/test/echo", "POST", true, null, "echo", new Class<?>[] { Item.class }, null);
+        r.route(files, "/test/cached", "GET", true, null, "report", new Class<?>[0], null);
+        r.route(files, "/test/cached-file", "GET", true, null, "cachedFile", new Class<?>[0], null);
+        r.route(files, "/test/file", "GET", true, null, "file", new Class<?>[0], null);
+        r.route(files, "/test/publisher", "GET", true, null, "publisher", new Class<?>[0], null);
+        r.route(files, "/test/list", "GET", true, null, "list", new Class<?>[0], null);
+        r.route(files, "/test/slow", "GET", true, null, "slow", new Class<?>[0], null);
+        r.route(files, "/test/error", "GET", true, null, "error", new Class<?>[0], null);
+        r.route(files, "/test/limited", "GET", true, null, "limited", new Class<?>[0], null);
+    }
+}
@@ -0,0 +1,92 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenAuthTest {
+
+    private static byte[] secret(char c) {
+        byte[] b = new byte[TokenAuth.MIN_KEY_BYTES];
+        Arrays.fill(b, (byte) c);
+        return b;
+    }
+
+    private static TokenAuth auth(String... kids) {
+        LinkedHashMap<String, byte[]> keys = new LinkedHashMap<>();
+        for (String kid : kids)
+            keys.put(kid, secret(kid.charAt(0)));
+        return new TokenAuth(keys, 3600, "token");
+    }
+
+    @Test
+    void anIssuedTokenVerifies() {
+        TokenAuth auth = auth("k1");
+        TokenAuth.Principal p = auth.verify(auth.issue("alice", new String[] { "admin", "user" }));
+
+        assertNotNull(p);
+        assertEquals("alice", p.user);
+        assertArrayEquals(new String[] { "admin", "user" }, p.roles);
+        assertTrue(p.expiresAt > System.currentTimeMillis() / 1000);
+    }
+
+    @Test
+    void aTamperedTokenIsRejected() {
+        TokenAuth auth = auth("k1");
+        String token = auth.issue("alice", new String[] { "user" });
+        String[] parts = token.split("\\.");
+        String admin = java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("admin".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(auth.verify(parts[0] + "." + parts[1] + "." + parts[2] + "." + admin + "." + parts[4]));
+        assertNull(auth.verify(parts[0] + "." + (Long.parseLong(parts[1]) + 1) + "." + parts[2] + "." + parts[3]
+                + "." + parts[4]));
+        assertNull(auth.verify(token.substring(0, token.length() - 2)));
+        assertNull(auth.verify("not.a.token"));
+        assertNull(auth.verify(""));
+    }
+
+    @Test
+    void rotatedKeysKeepVerifyingUntilDropped() {
+        String old = auth("k1").issue("alice", new String[0]);
+        TokenAuth rotated = auth("k2", "k1");
+
+        assertNotNull(rotated.verify(old));
+        assertTrue(rotated.issue("bob", new String[0]).startsWith("k2."));
+        assertNull(auth("k2").verify(old));
+        assertNull(auth("z1").verify(old)); // unknown key id
+    }
+
+    @Test
+    void roleNamesCannotCarryTheSeparator() {
+        TokenAuth auth = auth("k1");
+
+        assertThrows(IllegalArgumentException.class, () -> auth.issue("alice", new String[] { "user,admin" }));
+        assertThrows(IllegalArgumentException.class, () -> auth.issue("alice", new String[] { "" }));
+    }
+
+    @Test
+    void macsArePooledAcrossThreads() throws Exception {
+        TokenAuth auth = auth("k1");
+        Thread[] threads = new Thread[8];
+        boolean[] ok = new boolean[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            int i = t;
+            threads[t] = new Thread(() -> {
+                boolean all = true;
+                for (int n = 0; n < 200; n++)
+                    all &= auth.verify(auth.issue("u" + i + "-" + n, new String[] { "user" })) != null;
+                ok[i] = all;
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        for (boolean b : ok)
+            assertTrue(b);
+    }
+}
@@ -37,10 +37,21 @@ if errorlevel 1 (
     exit /b 1
 )
 
-REM Create JAR (auto-generates META-INF)
+REM Step 3 - Compile the route annotation processor (needs annotations + core)
+echo Compiling annotation processor...
+javac -proc:none -d %BUILD_DIR% -cp "%BUILD_DIR%;%LIB_DIR%\*" %SRC_DIR%\core\processor\*.java
+if errorlevel 1 (
+    echo Failed to compile processor!
+    exit /b 1
+)
+
+REM Service entries (annotation processor discovery)
+xcopy /E /I /Y %SRC_DIR%\META-INF %BUILD_DIR%\META-INF >nul
+
+REM Create JAR (auto-generates MANIFEST)
 echo Creating JAR...
 cd %BUILD_DIR%
-jar cvf %JAR_NAME% core
+jar cvf %JAR_NAME% core META-INF
 cd ..
 
 echo Done! %JAR_NAME% created in %BUILD_DIR%
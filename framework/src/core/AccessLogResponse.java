@@ -0,0 +1,123 @@
+package core;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Counts the body bytes of a response for the access log; only installed while access logging
+ * is on. Text written through getWriter is counted in characters; a body the container sends
+ * itself (sendfile) is taken from the declared Content-Length.
+ */
+public class AccessLogResponse extends HttpServletResponseWrapper {
+
+    public String route; // matched pattern, null when none matched
+
+    private long written;
+    private long declared = -1;
+    private ServletOutputStream stream;
+    private PrintWriter writer;
+
+    public AccessLogResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    public long getBytes() {
+        return (written == 0 && declared > 0) ? declared : written;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        declared = len;
+        super.setContentLength(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        declared = len;
+        super.setContentLengthLong(len);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (stream == null)
+            stream = new CountingStream(super.getOutputStream());
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null)
+            writer = new CountingWriter(super.getWriter());
+        return writer;
+    }
+
+    private final class CountingStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+
+        CountingStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            out.setWriteListener(listener);
+        }
+    }
+
+    // print and append end up in these three (println's line separator is not counted)
+    private final class CountingWriter extends PrintWriter {
+        CountingWriter(PrintWriter out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) {
+            super.write(c);
+            written++;
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            super.write(buf, off, len);
+            written += len;
+        }
+
+        @Override
+        public void write(String s, int off, int len) {
+            super.write(s, off, len);
+            written += len;
+        }
+    }
+}
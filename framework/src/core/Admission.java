@@ -0,0 +1,208 @@
+package core;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control of one route (see {@link core.annotation.Limit}): a concurrency limit
+ * with a bounded wait queue, plus optional token buckets for the route and per client.
+ * A request is admitted or rejected before any controller work; admitted requests
+ * must {@link #release()} their slot when they end.
+ */
+public class Admission {
+
+    public static final int ADMITTED = 0;
+    public static final int OVERLOADED = 503;
+    public static final int RATE_LIMITED = 429;
+
+    // Per-client buckets kept at most; idle (refilled) ones are dropped first, then the least
+    // recently used tenth, never all of them
+    static final int MAX_CLIENTS = 10_000;
+
+    private final String route;
+    private final String method;
+    private final Semaphore slots; // null = no concurrency limit
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final int retryAfterSeconds;
+
+    private final RateLimiter routeRate;
+    private final double clientRate;
+    private final int burst;
+    private final ConcurrentHashMap<String, RateLimiter> clients;
+    private final int rateRetryAfterSeconds;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejectedOverload = new LongAdder();
+    private final LongAdder rejectedRate = new LongAdder();
+
+    public Admission(String route, String method, int maxConcurrent, int queueSize, long queueTimeoutMs,
+            double ratePerSecond, double perClientRatePerSecond, int burst, int retryAfterSeconds) {
+        this.route = route;
+        this.method = method;
+        this.slots = (maxConcurrent > 0) ? new Semaphore(maxConcurrent) : null;
+        this.queueSize = Math.max(0, queueSize);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, queueTimeoutMs));
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+
+        this.burst = burst;
+        this.routeRate = (ratePerSecond > 0) ? new RateLimiter(ratePerSecond, burst, System.nanoTime()) : null;
+        this.clientRate = perClientRatePerSecond;
+        this.clients = (perClientRatePerSecond > 0) ? new ConcurrentHashMap<>() : null;
+
+        double slowest = Double.MAX_VALUE;
+        if (ratePerSecond > 0)
+            slowest = ratePerSecond;
+        if (perClientRatePerSecond > 0)
+            slowest = Math.min(slowest, perClientRatePerSecond);
+        this.rateRetryAfterSeconds = (int) Math.max(1, Math.ceil(1 / slowest));
+    }
+
+    /** Whether this configuration limits anything at all. */
+    public boolean isActive() {
+        return slots != null || routeRate != null || clients != null;
+    }
+
+    /**
+     * {@link #ADMITTED} (holding a slot), or the status to answer: {@link #RATE_LIMITED} or
+     * {@link #OVERLOADED}. May wait up to queueTimeoutMs for a slot when the queue has room.
+     */
+    public int admit(HttpServletRequest req) {
+        // Rate limits first: a rejected request never takes a slot
+        if (routeRate != null || clients != null) {
+            long now = System.nanoTime();
+            if ((routeRate != null && !routeRate.tryAcquire(now))
+                    || (clients != null && !clientLimiter(req, now).tryAcquire(now))) {
+                rejectedRate.increment();
+                return RATE_LIMITED;
+            }
+        }
+
+        if (slots == null || slots.tryAcquire())
+            return ADMITTED;
+
+        if (queueSize > 0) {
+            int depth = waiting.incrementAndGet();
+            try {
+                if (depth <= queueSize && slots.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS))
+                    return ADMITTED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        rejectedOverload.increment();
+        return OVERLOADED;
+    }
+
+    /** Frees the slot of an admitted request. */
+    public void release() {
+        if (slots != null)
+            slots.release();
+    }
+
+    /** Retry-After (seconds) to send with a rejection status. */
+    public int retryAfter(int status) {
+        return (status == RATE_LIMITED) ? rateRetryAfterSeconds : retryAfterSeconds;
+    }
+
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    public long getRejected() {
+        return rejectedOverload.sum() + rejectedRate.sum();
+    }
+
+    // The authenticated user, else the remote address: a client can mint new sessions, not users
+    private RateLimiter clientLimiter(HttpServletRequest req, long now) {
+        String user = AuthorizationManager.getCurrentUser(Session.of(req));
+        String key = (user != null) ? "user:" + user : req.getRemoteAddr();
+        RateLimiter limiter = clients.get(key);
+        if (limiter == null) {
+            if (clients.size() >= MAX_CLIENTS)
+                evictClients(now);
+            limiter = clients.computeIfAbsent(key, k -> new RateLimiter(clientRate, burst, now));
+        }
+        limiter.lastUsed = now;
+        return limiter;
+    }
+
+    // A flood of new keys only evicts the buckets nobody used for the longest time:
+    // active clients, limited ones included, keep theirs
+    private synchronized void evictClients(long now) {
+        if (clients.size() < MAX_CLIENTS)
+            return; // another thread got here first
+        clients.values().removeIf(l -> l.isIdle(now));
+        int excess = clients.size() - MAX_CLIENTS * 9 / 10;
+        if (excess <= 0)
+            return;
+        long[] used = clients.values().stream().mapToLong(l -> l.lastUsed).sorted().toArray();
+        long threshold = used[Math.min(excess, used.length) - 1];
+        clients.values().removeIf(l -> l.lastUsed <= threshold);
+    }
+
+    int clientCount() {
+        return clients.size();
+    }
+
+    /** Appends the admission series of this route in Prometheus text format. */
+    // one method per metric family, see RouteMetrics
+    void writeRejected(StringBuilder sb) {
+        String labels = labels();
+        sb.append("router_admission_rejected_total{").append(labels).append(",reason=\"overload\"} ")
+                .append(rejectedOverload.sum()).append('\n');
+        sb.append("router_admission_rejected_total{").append(labels).append(",reason=\"rate\"} ")
+                .append(rejectedRate.sum()).append('\n');
+    }
+
+    void writeQueueDepth(StringBuilder sb) {
+        sb.append("router_admission_queue_depth{").append(labels()).append("} ").append(waiting.get()).append('\n');
+    }
+
+    private String labels() {
+        return "route=\"" + RouteMetrics.escape(route) + "\",method=\"" + RouteMetrics.escape(method) + "\"";
+    }
+
+    /**
+     * Lock-free token bucket (GCRA): the state is the theoretical arrival time of the next
+     * request; a request fits if that time is no more than the burst allowance ahead of now.
+     */
+    static final class RateLimiter {
+        private final long interval; // nanos per token
+        private final long tolerance; // burst allowance
+        private final AtomicLong tat;
+        volatile long lastUsed; // per-client buckets: LRU eviction
+
+        RateLimiter(double perSecond, int burst, long now) {
+            this.interval = Math.max(1, (long) (1_000_000_000L / perSecond));
+            int size = (burst > 0) ? burst : (int) Math.max(1, Math.ceil(perSecond));
+            this.tolerance = interval * (size - 1);
+            this.tat = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long t = tat.get();
+                long base = Math.max(t, now);
+                if (base - now > tolerance)
+                    return false;
+                if (tat.compareAndSet(t, base + interval))
+                    return true;
+            }
+        }
+
+        // bucket full again: forgetting it changes nothing
+        boolean isIdle(long now) {
+            return tat.get() <= now;
+        }
+    }
+}
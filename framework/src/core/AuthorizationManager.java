@@ -1,42 +1,150 @@
 package core;
 
 import core.Session;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.Serializable;
 
 public class AuthorizationManager {
 
+    private static final String ROLE_MASK = "core.roleMask";
+    private static final String ISSUED_TOKEN = "core.AuthorizationManager.token";
+
+    // Stateless mode (init-param authTokenKeys): identity travels in a signed token, not the session
+    private static volatile TokenAuth tokens;
+
+    public static void useTokens(TokenAuth tokenAuth) {
+        tokens = tokenAuth;
+    }
+
+    public static TokenAuth getTokens() {
+        return tokens;
+    }
+
+    // Role bitmask cached in the session; only trusted when computed by this JVM run
+    // and no role was interned since (a route registered later may use one of the user's roles)
+    private static class RoleMask implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long epoch;
+        final int version;
+        final long mask;
+
+        RoleMask(int version, long mask) {
+            this.epoch = RoleRegistry.EPOCH;
+            this.version = version; // read before computing mask
+            this.mask = mask;
+        }
+
+        boolean isCurrent() {
+            return epoch == RoleRegistry.EPOCH && version == RoleRegistry.version;
+        }
+    }
+
     public static void setAuthenticatedUser(Session session, String username, String role) {
+        setAuthenticatedUser(session, username, new String[] { role });
+    }
+
+    public static void setAuthenticatedUser(Session session, String username, String... roles) {
+        if (usesTokens(session)) {
+            // cookie for browsers; API clients can send getToken() back as "Authorization: Bearer"
+            TokenAuth auth = tokens;
+            String token = auth.issue(username, roles);
+            session.writeCookie(auth.getCookieName(), token, auth.getTtlSeconds());
+            session.getRequest().setAttribute(ISSUED_TOKEN, token);
+            session.principal = auth.verify(token);
+            session.principalResolved = true;
+            return;
+        }
         session.set("user", username);
-        session.set("role", role);
+        session.set("role", roles.length > 0 ? roles[0] : null);
+        session.set("roles", roles);
+        int version = RoleRegistry.version;
+        session.set(ROLE_MASK, new RoleMask(version, RoleRegistry.userMask(roles)));
     }
 
+    /** In token mode the cookie is cleared, but a copied token stays valid until it expires. */
     public static void logout(Session session) {
+        if (usesTokens(session)) {
+            session.writeCookie(tokens.getCookieName(), null, 0);
+            session.principal = null;
+            session.principalResolved = true;
+        }
         session.invalidate();
     }
 
+    /** Token issued by setAuthenticatedUser in this request, else the one the client presented. */
+    public static String getToken(Session session) {
+        if (!usesTokens(session))
+            return null;
+        Object issued = session.getRequest().getAttribute(ISSUED_TOKEN);
+        return (issued != null) ? (String) issued : presentedToken(session.getRequest());
+    }
+
     public static String getCurrentUser(Session session) {
+        if (usesTokens(session)) {
+            TokenAuth.Principal p = principal(session);
+            return (p != null) ? p.user : null;
+        }
         return (String) session.get("user");
     }
 
     public static String getCurrentUserRole(Session session) {
+        if (usesTokens(session)) {
+            TokenAuth.Principal p = principal(session);
+            return (p != null && p.roles.length > 0) ? p.roles[0] : null;
+        }
         return (String) session.get("role");
     }
 
-    public static boolean checkAccess(Session session, String[] allowedRoles) {
+    public static String[] getCurrentUserRoles(Session session) {
+        if (usesTokens(session)) {
+            TokenAuth.Principal p = principal(session);
+            return (p != null) ? p.roles.clone() : new String[0];
+        }
+        Object roles = session.get("roles");
+        if (roles instanceof String[] r)
+            return r;
         String role = getCurrentUserRole(session);
-        if(role == null) role = "anonym";
+        return (role != null) ? new String[] { role } : new String[0];
+    }
 
-        for(String r : allowedRoles){
-            if(r.equalsIgnoreCase("all")) return true;
-            if(r.equalsIgnoreCase("anonym") && role.equals("anonym")) return true;
-            if(role.equalsIgnoreCase(r)) return true;
+    public static long getCurrentUserMask(Session session) {
+        if (usesTokens(session)) {
+            TokenAuth.Principal p = principal(session);
+            return RoleRegistry.userMask((p != null) ? p.roles : new String[0]);
         }
-        return false;
+        Object cached = session.get(ROLE_MASK);
+        if (cached instanceof RoleMask rm && rm.isCurrent())
+            return rm.mask;
+
+        // no cached mask (anonymous, session from an older run / set by hand, or new roles interned)
+        int version = RoleRegistry.version;
+        String[] roles = getCurrentUserRoles(session);
+        long mask = RoleRegistry.userMask(roles);
+        if (roles.length > 0)
+            session.set(ROLE_MASK, new RoleMask(version, mask));
+        return mask;
+    }
+
+    public static boolean checkAccess(Session session, String[] allowedRoles) {
+        return checkAccess(session, RoleRegistry.routeMask(allowedRoles));
+    }
+
+    public static boolean checkAccess(Session session, long routeMask) {
+        if (routeMask == RoleRegistry.ALL)
+            return true;
+        return (getCurrentUserMask(session) & routeMask) != 0;
     }
 
     public static boolean enforce(Session session, String[] allowedRoles, HttpServletResponse resp) throws IOException {
-        if(!checkAccess(session, allowedRoles)) {
+        return enforce(session, RoleRegistry.routeMask(allowedRoles), resp);
+    }
+
+    public static boolean enforce(Session session, long routeMask, HttpServletResponse resp) throws IOException {
+        if(!checkAccess(session, routeMask)) {
             if(getCurrentUser(session) == null){
                 resp.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized: Login required");
             } else {
@@ -46,4 +154,34 @@ public class AuthorizationManager {
         }
         return true;
     }
+
+    // ===================== TOKEN MODE =====================
+
+    private static boolean usesTokens(Session session) {
+        return tokens != null && session.getRequest() != null;
+    }
+
+    // Verified once per request, no session lookup
+    private static TokenAuth.Principal principal(Session session) {
+        if (!session.principalResolved) {
+            session.principalResolved = true;
+            session.principal = tokens.verify(presentedToken(session.getRequest()));
+        }
+        return session.principal;
+    }
+
+    private static String presentedToken(HttpServletRequest req) {
+        String header = req.getHeader("Authorization");
+        if (header != null && header.regionMatches(true, 0, "Bearer ", 0, 7))
+            return header.substring(7).trim();
+        Cookie[] cookies = req.getCookies();
+        if (cookies != null) {
+            String name = tokens.getCookieName();
+            for (Cookie c : cookies) {
+                if (c.getName().equals(name))
+                    return c.getValue();
+            }
+        }
+        return null;
+    }
 }
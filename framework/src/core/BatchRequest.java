@@ -0,0 +1,213 @@
+package core;
+
+import core.rest.JsonParseException;
+import core.rest.JsonReader;
+import core.rest.ValueReader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * One call of a batch: the enclosing request seen with another method, path and parameters.
+ * Headers, cookies and the session come from the batch request; attributes are local
+ * so sub-calls running in parallel never write to the container's request.
+ */
+public class BatchRequest extends HttpServletRequestWrapper {
+
+    // stands in for the batch request once the call is cancelled
+    private static final HttpServletRequest DETACHED = (HttpServletRequest) Proxy.newProxyInstance(
+            BatchRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+            (proxy, m, args) -> {
+                throw new IllegalStateException("Batch call cancelled: the batch request is gone");
+            });
+
+    public final String method;
+    public final String path;
+    private final Map<String, String[]> parameters;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private volatile boolean cancelled;
+
+    public BatchRequest(HttpServletRequest batch, String method, String path, Map<String, String[]> parameters) {
+        super(batch);
+        this.method = method;
+        this.path = path;
+        this.parameters = Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * Reads {@code [{"method": "GET", "path": "/api/...", "params": {"k": "v", "tags": ["a", "b"]}}, ...]}.
+     * method defaults to GET; parameter values may be strings, numbers, booleans or arrays of them.
+     * The same structure is accepted in CBOR or MessagePack.
+     */
+    public static List<BatchRequest> parse(HttpServletRequest batch, ValueReader json, int maxCalls)
+            throws IOException {
+        List<BatchRequest> calls = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            if (calls.size() == maxCalls)
+                throw new JsonParseException("Batch exceeds " + maxCalls + " calls");
+
+            String method = "GET";
+            String path = null;
+            Map<String, String[]> params = new LinkedHashMap<>();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "method" -> method = json.nextString().toUpperCase(Locale.ROOT);
+                    case "path" -> path = json.nextString();
+                    case "params" -> readParams(json, params);
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (path == null || !path.startsWith("/"))
+                throw new JsonParseException("Batch call " + calls.size() + " has no absolute \"path\"");
+            if (path.indexOf('?') >= 0)
+                throw new JsonParseException("Batch call " + calls.size() + ": pass the query string in \"params\"");
+            calls.add(new BatchRequest(batch, method, path, params));
+        }
+        json.endArray();
+        json.endDocument();
+        return calls;
+    }
+
+    private static void readParams(ValueReader json, Map<String, String[]> params) throws IOException {
+        if (json.peek() == JsonReader.Token.NULL) {
+            json.nextNull();
+            return;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            switch (json.peek()) {
+                case NULL -> json.nextNull();
+                case BEGIN_ARRAY -> {
+                    List<String> values = new ArrayList<>();
+                    json.beginArray();
+                    while (json.hasNext())
+                        values.add(json.nextString());
+                    json.endArray();
+                    params.put(name, values.toArray(new String[0]));
+                }
+                default -> params.put(name, new String[] { json.nextString() });
+            }
+        }
+        json.endObject();
+    }
+
+    /**
+     * Detaches a call the batch answered without (timed out): the container may recycle the batch
+     * request while the call still runs, so from now on everything read through it throws.
+     */
+    public synchronized void cancel() {
+        setRequest(DETACHED);
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Safe calls (GET/HEAD) may run in parallel with their neighbours. */
+    public boolean isSafe() {
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer();
+        url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort())
+                .append(getRequestURI());
+        return url;
+    }
+
+    @Override
+    public String getServletPath() {
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return null;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return (values != null && values.length > 0) ? values[0] : null;
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    // no body of its own: bound from params only
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public int getContentLength() {
+        return 0;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return 0;
+    }
+
+    @Override
+    public synchronized Object getAttribute(String name) {
+        Object local = attributes.get(name);
+        return (local != null) ? local : super.getAttribute(name);
+    }
+
+    @Override
+    public synchronized void setAttribute(String name, Object o) {
+        if (o == null)
+            attributes.remove(name);
+        else
+            attributes.put(name, o);
+    }
+
+    @Override
+    public synchronized void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+}
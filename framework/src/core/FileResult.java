@@ -0,0 +1,63 @@
+package core;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Controller result that sends a file (returning a Path or File directly works too).
+ * The router streams it from disk with Range, conditional GET and HEAD support, see FileSender.
+ */
+public class FileResult {
+
+    private final Path path;
+    private String contentType; // null: guessed from the file name
+    private String fileName; // download name, null: the file's own name
+    private boolean attachment; // Content-Disposition: attachment (download) instead of inline
+
+    public FileResult(Path path) {
+        this.path = path;
+    }
+
+    public FileResult(File file) {
+        this(file.toPath());
+    }
+
+    /** Download ("Save as") of the file under the given name. */
+    public static FileResult download(Path path, String fileName) {
+        FileResult result = new FileResult(path);
+        result.fileName = fileName;
+        result.attachment = true;
+        return result;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public FileResult setContentType(String contentType) {
+        this.contentType = contentType;
+        return this;
+    }
+
+    public String getFileName() {
+        return (fileName != null) ? fileName : String.valueOf(path.getFileName());
+    }
+
+    public FileResult setFileName(String fileName) {
+        this.fileName = fileName;
+        return this;
+    }
+
+    public boolean isAttachment() {
+        return attachment;
+    }
+
+    public FileResult setAttachment(boolean attachment) {
+        this.attachment = attachment;
+        return this;
+    }
+}
@@ -0,0 +1,187 @@
+package core;
+
+import jakarta.servlet.ServletRequestWrapper;
+import jakarta.servlet.ServletResponseWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Writes a {@link FileResult}: validators (ETag, Last-Modified, 304), a single byte Range
+ * (206 / 416, honouring If-Range), Content-Length, and HEAD without a body.
+ *
+ * The body never goes through a heap byte[] of the controller: it is handed to the container's
+ * sendfile when offered (Tomcat/NIO), otherwise copied by FileChannel.transferTo straight into
+ * the response stream.
+ */
+public class FileSender {
+
+    // Tomcat's sendfile contract: the container sends the file itself after service() returns
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    /** False when the file can't be read (the caller answers 404); the response is untouched then. */
+    public static boolean send(HttpServletRequest req, HttpServletResponse resp, FileResult file, String contentType)
+            throws IOException {
+        Path path = file.getPath();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return false;
+        }
+        if (!attrs.isRegularFile() || !Files.isReadable(path))
+            return false;
+
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis() / 1000 * 1000; // HTTP dates are in seconds
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+
+        resp.setHeader("Accept-Ranges", "bytes");
+        resp.setHeader("ETag", etag);
+        resp.setDateHeader("Last-Modified", lastModified);
+
+        // If-None-Match takes precedence over If-Modified-Since
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        boolean notModified = (ifNoneMatch != null)
+                ? ResponseCache.matches(ifNoneMatch, etag)
+                : lastModified <= dateHeader(req, "If-Modified-Since");
+        if (notModified) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+
+        resp.setContentType(contentType);
+        resp.setHeader("Content-Disposition", contentDisposition(file));
+
+        long start = 0;
+        long length = size;
+        boolean partial = false;
+        String range = req.getHeader("Range");
+        if (range != null && ifRangeHolds(req, etag, lastModified)) {
+            long[] r = parseRange(range, size);
+            if (r == UNSATISFIABLE) {
+                resp.setHeader("Content-Range", "bytes */" + size);
+                resp.setContentLength(0);
+                resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return true;
+            }
+            if (r != null) {
+                start = r[0];
+                length = r[1] - r[0] + 1;
+                partial = true;
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", "bytes " + r[0] + "-" + r[1] + "/" + size);
+            }
+        }
+        if (!partial)
+            resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentLengthLong(length);
+
+        if ("HEAD".equalsIgnoreCase(req.getMethod()) || length == 0)
+            return true;
+
+        if (canSendfile(req, resp)) {
+            req.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+            req.setAttribute(SENDFILE_START, start);
+            req.setAttribute(SENDFILE_END, start + length);
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(resp.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long n = channel.transferTo(position, remaining, target);
+                if (n <= 0)
+                    break; // file shrank underneath us: the client sees a short body
+                position += n;
+                remaining -= n;
+            }
+        }
+        return true;
+    }
+
+    // Tomcat only honours the sendfile attributes on its own request/response, outside async:
+    // behind a wrapper (access log, ...) or under startAsync the body would be lost
+    private static boolean canSendfile(HttpServletRequest req, HttpServletResponse resp) {
+        return Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))
+                && !req.isAsyncStarted()
+                && !(req instanceof ServletRequestWrapper)
+                && !(resp instanceof ServletResponseWrapper);
+    }
+
+    // {first, last} (inclusive), UNSATISFIABLE, or null to ignore the header and send everything.
+    // Multiple ranges are answered with the whole file, which RFC 9110 allows.
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0)
+            return null;
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return null;
+        try {
+            if (dash == 0) {
+                // suffix: last n bytes
+                long n = Long.parseLong(spec.substring(1));
+                if (n <= 0 || size == 0)
+                    return UNSATISFIABLE;
+                return new long[] { Math.max(0, size - n), size - 1 };
+            }
+            long first = Long.parseLong(spec.substring(0, dash));
+            long last = (dash == spec.length() - 1) ? size - 1 : Long.parseLong(spec.substring(dash + 1));
+            if (first >= size)
+                return UNSATISFIABLE;
+            if (last < first)
+                return null;
+            return new long[] { first, Math.min(last, size - 1) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // If-Range: the Range applies only if the representation is unchanged (strong ETag or exact date)
+    private static boolean ifRangeHolds(HttpServletRequest req, String etag, long lastModified) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange == null)
+            return true;
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return ifRange.equals(etag);
+        return dateHeader(req, "If-Range") == lastModified;
+    }
+
+    private static long dateHeader(HttpServletRequest req, String name) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static String contentDisposition(FileResult file) {
+        String name = file.getFileName();
+        StringBuilder ascii = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            ascii.append((c >= 0x20 && c < 0x7f && c != '"' && c != '\\') ? c : '_');
+        }
+        String encoded = URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20");
+        return (file.isAttachment() ? "attachment" : "inline") + "; filename=\"" + ascii + "\"; filename*=UTF-8''"
+                + encoded;
+    }
+}
@@ -1,9 +1,35 @@
 package core;
 
+import jakarta.servlet.http.Part;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Uploaded file (Sprint 10).
+ * Parts up to {@link #getMemoryThreshold()} bytes are read into memory; larger ones stay
+ * in the container's multipart storage and are streamed on demand
+ * ({@link #getInputStream()}, {@link #getChannel()}, {@link #transferTo(Path)}).
+ * A streamed upload is only readable during the request that received it.
+ */
 public class FileUpload {
+
+    private static volatile long memoryThreshold = 1024 * 1024; // 1 MB
+
     private String fileName;
     private byte[] bytes;
     private String contentType;
+    private long size = -1;
+    private Part part; // set when the content was not loaded in memory
+    private Path movedTo; // where transferTo had the container move the part's file
 
     public FileUpload() {
     }
@@ -14,6 +40,25 @@ public class FileUpload {
         this.contentType = contentType;
     }
 
+    public static FileUpload fromPart(Part part) throws IOException {
+        FileUpload upload = new FileUpload(part.getSubmittedFileName(), null, part.getContentType());
+        upload.size = part.getSize();
+        if (upload.size >= 0 && upload.size <= memoryThreshold) {
+            upload.bytes = part.getInputStream().readAllBytes();
+        } else {
+            upload.part = part;
+        }
+        return upload;
+    }
+
+    public static long getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    public static void setMemoryThreshold(long bytes) {
+        memoryThreshold = bytes;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -22,12 +67,23 @@ public class FileUpload {
         this.fileName = fileName;
     }
 
+    /** Whole content as a byte array. For streamed uploads this reads the file into the heap (opt-in). */
     public byte[] getBytes() {
+        if (bytes == null && part != null) {
+            try (InputStream in = getInputStream()) {
+                bytes = in.readAllBytes();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read uploaded file: " + fileName, e);
+            }
+        }
         return bytes;
     }
 
     public void setBytes(byte[] bytes) {
         this.bytes = bytes;
+        this.part = null;
+        this.movedTo = null;
+        this.size = -1;
     }
 
     public String getContentType() {
@@ -37,4 +93,72 @@ public class FileUpload {
     public void setContentType(String contentType) {
         this.contentType = contentType;
     }
+
+    public long getSize() {
+        if (bytes != null)
+            return bytes.length;
+        return size;
+    }
+
+    public boolean isInMemory() {
+        return part == null;
+    }
+
+    public InputStream getInputStream() throws IOException {
+        if (bytes != null || part == null)
+            return new ByteArrayInputStream(bytes != null ? bytes : new byte[0]);
+        if (movedTo != null)
+            return Files.newInputStream(movedTo);
+        return part.getInputStream();
+    }
+
+    /**
+     * The content as a channel: a FileChannel after {@link #transferTo(Path)}, or when the container
+     * hands out a FileInputStream for the part; other containers (Tomcat's disk parts among them)
+     * give a stream-backed channel.
+     */
+    public ReadableByteChannel getChannel() throws IOException {
+        if (bytes == null && movedTo != null)
+            return FileChannel.open(movedTo, StandardOpenOption.READ);
+        InputStream in = getInputStream();
+        if (in instanceof FileInputStream fis)
+            return fis.getChannel();
+        return Channels.newChannel(in);
+    }
+
+    /**
+     * Copy the content to a file. A streamed upload is handed to the container ({@link Part#write}),
+     * which moves its temporary file there when it can instead of copying; the upload then reads
+     * from target. Otherwise the copy is done channel-to-channel, without heap buffers.
+     */
+    public long transferTo(Path target) throws IOException {
+        if (bytes == null && part != null && movedTo == null) {
+            part.write(target.toAbsolutePath().toString()); // absolute: not under the multipart location
+            movedTo = target;
+            return Files.size(target);
+        }
+        if (movedTo != null && bytes == null && Files.isSameFile(movedTo, target))
+            return Files.size(target); // already there: truncating it would lose the content
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                ReadableByteChannel in = getChannel()) {
+
+            long written = 0;
+            if (in instanceof FileChannel src) {
+                long total = src.size();
+                while (written < total) {
+                    long n = src.transferTo(written, total - written, out);
+                    if (n <= 0)
+                        break; // file shrank underneath us: keep what was copied
+                    written += n;
+                }
+            } else {
+                long n;
+                while ((n = out.transferFrom(in, written, 1 << 20)) > 0) {
+                    written += n;
+                }
+            }
+            return written;
+        }
+    }
 }
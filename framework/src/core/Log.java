@@ -0,0 +1,388 @@
+package core;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Framework logging: callers only fill a preallocated slot of a lock-free ring buffer,
+ * a background thread formats and writes. Messages use {} placeholders and are formatted on
+ * that thread; a disabled level returns before touching anything.
+ *
+ * Access entries are structured (logfmt) and error stack traces are de-duplicated: the same
+ * failure (root cause type + throwing frame) prints its trace at most once per throttle window;
+ * later occurrences still log their line, without the trace. When the buffer is full, events are dropped and counted
+ * rather than blocking request threads.
+ *
+ * Configured from RouterServlet init-params logLevel, accessLog (off by default), errorThrottleSeconds.
+ */
+public final class Log {
+
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int CAPACITY = 8192; // power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_TRACKED_ERRORS = 1024;
+
+    private static final int MESSAGE = 0;
+    private static final int ACCESS = 1;
+
+    private static volatile int threshold = parseLevel(System.getProperty("core.log.level"), Level.INFO).ordinal();
+    private static volatile boolean accessLog; // off unless init-param accessLog=true
+    private static volatile long errorThrottleMillis = 60_000;
+    private static volatile PrintStream out = System.out;
+
+    /** One slot of the ring; reused, never reallocated. */
+    private static final class Event {
+        volatile long sequence = -1; // == its sequence number once published
+        int kind;
+        Level level;
+        long time;
+        String thread;
+        String message;
+        Object arg0;
+        Object arg1;
+        Object arg2;
+        Throwable error;
+        // access entries
+        String method;
+        String route;
+        String path;
+        int status;
+        long nanos;
+        long bytes;
+
+        void clear() {
+            message = null;
+            arg0 = arg1 = arg2 = null;
+            error = null;
+            method = route = path = null;
+            thread = null;
+        }
+    }
+
+    private static final Event[] ring = new Event[CAPACITY];
+    private static final AtomicLong tail = new AtomicLong(); // next sequence to claim
+    private static volatile long head; // next sequence to write (writer thread only)
+    private static final LongAdder dropped = new LongAdder();
+    private static volatile boolean writerSleeping;
+    private static volatile Thread writer; // started by the first event, stopped by shutdown()
+    private static volatile boolean stopping;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++)
+            ring[i] = new Event();
+    }
+
+    private Log() {
+    }
+
+    // ===================== CONFIGURATION =====================
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static void setAccessLog(boolean enabled) {
+        accessLog = enabled;
+    }
+
+    public static boolean isAccessLogEnabled() {
+        return accessLog && Level.INFO.ordinal() >= threshold;
+    }
+
+    public static void setErrorThrottleMillis(long millis) {
+        errorThrottleMillis = millis;
+    }
+
+    public static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+
+    public static Level parseLevel(String name, Level fallback) {
+        if (name == null || name.isBlank())
+            return fallback;
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    /** Events lost because the buffer was full. */
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // ===================== LOGGING =====================
+
+    public static void debug(String message) {
+        if (Level.DEBUG.ordinal() >= threshold)
+            publish(Level.DEBUG, message, null, null, null, null);
+    }
+
+    public static void debug(String message, Object a, Object b) {
+        if (Level.DEBUG.ordinal() >= threshold)
+            publish(Level.DEBUG, message, a, b, null, null);
+    }
+
+    public static void info(String message) {
+        if (Level.INFO.ordinal() >= threshold)
+            publish(Level.INFO, message, null, null, null, null);
+    }
+
+    public static void info(String message, Object a) {
+        if (Level.INFO.ordinal() >= threshold)
+            publish(Level.INFO, message, a, null, null, null);
+    }
+
+    public static void info(String message, Object a, Object b) {
+        if (Level.INFO.ordinal() >= threshold)
+            publish(Level.INFO, message, a, b, null, null);
+    }
+
+    public static void warn(String message) {
+        if (Level.WARN.ordinal() >= threshold)
+            publish(Level.WARN, message, null, null, null, null);
+    }
+
+    public static void warn(String message, Object a) {
+        if (Level.WARN.ordinal() >= threshold)
+            publish(Level.WARN, message, a, null, null, null);
+    }
+
+    public static void error(String message, Throwable error) {
+        if (Level.ERROR.ordinal() >= threshold)
+            publish(Level.ERROR, message, null, null, null, error);
+    }
+
+    public static void error(String message, Object a, Throwable error) {
+        if (Level.ERROR.ordinal() >= threshold)
+            publish(Level.ERROR, message, a, null, null, error);
+    }
+
+    public static void error(String message, Object a, Object b, Throwable error) {
+        if (Level.ERROR.ordinal() >= threshold)
+            publish(Level.ERROR, message, a, b, null, error);
+    }
+
+    /** Structured access entry; route is the matched pattern (null if none). */
+    public static void access(String method, String path, String route, int status, long nanos, long bytes) {
+        if (!accessLog || Level.INFO.ordinal() < threshold)
+            return;
+        Event e = claim();
+        if (e == null)
+            return;
+        e.kind = ACCESS;
+        e.level = Level.INFO;
+        e.time = System.currentTimeMillis();
+        e.method = method;
+        e.path = path;
+        e.route = route;
+        e.status = status;
+        e.nanos = nanos;
+        e.bytes = bytes;
+        publish(e);
+    }
+
+    /** Waits (up to timeoutMillis) until everything logged so far is written. */
+    public static void flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (head < target && System.currentTimeMillis() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(1_000_000);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes what is pending and stops the writer thread (RouterServlet.destroy), so a redeployed
+     * application's classloader isn't kept alive by it. A later event starts a new writer.
+     */
+    public static synchronized void shutdown(long timeoutMillis) {
+        Thread w = writer;
+        if (w == null)
+            return;
+        stopping = true;
+        LockSupport.unpark(w);
+        try {
+            w.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        out.flush();
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null)
+            return;
+        stopping = false;
+        Thread w = new Thread(Log::drainLoop, "core-log");
+        w.setDaemon(true);
+        writer = w;
+        w.start();
+    }
+
+    private static void publish(Level level, String message, Object a, Object b, Object c, Throwable error) {
+        Event e = claim();
+        if (e == null)
+            return;
+        e.kind = MESSAGE;
+        e.level = level;
+        e.time = System.currentTimeMillis();
+        e.thread = Thread.currentThread().getName();
+        e.message = message;
+        e.arg0 = a;
+        e.arg1 = b;
+        e.arg2 = c;
+        e.error = error;
+        publish(e);
+    }
+
+    // Reserves the next slot, or null (counted) when the writer is a full ring behind
+    private static Event claim() {
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head >= CAPACITY) {
+                dropped.increment();
+                return null;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+        Event e = ring[(int) seq & MASK];
+        e.sequence = -1 - seq; // claimed, not yet published
+        return e;
+    }
+
+    private static void publish(Event e) {
+        e.sequence = -1 - e.sequence; // volatile write: the writer sees every field set above
+        Thread w = writer;
+        if (w == null)
+            startWriter();
+        else if (writerSleeping)
+            LockSupport.unpark(w);
+    }
+
+    // ===================== WRITER THREAD =====================
+
+    private static final StringBuilder line = new StringBuilder(256);
+    private static final Map<String, long[]> seenErrors = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_TRACKED_ERRORS;
+        }
+    };
+    private static long reportedDrops;
+
+    private static void drainLoop() {
+        while (true) {
+            long seq = head;
+            Event e = ring[(int) seq & MASK];
+            if (e.sequence != seq) {
+                reportDrops();
+                out.flush();
+                if (stopping || writer != Thread.currentThread())
+                    return; // everything published before shutdown() is written
+                writerSleeping = true;
+                if (ring[(int) head & MASK].sequence != head) // re-check after announcing
+                    LockSupport.parkNanos(10_000_000);
+                writerSleeping = false;
+                continue;
+            }
+            try {
+                write(e);
+            } catch (RuntimeException ex) {
+                // a toString() failed: never let it kill the writer
+            }
+            e.clear();
+            head = seq + 1;
+        }
+    }
+
+    private static void write(Event e) {
+        StringBuilder sb = line;
+        sb.setLength(0);
+        sb.append(Instant.ofEpochMilli(e.time)).append(' ').append(e.level.name());
+        if (e.kind == ACCESS) {
+            sb.append(" access method=").append(e.method)
+                    .append(" path=").append(e.path)
+                    .append(" route=").append((e.route != null) ? e.route : "-")
+                    .append(" status=").append(e.status)
+                    .append(" latency_ms=").append(e.nanos / 1_000_000).append('.')
+                    .append((char) ('0' + (e.nanos / 100_000) % 10))
+                    .append((char) ('0' + (e.nanos / 10_000) % 10))
+                    .append((char) ('0' + (e.nanos / 1_000) % 10))
+                    .append(" bytes=").append(e.bytes);
+            out.println(sb);
+            return;
+        }
+
+        sb.append(" [").append(e.thread).append("] ");
+        format(sb, e.message, e.arg0, e.arg1, e.arg2);
+        if (e.error == null) {
+            out.println(sb);
+            return;
+        }
+
+        // De-duplicated stack traces: same root cause type + throwing frame => one trace per window.
+        // The line itself is always written.
+        Throwable root = rootCause(e.error);
+        sb.append(": ").append(root);
+        StackTraceElement[] frames = root.getStackTrace();
+        String key = root.getClass().getName() + "@" + ((frames.length > 0) ? frames[0] : "?");
+        long[] seen = seenErrors.get(key); // {last printed, suppressed since}
+        if (seen != null && e.time - seen[0] < errorThrottleMillis) {
+            seen[1]++;
+            out.println(sb.append(" (stack trace suppressed)"));
+            return;
+        }
+        if (seen != null && seen[1] > 0)
+            sb.append(" (").append(seen[1]).append(" similar traces suppressed)");
+        out.println(sb);
+        e.error.printStackTrace(out);
+        seenErrors.put(key, new long[] { e.time, 0 });
+    }
+
+    // InvocationTargetException, CompletionException, ServletException...: the failure that started it
+    private static Throwable rootCause(Throwable t) {
+        for (int depth = 0; t.getCause() != null && t.getCause() != t && depth < 32; depth++)
+            t = t.getCause();
+        return t;
+    }
+
+    private static void reportDrops() {
+        long total = dropped.sum();
+        if (total > reportedDrops) {
+            out.println(Instant.now() + " WARN [core-log] " + (total - reportedDrops)
+                    + " log events dropped (buffer full)");
+            reportedDrops = total;
+        }
+    }
+
+    private static void format(StringBuilder sb, String message, Object a, Object b, Object c) {
+        Object[] args = { a, b, c };
+        int arg = 0;
+        int from = 0;
+        int at;
+        while (arg < 3 && (at = message.indexOf("{}", from)) >= 0) {
+            sb.append(message, from, at).append(args[arg++]);
+            from = at + 2;
+        }
+        sb.append(message, from, message.length());
+    }
+}
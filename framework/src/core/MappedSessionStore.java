@@ -0,0 +1,408 @@
+package core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link SessionStore} in a memory-mapped file: attributes live off-heap, and every JVM of the
+ * host mapping the same file sees the same sessions.
+ *
+ * The file is a header followed by fixed-size slots, one session per slot, split into stripes.
+ * A session id hashes to a stripe and is probed only inside it, so one stripe lock guards
+ * everything an operation touches: a ReentrantLock between threads, plus a FileLock on the
+ * stripe's byte of the header between processes. Sessions expire after timeoutMillis without
+ * access; a background sweeper frees them and compacts stripes holding deleted slots.
+ *
+ * <pre>
+ *   header : magic, version, slotSize, slotCount, stripes | lock bytes
+ *   slot   : state(int) expiresAt(long) idLen(short) id[MAX_ID] dataLen(int) data...
+ * </pre>
+ */
+public class MappedSessionStore implements SessionStore {
+
+    static final int MAGIC = 0x43535331; // "CSS1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4096;
+    static final int LOCK_OFFSET = 64; // stripe i locks byte LOCK_OFFSET + i
+    static final int MAX_STRIPES = HEADER_BYTES - LOCK_OFFSET;
+    static final int MAX_ID = 64;
+
+    private static final int EMPTY = 0;
+    private static final int USED = 1;
+    private static final int DELETED = 2;
+
+    private static final int STATE = 0;
+    private static final int EXPIRES = 4;
+    private static final int ID_LEN = 12;
+    private static final int ID = 14;
+    private static final int DATA_LEN = ID + MAX_ID;
+    private static final int DATA = DATA_LEN + 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int slotSize;
+    private final int stripes;
+    private final int slotsPerStripe;
+    private final long timeoutMillis;
+    private final ReentrantLock[] locks;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Opens (or creates) the store file. A file created by other JVMs must have been created with
+     * the same size, slot size and stripe count.
+     */
+    public MappedSessionStore(Path file, long sizeBytes, int slotSize, int stripes, long timeoutMillis,
+            long sweepIntervalMillis) throws IOException {
+        if (slotSize <= DATA)
+            throw new IllegalArgumentException("slotSize must be larger than " + DATA);
+        if (stripes < 1 || stripes > MAX_STRIPES)
+            throw new IllegalArgumentException("stripes must be between 1 and " + MAX_STRIPES);
+        int slotCount = (int) Math.min((sizeBytes - HEADER_BYTES) / slotSize, (Integer.MAX_VALUE - HEADER_BYTES) / slotSize);
+        this.slotsPerStripe = slotCount / stripes;
+        if (slotsPerStripe < 1)
+            throw new IllegalArgumentException("Store too small for " + stripes + " stripes of " + slotSize + "-byte slots");
+        this.slotSize = slotSize;
+        this.stripes = stripes;
+        this.timeoutMillis = timeoutMillis;
+
+        this.channel = open(file);
+        long length = HEADER_BYTES + (long) slotsPerStripe * stripes * slotSize;
+        try {
+            FileLock init = fileLock(0, LOCK_OFFSET); // first JVM formats, the others check
+            try {
+                this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, length); // grows a new file
+                if (map.getInt(0) == 0) {
+                    map.putInt(4, VERSION);
+                    map.putInt(8, slotSize);
+                    map.putInt(12, slotsPerStripe * stripes);
+                    map.putInt(16, stripes);
+                    map.putInt(0, MAGIC);
+                } else if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || map.getInt(8) != slotSize
+                        || map.getInt(12) != slotsPerStripe * stripes || map.getInt(16) != stripes) {
+                    throw new IllegalStateException("Session store " + file + " has another layout (slotSize "
+                            + map.getInt(8) + ", slots " + map.getInt(12) + ", stripes " + map.getInt(16) + ")");
+                }
+            } finally {
+                init.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++)
+            locks[i] = new ReentrantLock();
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // ===================== SessionStore =====================
+
+    @Override
+    public Object get(String id, String key) {
+        byte[] data = read(idBytes(id));
+        return (data != null) ? SessionCodec.find(data, data.length, key) : null;
+    }
+
+    @Override
+    public void set(String id, String key, Object value) {
+        update(id, key, value, value != null);
+    }
+
+    @Override
+    public void remove(String id, String key) {
+        update(id, key, null, false);
+    }
+
+    @Override
+    public Map<String, Object> getAll(String id) {
+        byte[] data = read(idBytes(id));
+        return (data != null) ? SessionCodec.decodeAll(data, data.length) : Collections.emptyMap();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        byte[] idBytes = idBytes(id);
+        int stripe = stripe(idBytes);
+        FileLock fileLock = lock(stripe);
+        try {
+            return find(stripe, idBytes, System.currentTimeMillis()) >= 0;
+        } finally {
+            unlock(stripe, fileLock);
+        }
+    }
+
+    @Override
+    public void invalidate(String id) {
+        byte[] idBytes = idBytes(id);
+        int stripe = stripe(idBytes);
+        FileLock fileLock = lock(stripe);
+        try {
+            int slot = find(stripe, idBytes, System.currentTimeMillis());
+            if (slot >= 0)
+                map.putInt(slot + STATE, DELETED);
+        } finally {
+            unlock(stripe, fileLock);
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        try {
+            map.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ===================== SLOTS =====================
+
+    // Copy of the session's record (decoded by the caller, outside the lock), null if none
+    private byte[] read(byte[] id) {
+        int stripe = stripe(id);
+        FileLock fileLock = lock(stripe);
+        try {
+            int slot = find(stripe, id, System.currentTimeMillis());
+            if (slot < 0)
+                return null;
+            byte[] data = new byte[map.getInt(slot + DATA_LEN)];
+            map.get(slot + DATA, data);
+            return data;
+        } finally {
+            unlock(stripe, fileLock);
+        }
+    }
+
+    private void update(String id, String key, Object value, boolean create) {
+        byte[] idBytes = idBytes(id);
+        int stripe = stripe(idBytes);
+        FileLock fileLock = lock(stripe);
+        try {
+            long now = System.currentTimeMillis();
+            int slot = find(stripe, idBytes, now);
+            int len = 0;
+            byte[] data = new byte[0];
+            if (slot >= 0) {
+                len = map.getInt(slot + DATA_LEN);
+                data = new byte[len];
+                map.get(slot + DATA, data);
+            } else if (!create) {
+                return;
+            }
+
+            byte[] updated = SessionCodec.put(data, len, key, value);
+            if (DATA + updated.length > slotSize)
+                throw new IllegalStateException("Session " + id + " needs " + (DATA + updated.length)
+                        + " bytes, more than sessionSlotBytes (" + slotSize + ")");
+
+            if (slot < 0) {
+                slot = allocate(stripe, idBytes, now);
+                map.putShort(slot + ID_LEN, (short) idBytes.length);
+                map.put(slot + ID, idBytes);
+                map.putLong(slot + EXPIRES, now + timeoutMillis);
+            }
+            map.put(slot + DATA, updated);
+            map.putInt(slot + DATA_LEN, updated.length);
+            map.putInt(slot + STATE, USED);
+        } finally {
+            unlock(stripe, fileLock);
+        }
+    }
+
+    // Offset of the live slot of id (its expiry pushed back), or -1
+    private int find(int stripe, byte[] id, long now) {
+        int first = Math.floorMod(hash(id), slotsPerStripe);
+        for (int i = 0; i < slotsPerStripe; i++) {
+            int slot = slotOffset(stripe, (first + i) % slotsPerStripe);
+            int state = map.getInt(slot + STATE);
+            if (state == EMPTY)
+                return -1;
+            if (state == USED && idEquals(slot, id)) {
+                if (map.getLong(slot + EXPIRES) <= now) {
+                    map.putInt(slot + STATE, DELETED);
+                    return -1;
+                }
+                map.putLong(slot + EXPIRES, now + timeoutMillis);
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // First free (deleted, expired or empty) slot on id's probe sequence; the stripe is full otherwise,
+    // and the session closest to expiry is evicted
+    private int allocate(int stripe, byte[] id, long now) {
+        int first = Math.floorMod(hash(id), slotsPerStripe);
+        int oldest = -1;
+        long oldestExpiry = Long.MAX_VALUE;
+        for (int i = 0; i < slotsPerStripe; i++) {
+            int slot = slotOffset(stripe, (first + i) % slotsPerStripe);
+            int state = map.getInt(slot + STATE);
+            if (state != USED)
+                return slot;
+            long expires = map.getLong(slot + EXPIRES);
+            if (expires <= now)
+                return slot;
+            if (expires < oldestExpiry) {
+                oldestExpiry = expires;
+                oldest = slot;
+            }
+        }
+        Log.warn("Session store stripe {} is full: evicting a live session", stripe);
+        return oldest;
+    }
+
+    // Frees expired sessions, then rebuilds stripes with deleted slots so probe chains stay short
+    void sweep() {
+        try {
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                FileLock fileLock = lock(stripe);
+                try {
+                    sweepStripe(stripe, System.currentTimeMillis());
+                } finally {
+                    unlock(stripe, fileLock);
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.error("Session sweep failed", e);
+        }
+    }
+
+    private void sweepStripe(int stripe, long now) {
+        int deleted = 0;
+        for (int i = 0; i < slotsPerStripe; i++) {
+            int slot = slotOffset(stripe, i);
+            int state = map.getInt(slot + STATE);
+            if (state == USED && map.getLong(slot + EXPIRES) <= now) {
+                map.putInt(slot + STATE, DELETED);
+                state = DELETED;
+            }
+            if (state == DELETED)
+                deleted++;
+        }
+        if (deleted == 0)
+            return;
+
+        // re-insert the live slots into an emptied stripe
+        byte[][] live = new byte[slotsPerStripe][];
+        int n = 0;
+        for (int i = 0; i < slotsPerStripe; i++) {
+            int slot = slotOffset(stripe, i);
+            if (map.getInt(slot + STATE) == USED) {
+                byte[] copy = new byte[DATA + map.getInt(slot + DATA_LEN)];
+                map.get(slot, copy);
+                live[n++] = copy;
+            }
+            map.putInt(slot + STATE, EMPTY);
+        }
+        for (int j = 0; j < n; j++) {
+            byte[] copy = live[j];
+            int idLen = ((copy[ID_LEN] & 0xFF) << 8) | (copy[ID_LEN + 1] & 0xFF);
+            byte[] id = Arrays.copyOfRange(copy, ID, ID + idLen);
+            int slot = allocate(stripe, id, now);
+            map.put(slot + 4, copy, 4, copy.length - 4); // everything but the state
+            map.putInt(slot + STATE, USED);
+        }
+    }
+
+    private int slotOffset(int stripe, int index) {
+        return HEADER_BYTES + (stripe * slotsPerStripe + index) * slotSize;
+    }
+
+    private boolean idEquals(int slot, byte[] id) {
+        if (map.getShort(slot + ID_LEN) != id.length)
+            return false;
+        for (int i = 0; i < id.length; i++) {
+            if (map.get(slot + ID + i) != id[i])
+                return false;
+        }
+        return true;
+    }
+
+    // ===================== LOCKING =====================
+
+    private int stripe(byte[] id) {
+        int h = hash(id);
+        return Math.floorMod(h ^ (h >>> 16), stripes);
+    }
+
+    private static int hash(byte[] id) {
+        return Arrays.hashCode(id) * 0x9E3779B9;
+    }
+
+    // Thread lock first, then the process-wide lock on the stripe's byte. A FileLock belongs to the
+    // whole JVM: another store instance on the same file (a second web application) holding it makes
+    // lock() throw instead of wait, so that case retries
+    private FileLock lock(int stripe) {
+        locks[stripe].lock();
+        try {
+            return fileLock(LOCK_OFFSET + stripe, 1);
+        } catch (IOException | RuntimeException e) {
+            locks[stripe].unlock();
+            throw (e instanceof IOException io) ? new UncheckedIOException(io) : (RuntimeException) e;
+        }
+    }
+
+    // A new file is owner-only (0600): whoever can write it can forge sessions
+    private static FileChannel open(Path file) throws IOException {
+        Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            return FileChannel.open(file, options);
+        return FileChannel.open(file, options,
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    }
+
+    private FileLock fileLock(long position, long size) throws IOException {
+        while (true) {
+            try {
+                return channel.lock(position, size, false);
+            } catch (OverlappingFileLockException e) {
+                LockSupport.parkNanos(50_000);
+            }
+        }
+    }
+
+    private void unlock(int stripe, FileLock fileLock) {
+        try {
+            fileLock.release();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    private static byte[] idBytes(String id) {
+        byte[] b = id.getBytes(StandardCharsets.US_ASCII);
+        if (b.length == 0 || b.length > MAX_ID)
+            throw new IllegalArgumentException("Session id must be 1 to " + MAX_ID + " characters");
+        return b;
+    }
+}
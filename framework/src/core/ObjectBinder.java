@@ -0,0 +1,502 @@
+package core;
+
+import core.rest.JsonParseException;
+import core.rest.JsonReader;
+import core.rest.ValueReader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Binds request parameters into a value object (Sprint 8-bis / 10 / 11).
+ * Setters, getters, constructors and converters are compiled once per class and cached;
+ * binding then walks the submitted parameters only.
+ *
+ * Supported keys: "name", nested "address.city", indexed "items[3].qty" / "tags[0]"
+ * (List or array fields, indexes up to {@link #MAX_INDEX}).
+ * JSON bodies are bound through the same plans by {@link #bindJson}.
+ */
+public class ObjectBinder {
+
+    public static final int MAX_INDEX = 1024;
+
+    private enum Kind { SCALAR, LIST, ARRAY, FILE, SESSION, BEAN, UNSUPPORTED }
+
+    private static class Property {
+        final String name;
+        final Kind kind;
+        final Class<?> type;
+        final Class<?> elementType; // LIST / ARRAY
+        final Function<String, Object> converter; // SCALAR, or element converter for LIST / ARRAY
+        final MethodHandle getter; // (Object) -> Object
+        final MethodHandle setter; // (Object, Object) -> void
+
+        Property(Field f, MethodHandle getter, MethodHandle setter) {
+            this.name = f.getName();
+            this.type = f.getType();
+            this.getter = getter;
+            this.setter = setter;
+
+            if (type == core.Session.class) {
+                kind = Kind.SESSION;
+                elementType = null;
+            } else if (type == core.FileUpload.class) {
+                kind = Kind.FILE;
+                elementType = null;
+            } else if (List.class.isAssignableFrom(type)) {
+                kind = Kind.LIST;
+                elementType = listElementType(f.getGenericType());
+            } else if (type.isArray()) {
+                kind = Kind.ARRAY;
+                elementType = type.getComponentType();
+            } else if (converterFor(type) != null) {
+                kind = Kind.SCALAR;
+                elementType = null;
+            } else if (isBean(type)) {
+                kind = Kind.BEAN;
+                elementType = null;
+            } else {
+                kind = Kind.UNSUPPORTED;
+                elementType = null;
+            }
+            this.converter = converterFor(elementType != null ? elementType : type);
+        }
+
+        Object get(Object target) throws Exception {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        void set(Object target, Object value) throws Exception {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static class Plan {
+        final MethodHandle constructor; // () -> Object, null if no usable no-arg constructor
+        final Map<String, Property> properties = new HashMap<>();
+        final List<Property> sessionFields = new ArrayList<>();
+
+        Plan(Class<?> type) {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle ctor = null;
+            try {
+                var c = type.getDeclaredConstructor();
+                c.setAccessible(true);
+                ctor = lookup.unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                // no usable no-arg constructor: instantiate() reports it
+            }
+            this.constructor = ctor;
+
+            for (Field f : type.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || f.isSynthetic())
+                    continue;
+                try {
+                    f.setAccessible(true);
+                    MethodHandle getter = lookup.unreflectGetter(f)
+                            .asType(MethodType.methodType(Object.class, Object.class));
+                    MethodHandle setter = lookup.unreflectSetter(f)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                    Property p = new Property(f, getter, setter);
+                    properties.put(p.name, p);
+                    if (p.kind == Kind.SESSION)
+                        sessionFields.add(p);
+                } catch (IllegalAccessException | RuntimeException ignored) {
+                    // inaccessible field: never bound
+                }
+            }
+        }
+
+        Object instantiate(Class<?> type) throws Exception {
+            if (constructor == null)
+                throw new IllegalStateException("No no-arg constructor for " + type.getName());
+            try {
+                return (Object) constructor.invokeExact();
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    private static final ClassValue<Plan> PLANS = new ClassValue<>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return new Plan(type);
+        }
+    };
+
+    /**
+     * Whether binding this type can consume uploaded files: a FileUpload field,
+     * List/array of FileUpload, or such a field in a nested object. Evaluated at route registration
+     * so routes that can't take files never trigger multipart parsing.
+     */
+    public static boolean mayBindFiles(Class<?> type) {
+        return mayBindFiles(type, new HashSet<>());
+    }
+
+    private static boolean mayBindFiles(Class<?> type, Set<Class<?>> visiting) {
+        if (!visiting.add(type))
+            return false;
+        for (Field f : type.getDeclaredFields()) {
+            if (Modifier.isStatic(f.getModifiers()) || f.isSynthetic())
+                continue;
+            Class<?> t = f.getType();
+            if (List.class.isAssignableFrom(t))
+                t = listElementType(f.getGenericType());
+            else if (t.isArray())
+                t = t.getComponentType();
+
+            if (t == core.FileUpload.class)
+                return true;
+            if (isBean(t) && mayBindFiles(t, visiting))
+                return true;
+        }
+        return false;
+    }
+
+    public static Object bind(Class<?> type, HttpServletRequest req, Map<String, Part> fileParts) throws Exception {
+        // Special case: don't instantiate Session reflectively
+        if (type == core.Session.class) {
+            return core.Session.of(req);
+        }
+
+        Plan plan = PLANS.get(type);
+        Object obj = plan.instantiate(type);
+
+        // ===== SPRINT 11: Session Injection =====
+        for (Property p : plan.sessionFields) {
+            p.set(obj, core.Session.of(req));
+        }
+
+        // ---- request parameters (flat, nested, indexed) ----
+        for (Map.Entry<String, String[]> e : req.getParameterMap().entrySet()) {
+            String[] values = e.getValue();
+            if (values == null || values.length == 0)
+                continue;
+            bindPath(obj, plan, e.getKey(), 0, values, null);
+        }
+
+        // ---- SPRINT 10: FileUpload fields, addressed by input name ----
+        if (fileParts != null) {
+            for (Map.Entry<String, Part> e : fileParts.entrySet()) {
+                bindPath(obj, plan, e.getKey(), 0, null, e.getValue());
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * Binds an object read from a streaming request body ({@link JsonReader}, or a CBOR / MessagePack
+     * {@link ValueReader}) into a new instance.
+     * Unknown members are skipped; values go through the same converters as form fields.
+     * An empty body yields an instance with only its Session fields set.
+     */
+    public static Object bindJson(Class<?> type, HttpServletRequest req, ValueReader json) throws Exception {
+        Plan plan = PLANS.get(type);
+        Object obj = plan.instantiate(type);
+
+        for (Property p : plan.sessionFields) {
+            p.set(obj, core.Session.of(req));
+        }
+
+        if (json.peek() != JsonReader.Token.END_DOCUMENT)
+            readObject(json, obj, plan);
+        json.endDocument();
+        return obj;
+    }
+
+    private static void readObject(ValueReader json, Object target, Plan plan) throws Exception {
+        json.beginObject();
+        while (json.hasNext()) {
+            Property p = plan.properties.get(json.nextName());
+            if (p == null) {
+                json.skipValue();
+                continue;
+            }
+            readProperty(json, target, p);
+        }
+        json.endObject();
+    }
+
+    private static void readProperty(ValueReader json, Object target, Property p) throws Exception {
+        if (json.peek() == JsonReader.Token.NULL) {
+            json.nextNull();
+            if (!p.type.isPrimitive() && (p.kind == Kind.SCALAR || p.kind == Kind.LIST || p.kind == Kind.ARRAY
+                    || p.kind == Kind.BEAN))
+                p.set(target, null);
+            return;
+        }
+
+        switch (p.kind) {
+            case SCALAR -> p.set(target, convert(json, p.converter, p.name));
+            case BEAN -> {
+                Plan childPlan = PLANS.get(p.type);
+                Object child = childPlan.instantiate(p.type);
+                readObject(json, child, childPlan);
+                p.set(target, child);
+            }
+            case LIST, ARRAY -> {
+                List<Object> values = new ArrayList<>();
+                json.beginArray();
+                while (json.hasNext()) {
+                    values.add(readElement(json, p));
+                }
+                json.endArray();
+
+                if (p.kind == Kind.LIST) {
+                    p.set(target, values);
+                } else {
+                    Object array = Array.newInstance(p.elementType, values.size());
+                    for (int i = 0; i < values.size(); i++) {
+                        Object v = values.get(i);
+                        if (v != null || !p.elementType.isPrimitive())
+                            Array.set(array, i, v);
+                    }
+                    p.set(target, array);
+                }
+            }
+            default -> json.skipValue(); // Session, FileUpload: never from the body
+        }
+    }
+
+    private static Object readElement(ValueReader json, Property p) throws Exception {
+        if (json.peek() == JsonReader.Token.NULL) {
+            json.nextNull();
+            return null;
+        }
+        if (p.converter != null)
+            return convert(json, p.converter, p.name);
+        if (isBean(p.elementType) && p.elementType != core.FileUpload.class) {
+            Plan childPlan = PLANS.get(p.elementType);
+            Object child = childPlan.instantiate(p.elementType);
+            readObject(json, child, childPlan);
+            return child;
+        }
+        json.skipValue();
+        return null;
+    }
+
+    // Conversion failures are client errors, like malformed JSON
+    private static Object convert(ValueReader json, Function<String, Object> converter, String field)
+            throws IOException {
+        String raw = json.nextString();
+        try {
+            return converter.apply(raw);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Invalid value for '" + field + "': " + raw);
+        }
+    }
+
+    // key[from..] is "name", "name.rest", "name[i]" or "name[i].rest"
+    private static void bindPath(Object target, Plan plan, String key, int from, String[] values, Part part)
+            throws Exception {
+        int end = from;
+        while (end < key.length() && key.charAt(end) != '.' && key.charAt(end) != '[')
+            end++;
+
+        Property p = plan.properties.get(key.substring(from, end));
+        if (p == null)
+            return;
+
+        if (end == key.length()) {
+            setLeaf(target, p, values, part);
+            return;
+        }
+
+        if (key.charAt(end) == '.') {
+            if (p.kind != Kind.BEAN)
+                return;
+            Object child = p.get(target);
+            Plan childPlan = PLANS.get(p.type);
+            if (child == null) {
+                child = childPlan.instantiate(p.type);
+                p.set(target, child);
+            }
+            bindPath(child, childPlan, key, end + 1, values, part);
+            return;
+        }
+
+        // '[' index ']'
+        int close = key.indexOf(']', end);
+        if (close < 0 || (p.kind != Kind.LIST && p.kind != Kind.ARRAY) || p.elementType == null)
+            return;
+        int index = parseIndex(key, end + 1, close);
+        if (index < 0)
+            return;
+
+        boolean last = close + 1 == key.length();
+        if (!last && key.charAt(close + 1) != '.')
+            return; // multi-dimensional indexes are not supported
+
+        Object element = null;
+        if (last) {
+            if (part != null) {
+                if (p.elementType != core.FileUpload.class)
+                    return;
+                element = core.FileUpload.fromPart(part);
+            } else {
+                if (p.converter == null)
+                    return;
+                element = p.converter.apply(values[0]);
+            }
+        } else if (!isBean(p.elementType)) {
+            return;
+        }
+
+        if (p.kind == Kind.LIST) {
+            @SuppressWarnings("unchecked")
+            List<Object> list = (List<Object>) p.get(target);
+            if (list == null) {
+                list = new ArrayList<>();
+                p.set(target, list);
+            }
+            while (list.size() <= index)
+                list.add(null);
+            if (last) {
+                list.set(index, element);
+            } else {
+                Object child = list.get(index);
+                Plan childPlan = PLANS.get(p.elementType);
+                if (child == null) {
+                    child = childPlan.instantiate(p.elementType);
+                    list.set(index, child);
+                }
+                bindPath(child, childPlan, key, close + 2, values, part);
+            }
+        } else {
+            Object array = p.get(target);
+            int length = (array == null) ? 0 : Array.getLength(array);
+            if (length <= index) {
+                Object grown = Array.newInstance(p.elementType, index + 1);
+                if (array != null)
+                    System.arraycopy(array, 0, grown, 0, length);
+                array = grown;
+                p.set(target, array);
+            }
+            if (last) {
+                if (element != null || !p.elementType.isPrimitive())
+                    Array.set(array, index, element);
+            } else {
+                Object child = Array.get(array, index);
+                Plan childPlan = PLANS.get(p.elementType);
+                if (child == null) {
+                    child = childPlan.instantiate(p.elementType);
+                    Array.set(array, index, child);
+                }
+                bindPath(child, childPlan, key, close + 2, values, part);
+            }
+        }
+    }
+
+    private static void setLeaf(Object target, Property p, String[] values, Part part) throws Exception {
+        if (part != null) {
+            // ---- SPRINT 10: FileUpload field in VO/POJO ----
+            if (p.kind == Kind.FILE)
+                p.set(target, core.FileUpload.fromPart(part));
+            return;
+        }
+
+        switch (p.kind) {
+            case SCALAR -> p.set(target, p.converter.apply(values[0]));
+            case LIST -> {
+                // ---- MULTI VALUE ----
+                if (p.converter == null || p.elementType == String.class || p.elementType == null) {
+                    p.set(target, Arrays.asList(values));
+                } else {
+                    List<Object> list = new ArrayList<>(values.length);
+                    for (String v : values)
+                        list.add(p.converter.apply(v));
+                    p.set(target, list);
+                }
+            }
+            case ARRAY -> {
+                if (p.elementType == String.class) {
+                    p.set(target, values);
+                } else if (p.converter != null) {
+                    Object array = Array.newInstance(p.elementType, values.length);
+                    for (int i = 0; i < values.length; i++)
+                        Array.set(array, i, p.converter.apply(values[i]));
+                    p.set(target, array);
+                }
+            }
+            default -> {
+                // Session, FileUpload and nested objects aren't bound from a plain value
+            }
+        }
+    }
+
+    private static int parseIndex(String key, int from, int to) {
+        if (from == to || to - from > 4)
+            return -1;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n <= MAX_INDEX ? n : -1;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Function<String, Object> converterFor(Class<?> type) {
+        if (type == null)
+            return null;
+        if (type == String.class || type == Object.class || type == CharSequence.class)
+            return raw -> raw;
+        if (type == int.class || type == Integer.class)
+            return Integer::parseInt;
+        if (type == long.class || type == Long.class)
+            return Long::parseLong;
+        if (type == double.class || type == Double.class)
+            return Double::parseDouble;
+        if (type == float.class || type == Float.class)
+            return Float::parseFloat;
+        if (type == boolean.class || type == Boolean.class)
+            return raw -> raw.equalsIgnoreCase("true") || raw.equalsIgnoreCase("on") || raw.equals("1");
+        if (type.isEnum())
+            return raw -> Enum.valueOf((Class) type, raw);
+        return null;
+    }
+
+    private static boolean isBean(Class<?> type) {
+        return type != null && !type.isPrimitive() && !type.isArray() && !type.isInterface()
+                && !type.isEnum() && !Modifier.isAbstract(type.getModifiers())
+                && !type.getName().startsWith("java.") && !type.getName().startsWith("jakarta.");
+    }
+
+    private static Class<?> listElementType(Type generic) {
+        if (generic instanceof ParameterizedType pt && pt.getActualTypeArguments().length == 1
+                && pt.getActualTypeArguments()[0] instanceof Class<?> c) {
+            return c;
+        }
+        return null;
+    }
+
+    private static Exception rethrow(Throwable t) {
+        if (t instanceof Exception e)
+            return e;
+        if (t instanceof Error err)
+            throw err;
+        return new RuntimeException(t);
+    }
+}
@@ -0,0 +1,153 @@
+package core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * In-memory cache of rendered responses for @Cached routes.
+ * Bodies are stored as ready-to-write bytes (plus a gzip variant when compressible) with a precomputed ETag;
+ * eviction is LRU, bounded by total body bytes.
+ */
+public class ResponseCache {
+
+    /** Per-route settings, from @Cached. */
+    public static class Policy {
+        public final long ttlMillis;
+        public final String[] params;
+        public final boolean perRole;
+
+        public Policy(long ttlMillis, String[] params, boolean perRole) {
+            this.ttlMillis = ttlMillis;
+            this.params = params;
+            this.perRole = perRole;
+        }
+    }
+
+    public static class Entry {
+        public final byte[] body;
+        public final String contentType;
+        public final String etag;
+        public final byte[] gzip; // pre-compressed variant, null if not worth compressing
+        public final String gzipEtag;
+        final long expiresAt;
+
+        public Entry(byte[] body, String contentType, long ttlMillis) {
+            this(body, null, contentType, ttlMillis);
+        }
+
+        public Entry(byte[] body, byte[] gzip, String contentType, long ttlMillis) {
+            this.body = body;
+            this.gzip = gzip;
+            this.contentType = contentType;
+            this.etag = etagOf(body);
+            // a different representation needs a different strong validator
+            this.gzipEtag = (gzip != null) ? etag.substring(0, etag.length() - 1) + "-gzip\"" : null;
+            this.expiresAt = System.currentTimeMillis() + ttlMillis;
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        long size() {
+            return body.length + ((gzip != null) ? gzip.length : 0);
+        }
+    }
+
+    private final long maxBytes;
+    private long bytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public Entry get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && e.isFresh(now)) {
+                hits.increment();
+                return e;
+            }
+            if (e != null) {
+                entries.remove(key);
+                bytes -= e.size();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, Entry entry) {
+        if (entry.size() > maxBytes)
+            return;
+        synchronized (this) {
+            Entry old = entries.put(key, entry);
+            if (old != null)
+                bytes -= old.size();
+            bytes += entry.size();
+
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Entry eldest = it.next().getValue();
+                it.remove();
+                bytes -= eldest.size();
+                evictions.increment();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long sizeInBytes() {
+        return bytes;
+    }
+
+    /** Strong validator: length + CRC32C of the body. */
+    static String etagOf(byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body, 0, body.length);
+        return "\"" + Integer.toHexString(body.length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    /** If-None-Match contains this tag (or "*"). */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/"))
+                c = c.substring(2);
+            if (c.equals("*") || c.equals(etag))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,305 @@
+package core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip / deflate response compression.
+ * Negotiated from Accept-Encoding, only for compressible content types and bodies of at least
+ * minSize bytes. Deflaters are pooled and reset between uses instead of being created
+ * (and their native memory allocated) per response.
+ */
+public class ResponseCompressor {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final boolean enabled;
+    private final int minSize;
+    private final int level;
+    private final BlockingQueue<Deflater> gzipPool; // raw deflate (nowrap), framed by us
+    private final BlockingQueue<Deflater> deflatePool; // zlib format
+
+    public ResponseCompressor(boolean enabled, int minSize, int poolSize) {
+        this.enabled = enabled;
+        this.minSize = minSize;
+        this.level = Deflater.DEFAULT_COMPRESSION;
+        this.gzipPool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.deflatePool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /** Encoding to use for this request/content type, or null to send identity. */
+    public String negotiate(HttpServletRequest req, String contentType) {
+        if (!enabled || !isCompressible(contentType))
+            return null;
+        String accept = req.getHeader("Accept-Encoding");
+        if (accept == null)
+            return null;
+
+        // an explicit q=0 refuses a coding even when * accepts everything else
+        boolean gzip = false, deflate = false, any = false;
+        boolean gzipRefused = false, deflateRefused = false;
+        for (String token : accept.split(",")) {
+            String t = token.trim().toLowerCase(Locale.ROOT);
+            int semi = t.indexOf(';');
+            String coding = (semi >= 0) ? t.substring(0, semi).trim() : t;
+            boolean refused = semi >= 0 && t.substring(semi).replace(" ", "").matches(";q=0(\\.0*)?");
+            switch (coding) {
+                case GZIP -> {
+                    gzip = !refused;
+                    gzipRefused = refused;
+                }
+                case DEFLATE -> {
+                    deflate = !refused;
+                    deflateRefused = refused;
+                }
+                case "*" -> any = !refused;
+                default -> {
+                }
+            }
+        }
+        if (gzip || (any && !gzipRefused))
+            return GZIP;
+        if (deflate || (any && !deflateRefused))
+            return DEFLATE;
+        return null;
+    }
+
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null)
+            return false;
+        String ct = contentType.toLowerCase(Locale.ROOT);
+        return ct.startsWith("text/") || ct.startsWith("application/json") || ct.startsWith("application/x-ndjson")
+                || ct.startsWith("application/javascript") || ct.startsWith("application/xml")
+                || ct.contains("+json") || ct.contains("+xml");
+    }
+
+    /** Whole-body compression (cache variants, String results). */
+    public byte[] compress(byte[] data, String encoding) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (Encoder enc = new Encoder(out, encoding)) {
+            enc.write(data, 0, data.length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown by ByteArrayOutputStream
+        }
+        return out.toByteArray();
+    }
+
+    /** Sets Content-Encoding / Vary for a compressed body. */
+    public static void markEncoded(HttpServletResponse resp, String encoding) {
+        resp.setHeader("Content-Encoding", encoding);
+        resp.addHeader("Vary", "Accept-Encoding");
+    }
+
+    /**
+     * Response stream that buffers up to minSize bytes, then switches to compression
+     * (setting the headers) if the body is larger; smaller bodies are sent as is.
+     * {@link OutputStream#close()} finishes the body but leaves the servlet stream open.
+     */
+    public OutputStream open(HttpServletResponse resp, String encoding) throws IOException {
+        if (encoding == null)
+            return new ThresholdStream(resp, null, 0);
+        resp.addHeader("Vary", "Accept-Encoding");
+        return new ThresholdStream(resp, encoding, minSize);
+    }
+
+    /**
+     * Ends a stream from {@link #open} after a failed write: the Deflater goes back to the pool and
+     * nothing more is written, so the response stays uncommitted if the body was still buffered.
+     */
+    public void abandon(OutputStream out) {
+        if (out instanceof ThresholdStream ts)
+            ts.abandon();
+    }
+
+    /**
+     * Compressing stream over any OutputStream (incremental responses): flush() emits a sync-flush
+     * block the client can decode right away, close() finishes the body and returns the Deflater to the pool.
+     */
+    public OutputStream wrap(OutputStream out, String encoding) throws IOException {
+        return new Encoder(out, encoding);
+    }
+
+    // ---------------------------------------------------------------------
+
+    private Deflater borrow(String encoding) {
+        BlockingQueue<Deflater> pool = GZIP.equals(encoding) ? gzipPool : deflatePool;
+        Deflater d = pool.poll();
+        return (d != null) ? d : new Deflater(level, GZIP.equals(encoding));
+    }
+
+    private void release(String encoding, Deflater d) {
+        d.reset();
+        BlockingQueue<Deflater> pool = GZIP.equals(encoding) ? gzipPool : deflatePool;
+        if (!pool.offer(d))
+            d.end(); // pool full: free native memory now
+    }
+
+    /** Streaming encoder writing gzip or zlib framing around a pooled Deflater. */
+    private class Encoder extends OutputStream {
+        private final OutputStream out;
+        private final String encoding;
+        private final Deflater deflater;
+        private final CRC32 crc;
+        private final byte[] buf = new byte[8192];
+        private boolean closed;
+
+        Encoder(OutputStream out, String encoding) throws IOException {
+            this.out = out;
+            this.encoding = encoding;
+            this.deflater = borrow(encoding);
+            this.crc = GZIP.equals(encoding) ? new CRC32() : null;
+            if (crc != null)
+                out.write(GZIP_HEADER);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return;
+            if (crc != null)
+                crc.update(b, off, len);
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            int n;
+            do {
+                n = drain(Deflater.SYNC_FLUSH);
+            } while (n == buf.length);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                if (crc != null) {
+                    writeIntLE((int) crc.getValue());
+                    writeIntLE((int) deflater.getBytesRead());
+                }
+            } finally {
+                release(encoding, deflater);
+            }
+        }
+
+        void abandon() {
+            if (closed)
+                return;
+            closed = true;
+            release(encoding, deflater);
+        }
+
+        private int drain(int mode) throws IOException {
+            int n = deflater.deflate(buf, 0, buf.length, mode);
+            if (n > 0)
+                out.write(buf, 0, n);
+            return n;
+        }
+
+        private void writeIntLE(int v) throws IOException {
+            out.write(v & 0xff);
+            out.write((v >> 8) & 0xff);
+            out.write((v >> 16) & 0xff);
+            out.write((v >> 24) & 0xff);
+        }
+    }
+
+    private class ThresholdStream extends OutputStream {
+        private final HttpServletResponse resp;
+        private final String encoding;
+        private byte[] pending;
+        private int count;
+        private OutputStream target; // decided: raw servlet stream or Encoder over it
+
+        ThresholdStream(HttpServletResponse resp, String encoding, int threshold) throws IOException {
+            this.resp = resp;
+            this.encoding = encoding;
+            if (encoding == null) {
+                target = resp.getOutputStream();
+            } else {
+                pending = new byte[Math.max(1, threshold)];
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target == null) {
+                if (count + len <= pending.length) {
+                    System.arraycopy(b, off, pending, count, len);
+                    count += len;
+                    return;
+                }
+                // large enough: compress (Vary was set by open())
+                resp.setHeader("Content-Encoding", encoding);
+                target = new Encoder(resp.getOutputStream(), encoding);
+                target.write(pending, 0, count);
+                pending = null;
+            }
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // below the threshold nothing is decided yet: keep buffering
+            if (target != null)
+                target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (target == null) {
+                OutputStream out = resp.getOutputStream();
+                out.write(pending, 0, count);
+                target = out;
+                pending = null;
+                out.flush();
+                return;
+            }
+            if (target instanceof Encoder enc)
+                enc.close();
+            resp.getOutputStream().flush();
+        }
+
+        void abandon() {
+            pending = null;
+            if (target instanceof Encoder enc)
+                enc.abandon();
+        }
+    }
+}
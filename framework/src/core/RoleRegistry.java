@@ -0,0 +1,75 @@
+package core;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns role names (case-insensitive) into bit positions so @Authorized checks
+ * are a single AND between the route mask and the user's mask.
+ * Bit 0 is "anonym"; "all" maps to {@link #ALL}.
+ */
+public class RoleRegistry {
+
+    public static final long ANONYMOUS = 1L;
+    public static final long ALL = -1L;
+
+    // Changes on every JVM start: masks cached in sessions from another run are recomputed
+    static final long EPOCH = System.nanoTime() ^ System.identityHashCode(RoleRegistry.class);
+
+    // Bumped whenever intern() allocates a bit: user masks computed before lack that role
+    static volatile int version;
+
+    private static final ConcurrentHashMap<String, Long> bits = new ConcurrentHashMap<>();
+
+    static {
+        bits.put("anonym", ANONYMOUS);
+    }
+
+    /** Bit of a role, allocating one if needed (route registration). */
+    public static synchronized long intern(String role) {
+        String key = role.toLowerCase(Locale.ROOT);
+        Long bit = bits.get(key);
+        if (bit != null)
+            return bit;
+        if (bits.size() >= 64)
+            throw new IllegalStateException("Too many distinct roles (max 64): " + role);
+        long next = 1L << bits.size();
+        bits.put(key, next);
+        version++; // under the lock
+        return next;
+    }
+
+    /** Bit of a known role, 0 if no route uses it. Never allocates. */
+    public static long bitOf(String role) {
+        if (role == null)
+            return 0L;
+        Long bit = bits.get(role.toLowerCase(Locale.ROOT));
+        return (bit != null) ? bit : 0L;
+    }
+
+    /** Mask required by an @Authorized role list; {@link #ALL} when it contains "all". */
+    public static long routeMask(String[] roles) {
+        long mask = 0L;
+        for (String r : roles) {
+            if (r.equalsIgnoreCase("all"))
+                return ALL;
+            mask |= intern(r);
+        }
+        return mask;
+    }
+
+    /** Mask held by a user with these roles; anonymous when there are none. */
+    public static long userMask(String[] roles) {
+        long mask = 0L;
+        boolean any = false;
+        if (roles != null) {
+            for (String r : roles) {
+                if (r == null)
+                    continue;
+                any = true;
+                mask |= bitOf(r);
+            }
+        }
+        return any ? mask : ANONYMOUS;
+    }
+}
@@ -0,0 +1,200 @@
+package core;
+
+import java.util.*;
+
+/**
+ * Segment trie over the registered {@link RoutePattern}s.
+ * Static segments are resolved by hash lookup, "{param}" segments by capture,
+ * so a lookup costs O(path segments) whatever the number of routes.
+ * Patterns mixing text and a variable inside one segment (e.g. "/file-{id}")
+ * can't be indexed by segment and fall back to a linear regex scan.
+ */
+public class RouteIndex {
+
+    /** Result of a lookup: the route chosen for the method, or null with the methods the path allows. */
+    public static class Match {
+        public final RoutePattern route; // null => path exists but method is not allowed
+        public final Map<String, String> params;
+        private final RouteIndex index;
+        private final String path;
+        private Set<String> allowedMethods; // computed on demand once a route was found
+
+        Match(RoutePattern route, Map<String, String> params, RouteIndex index, String path,
+                Set<String> allowedMethods) {
+            this.route = route;
+            this.params = params;
+            this.index = index;
+            this.path = path;
+            this.allowedMethods = allowedMethods;
+        }
+
+        /** Every method of every route matching the path (HEAD included when GET is). */
+        public Set<String> allowedMethods() {
+            if (allowedMethods == null)
+                allowedMethods = index.allowedMethods(path, split(path));
+            return allowedMethods;
+        }
+
+        public String allowHeader() {
+            return String.join(", ", allowedMethods());
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> statics = new HashMap<>();
+        Node param; // child for any "{name}" segment
+
+        // terminal data (only when a route ends here)
+        final Map<String, RoutePattern> routes = new LinkedHashMap<>();
+        int paramCount;
+    }
+
+    private final Node root = new Node();
+    private final List<RoutePattern> fallback = new ArrayList<>();
+    private int maxParams;
+
+    public RouteIndex(List<RoutePattern> routes) {
+        for (RoutePattern rp : routes) {
+            add(rp);
+        }
+    }
+
+    private void add(RoutePattern rp) {
+        String[] segments = split(rp.original);
+        for (String s : segments) {
+            if (s.indexOf('{') >= 0 && !isParamSegment(s)) {
+                fallback.add(rp);
+                return;
+            }
+        }
+
+        Node node = root;
+        int params = 0;
+        for (String s : segments) {
+            Node next;
+            if (isParamSegment(s)) {
+                if (node.param == null)
+                    node.param = new Node();
+                next = node.param;
+                params++;
+            } else {
+                next = node.statics.computeIfAbsent(s, k -> new Node());
+            }
+            node = next;
+        }
+        node.paramCount = params;
+        maxParams = Math.max(maxParams, params);
+        // first registration wins, like the old linear scan
+        node.routes.putIfAbsent(rp.httpMethod.toUpperCase(), rp);
+    }
+
+    /**
+     * Resolve a path and HTTP method in one pass.
+     * Static segments are preferred over "{param}" ones, but a branch without the method is
+     * backtracked: GET /users/me does not hide PUT /users/{id}. Regex routes come last.
+     * Returns null when no route matches the path (404). HEAD falls back to GET.
+     */
+    public Match lookup(String path, String httpMethod) {
+        String[] segments = split(path);
+        String[] captured = new String[maxParams];
+
+        Match match = resolve(path, segments, captured, httpMethod);
+        if (match == null && "HEAD".equals(httpMethod))
+            match = resolve(path, segments, captured, "GET");
+        if (match != null)
+            return match;
+
+        Set<String> allowed = allowedMethods(path, segments);
+        return allowed.isEmpty() ? null : new Match(null, null, this, path, allowed);
+    }
+
+    private Match resolve(String path, String[] segments, String[] captured, String httpMethod) {
+        Node node = find(root, segments, 0, captured, 0, httpMethod);
+        if (node != null) {
+            RoutePattern rp = node.routes.get(httpMethod);
+            Map<String, String> params = new HashMap<>();
+            for (int i = 0; i < node.paramCount; i++) {
+                params.put(rp.paramNames.get(i), captured[i]);
+            }
+            return new Match(rp, params, this, path, null);
+        }
+        for (RoutePattern rp : fallback) {
+            if (rp.httpMethod.equalsIgnoreCase(httpMethod)) {
+                Map<String, String> params = rp.match(path);
+                if (params != null)
+                    return new Match(rp, params, this, path, null);
+            }
+        }
+        return null;
+    }
+
+    // First terminal node (static branches first) that has a route for httpMethod
+    private Node find(Node node, String[] segments, int i, String[] captured, int p, String httpMethod) {
+        if (i == segments.length)
+            return node.routes.containsKey(httpMethod) ? node : null;
+
+        String s = segments[i];
+        Node child = node.statics.get(s);
+        if (child != null) {
+            Node found = find(child, segments, i + 1, captured, p, httpMethod);
+            if (found != null)
+                return found;
+        }
+        // "{param}" only matches a non-empty segment ([^/]+)
+        if (node.param != null && !s.isEmpty()) {
+            captured[p] = s;
+            return find(node.param, segments, i + 1, captured, p + 1, httpMethod);
+        }
+        return null;
+    }
+
+    // Union over every branch matching the path, regex routes included (405 Allow, OPTIONS)
+    private Set<String> allowedMethods(String path, String[] segments) {
+        Set<String> allowed = new LinkedHashSet<>();
+        collect(root, segments, 0, allowed);
+        for (RoutePattern rp : fallback) {
+            if (rp.match(path) != null)
+                allowed.add(rp.httpMethod.toUpperCase());
+        }
+        if (allowed.contains("GET"))
+            allowed.add("HEAD");
+        return Collections.unmodifiableSet(allowed);
+    }
+
+    private void collect(Node node, String[] segments, int i, Set<String> allowed) {
+        if (i == segments.length) {
+            allowed.addAll(node.routes.keySet());
+            return;
+        }
+        String s = segments[i];
+        Node child = node.statics.get(s);
+        if (child != null)
+            collect(child, segments, i + 1, allowed);
+        if (node.param != null && !s.isEmpty())
+            collect(node.param, segments, i + 1, allowed);
+    }
+
+    private static boolean isParamSegment(String s) {
+        return s.length() > 2 && s.charAt(0) == '{' && s.charAt(s.length() - 1) == '}'
+                && s.indexOf('{', 1) < 0;
+    }
+
+    /** "/a/b/" -> ["a", "b", ""]; keeps empty segments so "/a" and "/a/" stay distinct. */
+    static String[] split(String path) {
+        int start = (path.length() > 0 && path.charAt(0) == '/') ? 1 : 0;
+        int count = 1;
+        for (int i = start; i < path.length(); i++) {
+            if (path.charAt(i) == '/')
+                count++;
+        }
+        String[] out = new String[count];
+        int n = 0;
+        for (int i = start; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                out[n++] = path.substring(start, i);
+                start = i + 1;
+            }
+        }
+        return out;
+    }
+}
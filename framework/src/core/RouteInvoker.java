@@ -0,0 +1,91 @@
+package core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+/**
+ * Invocation plan of one route, compiled once at registration:
+ * a MethodHandle bound to the controller + one resolver per parameter.
+ * Dispatch only runs the resolvers and calls the handle (no reflection lookups).
+ */
+public class RouteInvoker {
+
+    @FunctionalInterface
+    public interface ArgResolver {
+        Object resolve(HttpServletRequest req, Map<String, String> pathParams, Map<String, Part> fileParts)
+                throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface FilePartsLoader {
+        Map<String, Part> load(HttpServletRequest req);
+    }
+
+    /** Direct call site generated at build time (see {@link RouteRegistry}). */
+    @FunctionalInterface
+    public interface Target {
+        Object call(Object[] args) throws Exception;
+    }
+
+    private final MethodHandle handle; // (Object[]) -> Object, when no generated target
+    private final Target target;
+    private final ArgResolver[] resolvers;
+    private final boolean usesFileParts;
+
+    public RouteInvoker(Method method, Object controller, ArgResolver[] resolvers, boolean usesFileParts) {
+        this(method, controller, null, resolvers, usesFileParts);
+    }
+
+    public RouteInvoker(Method method, Object controller, Target target, ArgResolver[] resolvers,
+            boolean usesFileParts) {
+        this.handle = (target == null) ? compile(method, controller) : null;
+        this.target = target;
+        this.resolvers = resolvers;
+        this.usesFileParts = usesFileParts;
+    }
+
+    public Object invoke(HttpServletRequest req, Map<String, String> pathParams, FilePartsLoader loader)
+            throws Exception {
+        Map<String, Part> fileParts = usesFileParts ? loader.load(req) : null;
+
+        Object[] args = new Object[resolvers.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            args[i] = resolvers[i].resolve(req, pathParams, fileParts);
+        }
+
+        try {
+            if (target != null)
+                return target.call(args);
+            return (Object) handle.invokeExact(args);
+        } catch (Throwable t) {
+            // same contract as Method.invoke: controller failures arrive wrapped
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private static MethodHandle compile(Method method, Object controller) {
+        try {
+            try {
+                method.setAccessible(true);
+            } catch (RuntimeException ignored) {
+                // not opened to us: unreflect still works for public members
+            }
+            MethodHandle mh = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                mh = mh.bindTo(controller);
+            }
+            return mh.asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access route handler " + method, e);
+        }
+    }
+}
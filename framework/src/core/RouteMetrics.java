@@ -0,0 +1,156 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, in-flight gauge and latency histogram of one route (route pattern + HTTP method).
+ * Recording is lock-free and allocation-free; percentiles are derived from the
+ * histogram buckets when the metrics endpoint is scraped.
+ */
+public class RouteMetrics {
+
+    static final int[] STATUSES = { 200, 204, 304, 400, 401, 403, 404, 405, 413, 429, 500, 503 };
+
+    // Upper bounds of the latency buckets, in seconds (+Inf implied)
+    static final double[] BOUNDS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS[i] * 1_000_000_000L);
+        }
+    }
+
+    public final String route;
+    public final String method;
+
+    private final LongAdder[] byStatus = new LongAdder[STATUSES.length + 1]; // last = other
+    private final LongAdder inFlight = new LongAdder();
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder sumNanos = new LongAdder();
+
+    public RouteMetrics(String route, String method) {
+        this.route = route;
+        this.method = method;
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new LongAdder();
+        }
+    }
+
+    public void begin() {
+        inFlight.increment();
+    }
+
+    /** Ends a request started with {@link #begin()}. */
+    public void end(int status, long nanos) {
+        inFlight.decrement();
+        record(status, nanos);
+    }
+
+    /** Records a request that was never in flight (404/405/OPTIONS). */
+    public void record(int status, long nanos) {
+        byStatus[statusIndex(status)].increment();
+        int b = 0;
+        while (b < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[b])
+            b++;
+        buckets.incrementAndGet(b);
+        sumNanos.add(nanos);
+    }
+
+    private static int statusIndex(int status) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i] == status)
+                return i;
+        }
+        return STATUSES.length;
+    }
+
+    public long getCount() {
+        long n = 0;
+        for (int i = 0; i < buckets.length(); i++)
+            n += buckets.get(i);
+        return n;
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /** Upper bound (seconds) of the bucket holding quantile q; +Inf past the last bound, NaN without data. */
+    public double percentile(double q) {
+        long total = getCount();
+        if (total == 0)
+            return Double.NaN;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank)
+                return BOUNDS[i];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    // Prometheus text format, one method per metric family: the caller writes HELP/TYPE, then
+    // that family's samples for every route, so each family stays one contiguous group.
+
+    void writeRequests(StringBuilder sb) {
+        String labels = labels();
+        for (int i = 0; i < byStatus.length; i++) {
+            long n = byStatus[i].sum();
+            if (n == 0)
+                continue;
+            String status = (i < STATUSES.length) ? String.valueOf(STATUSES[i]) : "other";
+            sb.append("router_requests_total{").append(labels).append(",status=\"").append(status).append("\"} ")
+                    .append(n).append('\n');
+        }
+    }
+
+    void writeInFlight(StringBuilder sb) {
+        sb.append("router_requests_in_flight{").append(labels()).append("} ").append(getInFlight()).append('\n');
+    }
+
+    void writeDuration(StringBuilder sb) {
+        String labels = labels();
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            cumulative += buckets.get(i);
+            sb.append("router_request_duration_seconds_bucket{").append(labels).append(",le=\"").append(BOUNDS[i])
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets.get(BOUNDS.length);
+        sb.append("router_request_duration_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                .append(cumulative).append('\n');
+        sb.append("router_request_duration_seconds_sum{").append(labels).append("} ")
+                .append(sumNanos.sum() / 1e9).append('\n');
+        sb.append("router_request_duration_seconds_count{").append(labels).append("} ").append(cumulative)
+                .append('\n');
+    }
+
+    void writeQuantiles(StringBuilder sb) {
+        if (getCount() == 0)
+            return;
+        String labels = labels();
+        for (double q : new double[] { 0.5, 0.9, 0.99 }) {
+            sb.append("router_request_duration_quantile_seconds{").append(labels).append(",quantile=\"")
+                    .append(q).append("\"} ").append(format(percentile(q))).append('\n');
+        }
+    }
+
+    private String labels() {
+        return "route=\"" + escape(route) + "\",method=\"" + escape(method) + "\"";
+    }
+
+    static String format(double v) {
+        if (Double.isInfinite(v))
+            return "+Inf";
+        if (Double.isNaN(v))
+            return "NaN";
+        return String.valueOf(v);
+    }
+
+    static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -12,6 +12,16 @@ public class RoutePattern {
     public Object controller;
     public String httpMethod;
 
+    // Precomputed at registration so dispatch does no annotation lookups
+    public RouteInvoker invoker;
+    public boolean rest;
+    public String[] authorizedRoles; // null => no @Authorized
+    public boolean async; // @Async: handler runs on the router's executor
+    public ResponseCache.Policy cachePolicy; // @Cached, null otherwise
+    public RouteMetrics metrics;
+    public Admission admission; // @Limit or servlet defaults, null when unlimited
+    public long roleMask; // RoleRegistry bits of authorizedRoles (ALL => no check needed)
+
     public RoutePattern(String path, Method method, Object controller, String httpMethod) {
         this.original = path;
         this.method = method;
@@ -28,9 +38,6 @@ public class RoutePattern {
         String regexString = path.replaceAll("\\{[^/]+}", "([^/]+)");
 
         this.regex = Pattern.compile("^" + regexString + "$");
-
-        // output the path Method mapping
-        System.out.println("Registered route: " + path + " -> " + method.getName());
     }
 
     public Map<String, String> match(String url) {
@@ -0,0 +1,31 @@
+package core;
+
+import java.util.Set;
+
+/**
+ * Route table generated at build time by {@code core.processor.RouteProcessor}
+ * and discovered through {@link java.util.ServiceLoader}.
+ * RouterServlet still scans WEB-INF/classes, but only loads the @Controller classes no registry
+ * covers (a partial or incremental build), and warns about each of them.
+ */
+public interface RouteRegistry {
+
+    void registerRoutes(Registrar registrar) throws Exception;
+
+    /**
+     * Binary names of the controller classes this registry registers, so the scan can skip them.
+     * Controllers passed to {@link Registrar#route} are covered anyway.
+     */
+    default Set<String> controllerClasses() {
+        return Set.of();
+    }
+
+    interface Registrar {
+        /**
+         * @param target direct call to the handler, or null when it isn't accessible
+         *               from generated code (the router then uses a MethodHandle)
+         */
+        void route(Object controller, String path, String httpMethod, boolean rest, String[] authorizedRoles,
+                String methodName, Class<?>[] parameterTypes, RouteInvoker.Target target) throws Exception;
+    }
+}
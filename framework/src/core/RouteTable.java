@@ -0,0 +1,56 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the registered routes and their {@link RouteIndex}.
+ * RouterServlet publishes it through an AtomicReference: a request reads the current table once
+ * and keeps using it to the end, while registrations build a new table and swap it in.
+ */
+public final class RouteTable {
+
+    public static final RouteTable EMPTY = new RouteTable(Collections.emptyList());
+
+    public final List<RoutePattern> routes; // registration order
+    public final RouteIndex index;
+
+    public RouteTable(List<RoutePattern> routes) {
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+        this.index = new RouteIndex(this.routes);
+    }
+
+    /** A new table with added appended; fails if one of them is already mapped (same method and path). */
+    public RouteTable plus(List<RoutePattern> added) {
+        for (RoutePattern rp : added) {
+            RoutePattern existing = find(rp.httpMethod, rp.original);
+            if (existing != null)
+                throw new IllegalStateException("Route " + rp.httpMethod.toUpperCase() + " " + rp.original
+                        + " is already mapped to " + existing.method.getDeclaringClass().getName() + "."
+                        + existing.method.getName());
+        }
+        List<RoutePattern> all = new ArrayList<>(routes.size() + added.size());
+        all.addAll(routes);
+        all.addAll(added);
+        return new RouteTable(all);
+    }
+
+    /** A new table without the routes of controller (this table if it has none). */
+    public RouteTable minus(Object controller) {
+        List<RoutePattern> kept = new ArrayList<>(routes.size());
+        for (RoutePattern rp : routes) {
+            if (rp.controller != controller)
+                kept.add(rp);
+        }
+        return (kept.size() == routes.size()) ? this : new RouteTable(kept);
+    }
+
+    public RoutePattern find(String httpMethod, String path) {
+        for (RoutePattern rp : routes) {
+            if (rp.original.equals(path) && rp.httpMethod.equalsIgnoreCase(httpMethod))
+                return rp;
+        }
+        return null;
+    }
+}
@@ -5,7 +5,19 @@ import core.annotation.Controller;
 import core.annotation.RestAPI;
 import core.annotation.Route;
 import core.annotation.Authorized;
+import core.annotation.Async;
+import core.annotation.Cached;
+import core.annotation.Limit;
 import core.rest.ApiResponse;
+import core.rest.BinaryFormat;
+import core.rest.BinaryWriter;
+import core.rest.JsonParseException;
+import core.rest.JsonReader;
+import core.rest.ValueReader;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.http.HttpServlet;
@@ -15,58 +27,229 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @MultipartConfig
 public class RouterServlet extends HttpServlet {
 
-    // New dynamic route system
-    public final java.util.List<RoutePattern> routePatterns = new java.util.ArrayList<>();
+    // Routes + their segment trie, as an immutable snapshot: requests read it without locking,
+    // addController/removeController swap in a rebuilt one (see ROUTE REGISTRATION)
+    private final AtomicReference<RouteTable> routeTable = new AtomicReference<>(RouteTable.EMPTY);
+
+    // @Async handlers; async dispatch requires <async-supported>true</async-supported> on the servlet
+    private ExecutorService asyncExecutor;
+    private long asyncTimeoutMs = 30_000;
+    private long streamIdleTimeoutMs = 30_000; // streamed Publisher results: longest silence, 0 = none
+
+    // Per-route metrics, exposed only on the metricsPath init-param (e.g. /_router/metrics): route
+    // names and traffic aren't for everyone, so the path is left to a deployment that protects it
+    private String metricsPath;
+    private final RouteMetrics unmatchedMetrics = new RouteMetrics("unmatched", "*");
+
+    // init-params compression (true/false), compressionMinBytes (default 1024)
+    private ResponseCompressor compressor = new ResponseCompressor(true, 1024,
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    // @Cached routes (init-param responseCacheMaxBytes, default 32 MB)
+    private ResponseCache responseCache = new ResponseCache(32L * 1024 * 1024);
+
+    // JSON, CBOR and MessagePack bodies bound into @RestAPI POJOs (init-param maxJsonBodyBytes, default 1 MB)
+    private long maxJsonBodyBytes = 1024 * 1024;
+
+    // Admission defaults for routes without @Limit (init-params maxConcurrent, maxQueue, queueTimeoutMs,
+    // retryAfterSeconds); maxConcurrent 0 = unlimited
+    private int defaultMaxConcurrent = 0;
+    private int defaultMaxQueue = 0;
+    private long defaultQueueTimeoutMs = 1000;
+    private int defaultRetryAfterSeconds = 1;
+
+    // Batch endpoint (init-params batchPath, "" disables, batchMaxCalls and batchParallelism,
+    // the threads running parallel calls across all batches)
+    private String batchPath = "/api/_batch";
+    private int batchMaxCalls = 50;
+    private ExecutorService batchExecutor;
+    private final RouteMetrics batchMetrics = new RouteMetrics("batch", "POST");
+
+    // ModelView: JSP dispatchers per view, or the built-in engine for views ending with
+    // init-param templateSuffix (init-param devMode reloads changed templates)
+    private final Map<String, RequestDispatcher> viewDispatchers = new ConcurrentHashMap<>();
+    private TemplateEngine templates;
 
     @Override
     public void init() {
+        // Logging first: everything below may log (init-params logLevel, accessLog, errorThrottleSeconds)
+        Log.setLevel(Log.parseLevel(getInitParameter("logLevel"), Log.getLevel()));
+        String accessLog = getInitParameter("accessLog");
+        if (accessLog != null) {
+            Log.setAccessLog(Boolean.parseBoolean(accessLog.trim()));
+        }
+        String errorThrottle = getInitParameter("errorThrottleSeconds");
+        if (errorThrottle != null) {
+            Log.setErrorThrottleMillis(Long.parseLong(errorThrottle.trim()) * 1000);
+        }
+
         core.AppContext.setWebInfPath(getServletContext().getRealPath("/WEB-INF"));
 
-        System.out.println("Router initialized");
+        // Uploads above this size are streamed from the container's storage instead of read in memory
+        String threshold = getInitParameter("fileUploadMemoryThreshold");
+        if (threshold != null) {
+            core.FileUpload.setMemoryThreshold(Long.parseLong(threshold.trim()));
+        }
+
+        String asyncPool = getInitParameter("asyncPoolSize");
+        asyncExecutor = newAsyncExecutor((asyncPool != null) ? Integer.parseInt(asyncPool.trim()) : 200);
+        String asyncTimeout = getInitParameter("asyncTimeoutMs");
+        if (asyncTimeout != null) {
+            asyncTimeoutMs = Long.parseLong(asyncTimeout.trim());
+        }
+        String streamIdle = getInitParameter("streamIdleTimeoutMs");
+        if (streamIdle != null) {
+            streamIdleTimeoutMs = Long.parseLong(streamIdle.trim());
+        }
+
+        String compression = getInitParameter("compression");
+        String compressionMin = getInitParameter("compressionMinBytes");
+        if (compression != null || compressionMin != null) {
+            compressor = new ResponseCompressor(compression == null || Boolean.parseBoolean(compression.trim()),
+                    (compressionMin != null) ? Integer.parseInt(compressionMin.trim()) : 1024,
+                    Runtime.getRuntime().availableProcessors() * 2);
+        }
+
+        String metrics = getInitParameter("metricsPath");
+        if (metrics != null) {
+            metricsPath = metrics.isBlank() ? null : metrics.trim();
+        }
+
+        String cacheBytes = getInitParameter("responseCacheMaxBytes");
+        if (cacheBytes != null) {
+            responseCache = new ResponseCache(Long.parseLong(cacheBytes.trim()));
+        }
+
+        String jsonMax = getInitParameter("maxJsonBodyBytes");
+        if (jsonMax != null) {
+            maxJsonBodyBytes = Long.parseLong(jsonMax.trim());
+        }
+
+        String maxConcurrent = getInitParameter("maxConcurrent");
+        if (maxConcurrent != null) {
+            defaultMaxConcurrent = Integer.parseInt(maxConcurrent.trim());
+        }
+        String maxQueue = getInitParameter("maxQueue");
+        if (maxQueue != null) {
+            defaultMaxQueue = Integer.parseInt(maxQueue.trim());
+        }
+        String queueTimeout = getInitParameter("queueTimeoutMs");
+        if (queueTimeout != null) {
+            defaultQueueTimeoutMs = Long.parseLong(queueTimeout.trim());
+        }
+        String retryAfter = getInitParameter("retryAfterSeconds");
+        if (retryAfter != null) {
+            defaultRetryAfterSeconds = Integer.parseInt(retryAfter.trim());
+        }
+
+        String batch = getInitParameter("batchPath");
+        if (batch != null) {
+            batchPath = batch.isBlank() ? null : batch.trim();
+        }
+        String batchMax = getInitParameter("batchMaxCalls");
+        if (batchMax != null) {
+            batchMaxCalls = Integer.parseInt(batchMax.trim());
+        }
+        String batchThreads = getInitParameter("batchParallelism");
+        batchExecutor = newBatchExecutor((batchThreads != null) ? Integer.parseInt(batchThreads.trim())
+                : 2 * Runtime.getRuntime().availableProcessors());
+
+        String sessionStore = getInitParameter("sessionStore");
+        SessionCodec.allowClasses(getInitParameter("sessionSerialFilter")); // more deserializable classes
+        if (sessionStore != null && !sessionStore.isBlank()) {
+            Session.setStore(newSessionStore(sessionStore.trim()), getInitParameter("sessionCookie"));
+        }
+
+        // Stateless auth: init-params authTokenKeys ("kid:base64secret,...", signing key first),
+        // authTokenTtlSeconds, authTokenCookie
+        String tokenKeys = getInitParameter("authTokenKeys");
+        if (tokenKeys != null && !tokenKeys.isBlank()) {
+            String ttl = getInitParameter("authTokenTtlSeconds");
+            String cookie = getInitParameter("authTokenCookie");
+            AuthorizationManager.useTokens(new TokenAuth(TokenAuth.parseKeys(tokenKeys.trim()),
+                    (ttl != null) ? Long.parseLong(ttl.trim()) : 3600, (cookie != null) ? cookie.trim() : "CORETOKEN"));
+        }
+
+        String templateSuffix = getInitParameter("templateSuffix");
+        if (templateSuffix != null && !templateSuffix.isBlank()) {
+            if (core.AppContext.getWebInfPath() != null) {
+                templates = new TemplateEngine(java.nio.file.Paths.get(core.AppContext.getWebInfPath(), "views"),
+                        templateSuffix.trim(), Boolean.parseBoolean(getInitParameter("devMode")));
+            } else {
+                Log.warn("Templates disabled: WEB-INF is not on the file system");
+            }
+        }
+
+        Log.info("Router initialized");
+
+        // Build-time route table (core.processor.RouteProcessor); the scan only picks up what it misses
+        List<RoutePattern> routes = new ArrayList<>();
+        Set<String> covered = new HashSet<>();
+        boolean generated = registerGeneratedRoutes(routes, covered);
+
         String basePackage = "app.controllers";
         String path = getServletContext().getRealPath("/WEB-INF/classes/" + basePackage.replace('.', '/'));
 
-        File directory = new File(path);
-        if (!directory.exists()) {
-            System.out.println("Controllers directory not found: " + path);
-            return;
+        File directory = (path != null) ? new File(path) : null;
+        if (directory != null && directory.exists()) {
+            scanAndRegisterControllers(directory, basePackage, routes, generated ? covered : null);
+        } else if (!generated) {
+            Log.warn("Controllers directory not found: {}", path);
         }
-
-        scanAndRegisterControllers(directory, basePackage);
+        routeTable.set(new RouteTable(routes));
     }
 
-    private void scanAndRegisterControllers(File directory, String basePackage) {
+    // covered: classes already registered by a generated registry (skipped without being loaded),
+    // null when there is none
+    private void scanAndRegisterControllers(File directory, String basePackage, List<RoutePattern> routes,
+            Set<String> covered) {
         File[] files = directory.listFiles();
         if (files == null)
             return;
 
         for (File file : files) {
             if (file.isDirectory()) {
-                scanAndRegisterControllers(file, basePackage + "." + file.getName());
+                scanAndRegisterControllers(file, basePackage + "." + file.getName(), routes, covered);
             } else if (file.getName().endsWith(".class")) {
                 String className = file.getName().replace(".class", "");
+                if (covered != null && covered.contains(basePackage + "." + className))
+                    continue;
                 try {
                     Class<?> clazz = Class.forName(basePackage + "." + className);
 
                     if (clazz.isAnnotationPresent(core.annotation.Controller.class)) {
                         Object controller = clazz.getDeclaredConstructor().newInstance();
-                        registerController(controller);
-                        System.out.println("Registered controller: " + clazz.getName());
+                        registerController(controller, routes);
+                        if (covered != null) {
+                            Log.warn("Controller {} is in no generated route registry (partial build?): "
+                                    + "registered by scanning", clazz.getName());
+                        } else {
+                            Log.info("Registered controller: {}", clazz.getName());
+                        }
                     }
 
                 } catch (Exception e) {
-                    e.printStackTrace();
+                    Log.error("Cannot register {}", basePackage + "." + className, e);
                 }
             }
         }
     }
 
-    private void registerController(Object controller) {
+    private void registerController(Object controller, List<RoutePattern> routes) {
         Class<?> clazz = controller.getClass();
         if (!clazz.isAnnotationPresent(Controller.class))
             return;
@@ -75,12 +258,147 @@ public class RouterServlet extends HttpServlet {
             if (method.isAnnotationPresent(Route.class)) {
                 String path = method.getAnnotation(Route.class).value();
                 String httpMethod = method.getAnnotation(Route.class).method();
-                routePatterns.add(new RoutePattern(path, method, controller, httpMethod));
-                System.out.println("Registered route: " + path + " → " + method.getName());
+                boolean rest = clazz.isAnnotationPresent(RestAPI.class) || method.isAnnotationPresent(RestAPI.class);
+                Authorized auth = method.getAnnotation(Authorized.class);
+                routes.add(registerRoute(controller, method, path, httpMethod, rest,
+                        (auth != null) ? auth.value() : null, null));
             }
         }
     }
 
+    private RoutePattern registerRoute(Object controller, Method method, String path, String httpMethod,
+            boolean rest, String[] authorizedRoles, RouteInvoker.Target target) {
+        RoutePattern rp = new RoutePattern(path, method, controller, httpMethod);
+        rp.rest = rest;
+        rp.authorizedRoles = authorizedRoles;
+        rp.roleMask = (authorizedRoles != null) ? RoleRegistry.routeMask(authorizedRoles) : RoleRegistry.ALL;
+        rp.async = method.isAnnotationPresent(Async.class);
+        rp.metrics = new RouteMetrics(path, httpMethod.toUpperCase());
+        Cached cached = method.getAnnotation(Cached.class);
+        if (cached != null) {
+            rp.cachePolicy = new ResponseCache.Policy(cached.ttlSeconds() * 1000L, cached.params(), cached.perRole());
+        }
+        rp.admission = compileAdmission(method, path, httpMethod.toUpperCase());
+        rp.invoker = compileInvoker(method, controller, target, rest);
+        Log.debug("Registered route: {} → {}", path, method.getName());
+        return rp;
+    }
+
+    // @Limit on the method, else the servlet defaults; null when nothing is limited
+    private Admission compileAdmission(Method method, String path, String httpMethod) {
+        Limit limit = method.getAnnotation(Limit.class);
+        Admission admission;
+        if (limit == null) {
+            admission = new Admission(path, httpMethod, defaultMaxConcurrent, defaultMaxQueue,
+                    defaultQueueTimeoutMs, 0, 0, 0, defaultRetryAfterSeconds);
+        } else {
+            admission = new Admission(path, httpMethod,
+                    (limit.maxConcurrent() >= 0) ? limit.maxConcurrent() : defaultMaxConcurrent,
+                    (limit.queueSize() >= 0) ? limit.queueSize() : defaultMaxQueue,
+                    (limit.queueTimeoutMs() >= 0) ? limit.queueTimeoutMs() : defaultQueueTimeoutMs,
+                    limit.ratePerSecond(), limit.perClientRatePerSecond(), limit.burst(),
+                    (limit.retryAfterSeconds() >= 0) ? limit.retryAfterSeconds() : defaultRetryAfterSeconds);
+        }
+        return admission.isActive() ? admission : null;
+    }
+
+    // Loads every generated RouteRegistry visible to the web application, collecting the controller
+    // classes they cover; false if there is none
+    private boolean registerGeneratedRoutes(List<RoutePattern> routes, Set<String> covered) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null)
+            loader = getClass().getClassLoader();
+
+        boolean found = false;
+        for (RouteRegistry registry : java.util.ServiceLoader.load(RouteRegistry.class, loader)) {
+            found = true;
+            try {
+                covered.addAll(registry.controllerClasses());
+                registry.registerRoutes((controller, path, httpMethod, rest, roles, methodName, types, target) -> {
+                    covered.add(controller.getClass().getName());
+                    Method method = controller.getClass().getDeclaredMethod(methodName, types);
+                    routes.add(registerRoute(controller, method, path, httpMethod, rest, roles, target));
+                });
+                Log.info("Registered generated routes: {}", registry.getClass().getName());
+            } catch (Exception e) {
+                Log.error("Cannot register generated routes of {}", registry.getClass().getName(), e);
+            }
+        }
+        return found;
+    }
+
+    // "mmap": MappedSessionStore (init-params sessionStoreFile, sessionStoreMb, sessionSlotBytes,
+    // sessionTimeoutSeconds); anything else names a SessionStore class with a no-arg constructor
+    private SessionStore newSessionStore(String kind) {
+        try {
+            if (!"mmap".equals(kind)) {
+                ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                return (SessionStore) Class.forName(kind, true, (loader != null) ? loader : getClass().getClassLoader())
+                        .getDeclaredConstructor().newInstance();
+            }
+            String file = getInitParameter("sessionStoreFile");
+            String mb = getInitParameter("sessionStoreMb");
+            String slot = getInitParameter("sessionSlotBytes");
+            String timeout = getInitParameter("sessionTimeoutSeconds");
+            long timeoutMillis = ((timeout != null) ? Long.parseLong(timeout.trim()) : 1800) * 1000;
+            java.nio.file.Path path = java.nio.file.Paths.get((file != null) ? file.trim()
+                    : System.getProperty("java.io.tmpdir") + File.separator + "core-sessions.dat");
+            SessionStore store = new MappedSessionStore(path,
+                    ((mb != null) ? Long.parseLong(mb.trim()) : 64) * 1024 * 1024,
+                    (slot != null) ? Integer.parseInt(slot.trim()) : 4096,
+                    64, timeoutMillis, Math.min(timeoutMillis, 60_000));
+            Log.info("Sessions stored in {}", path);
+            return store;
+        } catch (ReflectiveOperationException | IOException e) {
+            throw new IllegalStateException("Cannot create session store " + kind, e);
+        }
+    }
+
+    // ===================== ROUTE REGISTRATION =====================
+
+    /** Routes of the current table, in registration order. */
+    public List<RoutePattern> getRoutes() {
+        return routeTable.get().routes;
+    }
+
+    /**
+     * Registers the routes of a @Controller instance while the application runs (plugins,
+     * feature toggles). Nothing changes if one of its routes is already mapped.
+     */
+    public List<RoutePattern> addController(Object controller) {
+        if (!controller.getClass().isAnnotationPresent(Controller.class))
+            throw new IllegalArgumentException(controller.getClass().getName() + " is not a @Controller");
+        List<RoutePattern> added = new ArrayList<>();
+        registerController(controller, added);
+        routeTable.updateAndGet(table -> table.plus(added)); // retried on a concurrent swap
+        Log.info("Added controller: {} ({} routes)", controller.getClass().getName(), added.size());
+        return added;
+    }
+
+    /**
+     * Unregisters every route of controller. Requests already dispatched to it finish
+     * normally; false if it had no routes.
+     */
+    public boolean removeController(Object controller) {
+        RouteTable current;
+        RouteTable next;
+        do {
+            current = routeTable.get();
+            next = current.minus(controller);
+            if (next == current)
+                return false;
+        } while (!routeTable.compareAndSet(current, next));
+
+        for (RoutePattern rp : current.routes) {
+            if (rp.controller == controller && rp.cachePolicy != null) {
+                responseCache.clear(); // a later controller may map the same paths
+                break;
+            }
+        }
+        Log.info("Removed controller: {}", controller.getClass().getName());
+        return true;
+    }
+
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
@@ -126,71 +444,78 @@ public class RouterServlet extends HttpServlet {
     }
 
     private void handleRequest(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        long start = System.nanoTime();
+        if (Session.getStore() != null || AuthorizationManager.getTokens() != null)
+            Session.attachResponse(req, resp); // carries the store's session cookie / the auth token
+        if (!Log.isAccessLogEnabled()) {
+            dispatch(req, resp, start);
+            return;
+        }
+        AccessLogResponse logged = new AccessLogResponse(resp);
+        boolean async = false;
+        try {
+            async = dispatch(req, logged, start);
+        } finally {
+            // async requests are logged when they complete
+            if (!async)
+                logAccess(req, logged, logged.getStatus(), start);
+        }
+    }
+
+    // True when an AsyncContext took over the response
+    private boolean dispatch(HttpServletRequest req, HttpServletResponse resp, long start) throws IOException {
         String path = req.getRequestURI().replace(req.getContextPath(), "");
         String requestMethod = req.getMethod().toUpperCase();
 
-        RoutePattern matchedByPath = null;
-        RoutePattern matchedByMethod = null;
-        Map<String, String> paramsForMethod = null;
-
-        // Collect allowed methods for this path (for 405 + Allow header)
-        java.util.Set<String> allowedMethods = new java.util.LinkedHashSet<>();
-
-        for (RoutePattern rp : routePatterns) {
-            Map<String, String> p = rp.match(path);
-            if (p != null) {
-                matchedByPath = rp;
-                allowedMethods.add(rp.httpMethod.toUpperCase());
+        // Reserved metrics endpoint (Prometheus text format)
+        if (metricsPath != null && metricsPath.equals(path) && "GET".equals(requestMethod)) {
+            writeMetrics(resp);
+            return false;
+        }
 
-                if (rp.httpMethod.equalsIgnoreCase(requestMethod)) {
-                    matchedByMethod = rp;
-                    paramsForMethod = p;
-                    break;
-                }
+        // Reserved batch endpoint: several REST calls in one round-trip
+        if (batchPath != null && batchPath.equals(path)) {
+            if (resp instanceof AccessLogResponse logged)
+                logged.route = batchPath;
+            if ("POST".equals(requestMethod)) {
+                handleBatch(req, resp, start);
+            } else {
+                resp.setHeader("Allow", "POST");
+                writeJsonError(resp, 405, "Method " + requestMethod + " Not Allowed on " + path);
             }
+            return false;
         }
 
+        // Single trie lookup: handler + path params + allowed methods (404/405/OPTIONS/HEAD)
+        RouteIndex.Match match = routeTable.get().index.lookup(path, requestMethod);
+
         // 404 if no path matches
-        if (matchedByPath == null) {
+        if (match == null) {
             if (isApiPath(path)) {
                 writeJsonError(resp, 404, "Not Found: " + path);
             } else {
                 resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 resp.getWriter().write("404 - Not Found: " + path);
             }
-            return;
+            unmatchedMetrics.record(HttpServletResponse.SC_NOT_FOUND, System.nanoTime() - start);
+            return false;
         }
 
-        // Auto support OPTIONS: return Allow
+        // Auto support OPTIONS: return Allow (HEAD included when GET exists)
         if ("OPTIONS".equals(requestMethod)) {
-            // Optional: also include HEAD if GET exists
-            if (allowedMethods.contains("GET"))
-                allowedMethods.add("HEAD");
             resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
-            resp.setHeader("Allow", String.join(", ", allowedMethods));
-            return;
+            resp.setHeader("Allow", match.allowHeader());
+            unmatchedMetrics.record(HttpServletResponse.SC_NO_CONTENT, System.nanoTime() - start);
+            return false;
         }
 
-        // Auto support HEAD if GET exists (common framework behavior)
-        if ("HEAD".equals(requestMethod) && allowedMethods.contains("GET")) {
-            // Treat as GET but don't write body
-            requestMethod = "GET";
-            // Try again to find GET handler
-            for (RoutePattern rp : routePatterns) {
-                Map<String, String> p = rp.match(path);
-                if (p != null && rp.httpMethod.equalsIgnoreCase("GET")) {
-                    matchedByMethod = rp;
-                    paramsForMethod = p;
-                    break;
-                }
-            }
-        }
+        // HEAD falls back to the GET handler inside the index (body suppressed below)
+        RoutePattern matchedByMethod = match.route;
+        Map<String, String> paramsForMethod = match.params;
 
         // 405 if path exists but method doesn't
         if (matchedByMethod == null) {
-            if (allowedMethods.contains("GET"))
-                allowedMethods.add("HEAD");
-            resp.setHeader("Allow", String.join(", ", allowedMethods));
+            resp.setHeader("Allow", match.allowHeader());
 
             if (isApiPath(path)) {
                 writeJsonError(resp, 405, "Method " + requestMethod + " Not Allowed on " + path);
@@ -198,112 +523,738 @@ public class RouterServlet extends HttpServlet {
                 resp.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
                 resp.getWriter().write("405 - Method " + requestMethod + " Not Allowed on " + path);
             }
-            return;
+            unmatchedMetrics.record(HttpServletResponse.SC_METHOD_NOT_ALLOWED, System.nanoTime() - start);
+            return false;
         }
+        if (resp instanceof AccessLogResponse logged)
+            logged.route = matchedByMethod.original;
+
+        // Admission control: shed load with a fast 503 (429 for rate limits) before any work
+        Admission admission = matchedByMethod.admission;
+        if (admission != null) {
+            int rejected = admission.admit(req);
+            if (rejected != Admission.ADMITTED) {
+                resp.setHeader("Retry-After", String.valueOf(admission.retryAfter(rejected)));
+                String msg = (rejected == Admission.RATE_LIMITED) ? "Too Many Requests" : "Service Unavailable";
+                if (matchedByMethod.rest || isApiPath(path)) {
+                    writeJsonError(resp, rejected, msg + ": " + path);
+                } else {
+                    resp.setStatus(rejected);
+                    resp.getWriter().write(rejected + " - " + msg + ": " + path);
+                }
+                matchedByMethod.metrics.record(rejected, System.nanoTime() - start);
+                return false;
+            }
+        }
+
+        matchedByMethod.metrics.begin();
+        boolean async = false;
+        try {
+            async = invokeRoute(req, resp, requestMethod, matchedByMethod, paramsForMethod, start);
+        } finally {
+            // async requests are recorded when they complete
+            if (!async)
+                endRoute(matchedByMethod, resp.getStatus(), start);
+        }
+        return async;
+    }
+
+    // Metrics + admission slot of a request that got past admission
+    private static void endRoute(RoutePattern route, int status, long start) {
+        route.metrics.end(status, System.nanoTime() - start);
+        if (route.admission != null)
+            route.admission.release();
+    }
 
+    // endRoute + access log entry, for requests completed under an AsyncContext
+    private static void endAsyncRoute(HttpServletRequest req, HttpServletResponse resp, RoutePattern route,
+            int status, long start) {
+        endRoute(route, status, start);
+        logAccess(req, resp, status, start);
+    }
+
+    private static void logAccess(HttpServletRequest req, HttpServletResponse resp, int status, long start) {
+        if (resp instanceof AccessLogResponse logged)
+            Log.access(req.getMethod(), req.getRequestURI(), logged.route, status, System.nanoTime() - start,
+                    logged.getBytes());
+    }
+
+    // Authorization, cache and controller call; true when an AsyncContext took over the response
+    private boolean invokeRoute(HttpServletRequest req, HttpServletResponse resp, String requestMethod,
+            RoutePattern matchedByMethod, Map<String, String> paramsForMethod, long start) throws IOException {
         // --- Authorization check (Sprint 11bis) ---
-        Authorized auth = matchedByMethod.method.getAnnotation(Authorized.class);
-        if (auth != null) {
-            Session session = new Session(req.getSession());
-            if (!AuthorizationManager.enforce(session, auth.value(), resp)) {
-                return; // Stop processing if access denied
+        // Routes open to "all" never touch the session
+        if (matchedByMethod.roleMask != RoleRegistry.ALL) {
+            Session session = Session.of(req);
+            if (!AuthorizationManager.enforce(session, matchedByMethod.roleMask, resp)) {
+                return false; // Stop processing if access denied
             }
         }
 
 
-        // Invoke controller
+        // @Cached GET routes: stored bytes (or 304) without invoking the controller
+        if (matchedByMethod.cachePolicy != null && !matchedByMethod.async
+                && ("GET".equals(requestMethod) || "HEAD".equals(requestMethod))) {
+            serveCached(req, resp, matchedByMethod, paramsForMethod);
+            return false;
+        }
+
+        // Invoke controller (precompiled plan, see compileInvoker)
         try {
-            Object result;
+            // @Async: run the handler off the container thread
+            if (matchedByMethod.async && req.isAsyncSupported()) {
+                AsyncContext ctx = req.startAsync(req, resp); // keeps the access log wrapper
+                RoutePattern route = matchedByMethod;
+                CompletableFuture<Object> future = CompletableFuture
+                        .supplyAsync(() -> invokeUnchecked(route, req, paramsForMethod), asyncExecutor)
+                        .thenCompose(RouterServlet::flatten);
+                completeAsync(ctx, route, future, start);
+                return true;
+            }
+
+            Object result = matchedByMethod.invoker.invoke(req, paramsForMethod, this::getFilePartsByName);
+
+            // CompletionStage result: release the container thread until it completes
+            if (result instanceof CompletionStage<?> stage) {
+                if (req.isAsyncSupported()) {
+                    completeAsync(req.startAsync(req, resp), matchedByMethod, flatten(stage), start);
+                    return true;
+                }
+                result = await(stage);
+            }
 
-            int pc = matchedByMethod.method.getParameterCount();
+            // Stream / Iterator / Publisher from a REST route: written incrementally, non-blocking
+            if (matchedByMethod.rest && StreamingWriter.isStreamable(result) && req.isAsyncSupported()) {
+                streamAsync(req, resp, matchedByMethod, result, start);
+                return true;
+            }
 
-            if (pc == 1 && Map.class.isAssignableFrom(matchedByMethod.method.getParameterTypes()[0])) {
-                // Sprint 8 (Map)
-                result = matchedByMethod.method.invoke(matchedByMethod.controller, paramsForMethod);
+            writeResult(req, resp, matchedByMethod, result, null);
 
-            } else if (pc == 1) {
-                // Sprint 8-bis (Value Object / POJO)
-                Class<?> paramType = matchedByMethod.method.getParameterTypes()[0];
+        } catch (Exception e) {
+            writeError(resp, matchedByMethod, e);
+        }
+        return false;
+    }
 
-                // Exclude servlet types
-                if (paramType != HttpServletRequest.class
-                        && paramType != HttpServletResponse.class
-                        && paramType != core.Session.class) {
-                    Object obj = buildObjectFromRequest(paramType, req);
-                    result = matchedByMethod.method.invoke(matchedByMethod.controller, obj);
-                } else {
-                    Object[] methodArgs = injectParameters(matchedByMethod.method, req, paramsForMethod);
-                    result = matchedByMethod.method.invoke(matchedByMethod.controller, methodArgs);
-                }
+    private void writeResult(HttpServletRequest req, HttpServletResponse resp, RoutePattern route, Object result,
+            AsyncContext async) throws Exception {
+        // File / Path / FileResult: sent from disk, REST routes included
+        if (isFileResult(result)) {
+            writeFile(req, resp, route, result);
+            return;
+        }
 
-            } else {
-                // Sprint 6/7 — classic injection
-                Object[] methodArgs = injectParameters(matchedByMethod.method, req, paramsForMethod);
-                result = matchedByMethod.method.invoke(matchedByMethod.controller, methodArgs);
+        // REST ?
+        if (route.rest) {
+            if (StreamingWriter.isStreamable(result)) {
+                newStreamingWriter(req, resp, result).writeBlocking(resp.getOutputStream());
+                return;
             }
+            resp.setStatus(HttpServletResponse.SC_OK);
 
-            // REST ?
-            boolean isRest = matchedByMethod.controller.getClass().isAnnotationPresent(RestAPI.class)
-                    || matchedByMethod.method.isAnnotationPresent(RestAPI.class);
+            ApiResponse api = new ApiResponse(200, "success", result);
+            writeRest(req, resp, api);
+            return;
+        }
 
-            if (isRest) {
-                resp.setContentType("application/json;charset=UTF-8");
-                resp.setStatus(HttpServletResponse.SC_OK);
+        // If HEAD: never send body
+        if ("HEAD".equalsIgnoreCase(req.getMethod())) {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            return;
+        }
 
-                ApiResponse api = new ApiResponse(200, "success", result);
-                resp.getWriter().write(toJson(api));
+        if (result instanceof ModelView mv) {
+            // Built-in template: rendered from the model data, no attributes, no dispatch
+            if (isTemplateView(mv)) {
+                Template template = templates.get(mv.getView());
+                if (resp.getContentType() == null)
+                    resp.setContentType("text/html;charset=UTF-8");
+                template.render(mv.getData(), resp.getWriter(), templates);
                 return;
             }
 
-            // If HEAD: never send body
-            if ("HEAD".equalsIgnoreCase(req.getMethod())) {
-                resp.setStatus(HttpServletResponse.SC_OK);
+            for (Map.Entry<String, Object> entry : mv.getData().entrySet()) {
+                req.setAttribute(entry.getKey(), entry.getValue());
+            }
+            if (async != null) {
+                async.dispatch("/WEB-INF/views/" + mv.getView()); // forward is not allowed after startAsync
+            } else {
+                viewDispatcher(mv.getView()).forward(req, resp);
+            }
+            return;
+        }
+
+        if (result instanceof String str) {
+            writeText(req, resp, str);
+            return;
+        }
+
+        resp.getWriter().write("Unsupported return type from controller");
+    }
+
+    // A Path is also an Iterable<Path>: it must never reach a JSON/binary writer
+    private static boolean isFileResult(Object result) {
+        return result instanceof FileResult || result instanceof java.nio.file.Path || result instanceof File;
+    }
+
+    private void writeFile(HttpServletRequest req, HttpServletResponse resp, RoutePattern route, Object result)
+            throws IOException {
+        FileResult file = (result instanceof FileResult fr) ? fr
+                : (result instanceof File f) ? new FileResult(f) : new FileResult((java.nio.file.Path) result);
+
+        String contentType = file.getContentType();
+        if (contentType == null)
+            contentType = getServletContext().getMimeType(file.getFileName());
+        if (contentType == null)
+            contentType = "application/octet-stream";
+
+        if (!FileSender.send(req, resp, file, contentType)) {
+            String path = req.getRequestURI().replace(req.getContextPath(), "");
+            if (route.rest || isApiPath(path)) {
+                writeJsonError(resp, 404, "File not found: " + file.getFileName());
+            } else {
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                resp.getWriter().write("404 - File not found: " + file.getFileName());
+            }
+        }
+    }
+
+    // Chunked JSON array in the envelope, NDJSON when the client asks for it, or the CBOR / MessagePack
+    // framing when Accept prefers those (as writeRest does)
+    private StreamingWriter newStreamingWriter(HttpServletRequest req, HttpServletResponse resp, Object result)
+            throws IOException {
+        boolean ndjson = StreamingWriter.wantsNdjson(req);
+        BinaryFormat format = ndjson ? null : BinaryFormat.fromAccept(req.getHeader("Accept"));
+        String contentType = (format != null) ? format.mediaType
+                : ndjson ? "application/x-ndjson;charset=UTF-8" : "application/json;charset=UTF-8";
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(contentType);
+        resp.addHeader("Vary", "Accept");
+        String encoding = compressor.negotiate(req, contentType);
+        if (encoding != null)
+            ResponseCompressor.markEncoded(resp, encoding);
+        return new StreamingWriter(result, ndjson, format, compressor, encoding, streamIdleTimeoutMs);
+    }
+
+    private void streamAsync(HttpServletRequest req, HttpServletResponse resp, RoutePattern route, Object result,
+            long start) throws IOException {
+        StreamingWriter stream = newStreamingWriter(req, resp, result);
+        AsyncContext ctx = req.startAsync(req, resp);
+        ctx.setTimeout(0); // exports may run long; a client that goes away ends them through onError,
+                           // a publisher that stalls through streamIdleTimeoutMs
+        stream.start(ctx, resp.getOutputStream(), () -> endAsyncRoute(req, resp, route, resp.getStatus(), start));
+    }
+
+    private boolean isTemplateView(ModelView mv) {
+        return templates != null && templates.handles(mv.getView());
+    }
+
+    // Context dispatchers are reusable: resolved once per view
+    private RequestDispatcher viewDispatcher(String view) {
+        RequestDispatcher dispatcher = viewDispatchers.get(view);
+        if (dispatcher == null) {
+            dispatcher = getServletContext().getRequestDispatcher("/WEB-INF/views/" + view);
+            if (dispatcher != null)
+                viewDispatchers.put(view, dispatcher);
+        }
+        return dispatcher;
+    }
+
+    // String result: compressed when negotiated and large enough, otherwise written as before
+    private void writeText(HttpServletRequest req, HttpServletResponse resp, String str) throws IOException {
+        String contentType = resp.getContentType();
+        String encoding = (str.length() >= compressor.getMinSize())
+                ? compressor.negotiate(req, (contentType != null) ? contentType : "text/html")
+                : null;
+        if (encoding == null) {
+            resp.getWriter().write(str);
+            return;
+        }
+        byte[] body = compressor.compress(str.getBytes(java.nio.charset.Charset.forName(resp.getCharacterEncoding())),
+                encoding);
+        ResponseCompressor.markEncoded(resp, encoding);
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+
+    private void writeError(HttpServletResponse resp, RoutePattern route, Throwable e) throws IOException {
+        // Unparseable JSON body: the client's fault, answered 400 (413 when over maxJsonBodyBytes)
+        Throwable bad = (e instanceof JsonParseException) ? e : e.getCause();
+        if (bad instanceof JsonParseException jpe) {
+            writeJsonError(resp, jpe.isTooLarge() ? 413 : HttpServletResponse.SC_BAD_REQUEST, jpe.getMessage());
+            return;
+        }
+
+        Log.error("{} {} failed", route.httpMethod, route.original, e);
+
+        String msg = errorMessage(e);
+
+        boolean isRest = route.rest;
+
+        resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+        if (isRest) {
+            resp.setContentType("application/json;charset=UTF-8");
+            ApiResponse api = new ApiResponse(500, "error", msg);
+            writeJson(resp, api);
+        } else {
+            resp.getWriter().write("500 - Server error: " + msg);
+        }
+    }
+
+    // Message of the controller's exception (unwraps InvocationTargetException, common when method.invoke throws)
+    private static String errorMessage(Throwable e) {
+        Throwable root = e;
+        if (e instanceof java.lang.reflect.InvocationTargetException ite && ite.getCause() != null) {
+            root = ite.getCause();
+        } else if (e.getCause() != null) {
+            root = e.getCause();
+        }
+        return (root.getMessage() != null) ? root.getMessage() : root.toString();
+    }
+
+    // ===================== BATCH =====================
+
+    // POST batchPath with [{method, path, params}, ...]: answers [ApiResponse, ...] in the same order.
+    // Consecutive GET/HEAD calls run in parallel on the bounded batch executor, each with its own
+    // snapshot of the session; any other call waits for the calls before it and runs alone on the
+    // container thread, so writes keep their order.
+    private void handleBatch(HttpServletRequest req, HttpServletResponse resp, long start) throws IOException {
+        batchMetrics.begin();
+        try {
+            List<BatchRequest> calls;
+            try {
+                BinaryFormat format = BinaryFormat.fromContentType(req.getContentType());
+                ValueReader body = (format != null) ? openBinaryBody(req, format) : openJsonBody(req);
+                calls = BatchRequest.parse(req, body, batchMaxCalls);
+            } catch (JsonParseException e) {
+                writeJsonError(resp, e.isTooLarge() ? 413 : HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
                 return;
             }
 
-            if (result instanceof ModelView mv) {
-                for (Map.Entry<String, Object> entry : mv.getData().entrySet()) {
-                    req.setAttribute(entry.getKey(), entry.getValue());
+            // Session and roles resolved once for the whole batch
+            Session session = Session.of(req);
+            long userMask = AuthorizationManager.getCurrentUserMask(session);
+            boolean loggedIn = AuthorizationManager.getCurrentUser(session) != null;
+
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(asyncTimeoutMs);
+            ApiResponse[] results = new ApiResponse[calls.size()];
+            List<CompletableFuture<ApiResponse>> running = new ArrayList<>();
+            int firstRunning = 0;
+
+            for (int i = 0; i < calls.size(); i++) {
+                BatchRequest call = calls.get(i);
+                if (call.isSafe() && calls.size() > 1) {
+                    session.snapshotFor(call);
+                    running.add(submitBatchCall(call, userMask, loggedIn));
+                    continue;
                 }
-                req.getRequestDispatcher("/WEB-INF/views/" + mv.getView()).forward(req, resp);
-                return;
+                awaitBatchCalls(calls, running, results, firstRunning, deadline);
+                results[i] = runBatchCall(call, userMask, loggedIn);
+                firstRunning = i + 1;
+            }
+            awaitBatchCalls(calls, running, results, firstRunning, deadline);
+
+            resp.setStatus(HttpServletResponse.SC_OK);
+            writeRest(req, resp, Arrays.asList(results));
+        } finally {
+            batchMetrics.end(resp.getStatus(), System.nanoTime() - start);
+        }
+    }
+
+    private CompletableFuture<ApiResponse> submitBatchCall(BatchRequest call, long userMask, boolean loggedIn) {
+        try {
+            return CompletableFuture.supplyAsync(() -> runBatchCall(call, userMask, loggedIn), batchExecutor);
+        } catch (RejectedExecutionException e) {
+            // pool and queue full: run on the container thread
+            return CompletableFuture.completedFuture(runBatchCall(call, userMask, loggedIn));
+        }
+    }
+
+    // Collects the running calls into results[from..]; calls still running at the deadline get a 503
+    // and are detached from the batch request, which is recycled once the batch has answered
+    private static void awaitBatchCalls(List<BatchRequest> calls, List<CompletableFuture<ApiResponse>> running,
+            ApiResponse[] results, int from, long deadline) {
+        for (int i = 0; i < running.size(); i++) {
+            CompletableFuture<ApiResponse> f = running.get(i);
+            BatchRequest call = calls.get(from + i);
+            try {
+                results[from + i] = f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                // runBatchCall turns exceptions into envelopes: only Errors get here
+                Log.error("Batch call {} {} failed", call.method, call.path, e.getCause());
+                results[from + i] = new ApiResponse(500, "error", errorMessage(e));
+            } catch (TimeoutException | InterruptedException e) {
+                if (e instanceof InterruptedException)
+                    Thread.currentThread().interrupt();
+                f.cancel(true); // doesn't interrupt a started call
+                call.cancel();
+                results[from + i] = new ApiResponse(503, "error", "Batch call timed out");
+            }
+        }
+        running.clear();
+    }
+
+    // Resolves, authorizes and invokes one call; never throws (errors become envelopes)
+    private ApiResponse runBatchCall(BatchRequest call, long userMask, boolean loggedIn) {
+        RouteIndex.Match match = routeTable.get().index.lookup(call.path, call.method);
+        if (match == null)
+            return new ApiResponse(404, "error", "Not Found: " + call.path);
+        RoutePattern route = match.route;
+        if (route == null)
+            return new ApiResponse(405, "error", "Method " + call.method + " Not Allowed on " + call.path);
+        if (!route.rest)
+            return new ApiResponse(400, "error", "Not a REST route: " + call.path);
+
+        if (route.roleMask != RoleRegistry.ALL && (route.roleMask & userMask) == 0) {
+            return loggedIn ? new ApiResponse(403, "error", "Forbidden: Access denied")
+                    : new ApiResponse(401, "error", "Unauthorized: Login required");
+        }
+
+        long start = System.nanoTime();
+        if (route.admission != null) {
+            int rejected = route.admission.admit(call);
+            if (rejected != Admission.ADMITTED) {
+                route.metrics.record(rejected, System.nanoTime() - start);
+                return new ApiResponse(rejected, "error",
+                        (rejected == Admission.RATE_LIMITED) ? "Too Many Requests" : "Service Unavailable");
+            }
+        }
+
+        route.metrics.begin();
+        ApiResponse response;
+        try {
+            Object result = route.invoker.invoke(call, match.params, this::getFilePartsByName);
+            if (result instanceof CompletionStage<?> stage)
+                result = await(stage);
+            if (isFileResult(result) || result instanceof Flow.Publisher<?>) {
+                // a batch answers envelopes only: files and publishers need their own response
+                response = new ApiResponse(HttpServletResponse.SC_NOT_ACCEPTABLE, "error",
+                        "Not available in a batch: " + call.path);
+            } else {
+                response = new ApiResponse(200, "success", result);
             }
+        } catch (Exception e) {
+            Throwable bad = (e instanceof JsonParseException) ? e : e.getCause();
+            if (bad instanceof JsonParseException jpe) {
+                response = new ApiResponse(HttpServletResponse.SC_BAD_REQUEST, "error", jpe.getMessage());
+            } else {
+                Log.error("Batch call {} {} failed", call.method, call.path, e);
+                response = new ApiResponse(500, "error", errorMessage(e));
+            }
+        }
+        endRoute(route, response.getCode(), start);
+        return response;
+    }
+
+    // ===================== METRICS =====================
+
+    private void writeMetrics(HttpServletResponse resp) throws IOException {
+        StringBuilder sb = new StringBuilder(4096);
+        List<RoutePattern> routes = routeTable.get().routes;
+        List<RouteMetrics> metrics = new ArrayList<>(routes.size() + 2);
+        List<Admission> admissions = new ArrayList<>();
+        for (RoutePattern rp : routes) {
+            metrics.add(rp.metrics);
+            if (rp.admission != null)
+                admissions.add(rp.admission);
+        }
+        metrics.add(unmatchedMetrics);
+        metrics.add(batchMetrics);
+
+        // Each family is one contiguous group: HELP/TYPE, then its samples for every route
+        sb.append("# HELP router_requests_total Requests handled, by route, method and status.\n");
+        sb.append("# TYPE router_requests_total counter\n");
+        for (RouteMetrics m : metrics)
+            m.writeRequests(sb);
+        sb.append("# HELP router_requests_in_flight Requests currently being handled.\n");
+        sb.append("# TYPE router_requests_in_flight gauge\n");
+        for (RouteMetrics m : metrics)
+            m.writeInFlight(sb);
+        sb.append("# HELP router_request_duration_seconds Request latency.\n");
+        sb.append("# TYPE router_request_duration_seconds histogram\n");
+        for (RouteMetrics m : metrics)
+            m.writeDuration(sb);
+        sb.append("# HELP router_request_duration_quantile_seconds Latency percentiles (bucket upper bound).\n");
+        sb.append("# TYPE router_request_duration_quantile_seconds gauge\n");
+        for (RouteMetrics m : metrics)
+            m.writeQuantiles(sb);
+
+        sb.append("# HELP router_admission_rejected_total Requests shed by admission control (503 overload, 429 rate).\n");
+        sb.append("# TYPE router_admission_rejected_total counter\n");
+        for (Admission a : admissions)
+            a.writeRejected(sb);
+        sb.append("# HELP router_admission_queue_depth Requests waiting for a concurrency slot.\n");
+        sb.append("# TYPE router_admission_queue_depth gauge\n");
+        for (Admission a : admissions)
+            a.writeQueueDepth(sb);
+
+        sb.append("# TYPE router_response_cache_hits_total counter\n");
+        sb.append("router_response_cache_hits_total ").append(responseCache.getHitCount()).append('\n');
+        sb.append("# TYPE router_response_cache_misses_total counter\n");
+        sb.append("router_response_cache_misses_total ").append(responseCache.getMissCount()).append('\n');
+        sb.append("# TYPE router_response_cache_evictions_total counter\n");
+        sb.append("router_response_cache_evictions_total ").append(responseCache.getEvictionCount()).append('\n');
+        sb.append("# TYPE router_response_cache_bytes gauge\n");
+        sb.append("router_response_cache_bytes ").append(responseCache.sizeInBytes()).append('\n');
+        sb.append("# TYPE router_sessions_avoided_total counter\n");
+        sb.append("router_sessions_avoided_total ").append(Session.getAvoidedSessionCount()).append('\n');
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        resp.getOutputStream().write(sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    // ===================== RESPONSE CACHE =====================
 
-            if (result instanceof String str) {
-                resp.getWriter().write(str);
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    private void serveCached(HttpServletRequest req, HttpServletResponse resp, RoutePattern route,
+            Map<String, String> params) throws IOException {
+        // REST variants are cached per negotiated format
+        BinaryFormat format = route.rest ? BinaryFormat.fromAccept(req.getHeader("Accept")) : null;
+        String key = cacheKey(req, route, params);
+        if (format != null)
+            key = key + '\u0003' + format.name();
+        ResponseCache.Entry entry = responseCache.get(key);
+
+        if (entry == null) {
+            try {
+                Object result = route.invoker.invoke(req, params, this::getFilePartsByName);
+                if (result instanceof CompletionStage<?> stage) {
+                    result = await(stage);
+                }
+                entry = render(resp, route, result, format);
+                if (entry == null) {
+                    // not cacheable (ModelView, ...): normal handling
+                    writeResult(req, resp, route, result, null);
+                    return;
+                }
+            } catch (Exception e) {
+                writeError(resp, route, e);
                 return;
             }
+            responseCache.put(key, entry);
+        }
+
+        boolean gzip = entry.gzip != null
+                && ResponseCompressor.GZIP.equals(compressor.negotiate(req, entry.contentType));
+        byte[] body = gzip ? entry.gzip : entry.body;
+        String etag = gzip ? entry.gzipEtag : entry.etag;
+
+        resp.setHeader("ETag", etag);
+        if (ResponseCompressor.isCompressible(entry.contentType))
+            resp.addHeader("Vary", "Accept-Encoding");
+        if (route.rest)
+            resp.addHeader("Vary", "Accept");
+        if (ResponseCache.matches(req.getHeader("If-None-Match"), etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        resp.setStatus(HttpServletResponse.SC_OK);
+        if (entry.contentType != null)
+            resp.setContentType(entry.contentType);
+        if (gzip)
+            resp.setHeader("Content-Encoding", ResponseCompressor.GZIP);
+        resp.setContentLength(body.length);
+        if (!"HEAD".equalsIgnoreCase(req.getMethod())) {
+            resp.getOutputStream().write(body);
+        }
+    }
+
+    // Same bytes writeResult would send, or null when the result can't be cached
+    // (files are sent from disk, publishers streamed)
+    private ResponseCache.Entry render(HttpServletResponse resp, RoutePattern route, Object result,
+            BinaryFormat format) {
+        if (isFileResult(result) || result instanceof Flow.Publisher<?>)
+            return null;
+        long ttl = route.cachePolicy.ttlMillis;
+        byte[] body;
+        String contentType;
+        if (route.rest && format != null) {
+            body = format.toBytes(new ApiResponse(200, "success", result));
+            contentType = format.mediaType;
+        } else if (route.rest) {
+            body = core.rest.JsonWriter.toBytes(new ApiResponse(200, "success", result));
+            contentType = "application/json;charset=UTF-8";
+        } else if (result instanceof String str) {
+            body = str.getBytes(java.nio.charset.Charset.forName(resp.getCharacterEncoding()));
+            contentType = resp.getContentType();
+        } else {
+            return null;
+        }
+        // store the gzip variant once instead of compressing on every hit
+        byte[] gzip = (ResponseCompressor.isCompressible(contentType) && body.length >= compressor.getMinSize())
+                ? compressor.compress(body, ResponseCompressor.GZIP)
+                : null;
+        return new ResponseCache.Entry(body, gzip, contentType, ttl);
+    }
+
+    private String cacheKey(HttpServletRequest req, RoutePattern route, Map<String, String> params) {
+        StringBuilder key = new StringBuilder(route.original);
+        for (String name : route.paramNames) {
+            key.append('\u0000').append(params.get(name));
+        }
+        for (String name : route.cachePolicy.params) {
+            String[] values = req.getParameterValues(name);
+            key.append('\u0001').append(name).append('=');
+            if (values != null)
+                key.append(String.join("\u0001", values));
+        }
+        if (route.cachePolicy.perRole) {
+            key.append('\u0002').append(String.join(",", AuthorizationManager.getCurrentUserRoles(Session.of(req))));
+        }
+        return key.toString();
+    }
 
-            resp.getWriter().write("Unsupported return type from controller");
+    // ===================== ASYNC EXECUTION =====================
 
+    private Object invokeUnchecked(RoutePattern route, HttpServletRequest req, Map<String, String> params) {
+        try {
+            return route.invoker.invoke(req, params, this::getFilePartsByName);
         } catch (Exception e) {
-            e.printStackTrace();
+            throw new CompletionException(e);
+        }
+    }
+
+    // A handler may itself return a CompletionStage: wait for the inner value
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Object> flatten(Object result) {
+        if (result instanceof CompletionStage<?> stage) {
+            return ((CompletionStage<Object>) stage).toCompletableFuture().thenCompose(RouterServlet::flatten);
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    private static Object await(CompletionStage<?> stage) throws Exception {
+        try {
+            return flatten(stage).get();
+        } catch (ExecutionException e) {
+            throw unwrapAsync(e);
+        }
+    }
 
-            // unwrap InvocationTargetException (common when method.invoke throws)
-            Throwable root = e;
-            if (e instanceof java.lang.reflect.InvocationTargetException ite && ite.getCause() != null) {
-                root = ite.getCause();
-            } else if (e.getCause() != null) {
-                root = e.getCause();
+    // Writes the result (or error) once the future completes, then completes the AsyncContext.
+    // The timeout answers 503 if the handler is still running.
+    private void completeAsync(AsyncContext ctx, RoutePattern route, CompletableFuture<Object> future, long start) {
+        HttpServletRequest req = (HttpServletRequest) ctx.getRequest();
+        HttpServletResponse resp = (HttpServletResponse) ctx.getResponse();
+        AtomicBoolean done = new AtomicBoolean();
+
+        ctx.setTimeout(asyncTimeoutMs);
+        ctx.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (!done.compareAndSet(false, true))
+                    return;
+                future.cancel(true);
+                String path = req.getRequestURI().replace(req.getContextPath(), "");
+                if (route.rest || isApiPath(path)) {
+                    writeJsonError(resp, 503, "Request timed out: " + path);
+                } else {
+                    resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    resp.getWriter().write("503 - Request timed out: " + path);
+                }
+                endAsyncRoute(req, resp, route, HttpServletResponse.SC_SERVICE_UNAVAILABLE, start);
+                ctx.complete();
             }
 
-            String msg = (root.getMessage() != null) ? root.getMessage() : root.toString();
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
 
-            boolean isRest = matchedByMethod != null &&
-                    (matchedByMethod.controller.getClass().isAnnotationPresent(RestAPI.class)
-                            || matchedByMethod.method.isAnnotationPresent(RestAPI.class));
+            @Override
+            public void onError(AsyncEvent event) {
+                if (!done.compareAndSet(false, true))
+                    return;
+                future.cancel(true);
+                endAsyncRoute(req, resp, route, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, start);
+            }
 
-            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
 
-            if (isRest) {
-                resp.setContentType("application/json;charset=UTF-8");
-                ApiResponse api = new ApiResponse(500, "error", msg);
-                resp.getWriter().write(toJson(api));
-            } else {
-                resp.getWriter().write("500 - Server error: " + msg);
+        future.whenComplete((result, failure) -> {
+            if (!done.compareAndSet(false, true))
+                return;
+            boolean dispatched = false;
+            try {
+                if (failure != null) {
+                    writeError(resp, route, unwrapAsync(failure));
+                } else {
+                    writeResult(req, resp, route, result, ctx);
+                    dispatched = result instanceof ModelView mv && !route.rest && !isTemplateView(mv)
+                            && !"HEAD".equalsIgnoreCase(req.getMethod());
+                }
+            } catch (Exception e) {
+                try {
+                    writeError(resp, route, e);
+                } catch (IOException ignored) {
+                    // client gone
+                }
+            } finally {
+                endAsyncRoute(req, resp, route, resp.getStatus(), start);
+                if (!dispatched)
+                    ctx.complete();
             }
+        });
+    }
+
+    private static Exception unwrapAsync(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
         }
+        return (t instanceof Exception e) ? e : new java.lang.reflect.InvocationTargetException(t);
+    }
+
+    // Virtual threads when the JVM has them (Java 21+), otherwise a bounded pool
+    private static ExecutorService newAsyncExecutor(int poolSize) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger n = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "router-async-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
 
+    // Fixed pool with a bounded queue: a batch can't fan out beyond it, whatever its size
+    private static ExecutorService newBatchExecutor(int threads) {
+        AtomicInteger n = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4), r -> {
+                    Thread t = new Thread(r, "router-batch-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncExecutor != null)
+            asyncExecutor.shutdown();
+        if (batchExecutor != null)
+            batchExecutor.shutdown();
+        SessionStore store = Session.getStore();
+        if (store != null) {
+            Session.setStore(null, null);
+            store.close();
+        }
+        AuthorizationManager.useTokens(null); // drops the keys and their pooled Macs
+        Log.shutdown(1000);
     }
 
     // ===================== SPRINT 10: MULTIPART HELPERS =====================
@@ -313,10 +1264,21 @@ public class RouterServlet extends HttpServlet {
         return ct != null && ct.toLowerCase().startsWith("multipart/");
     }
 
+    private static final String FILE_PARTS_ATTRIBUTE = "core.RouterServlet.fileParts";
+
+    // Only called for routes whose invoker needs files; the parsed map is kept on the
+    // request so the body is parsed at most once (e.g. across forwards or sub-dispatches).
+    @SuppressWarnings("unchecked")
     private java.util.Map<String, jakarta.servlet.http.Part> getFilePartsByName(HttpServletRequest req) {
-        java.util.Map<String, jakarta.servlet.http.Part> map = new java.util.HashMap<>();
         if (!isMultipart(req))
-            return map;
+            return java.util.Collections.emptyMap();
+
+        Object cached = req.getAttribute(FILE_PARTS_ATTRIBUTE);
+        if (cached != null)
+            return (java.util.Map<String, jakarta.servlet.http.Part>) cached;
+
+        java.util.Map<String, jakarta.servlet.http.Part> map = new java.util.HashMap<>();
+        req.setAttribute(FILE_PARTS_ATTRIBUTE, map);
 
         try {
             for (jakarta.servlet.http.Part part : req.getParts()) {
@@ -332,10 +1294,7 @@ public class RouterServlet extends HttpServlet {
     }
 
     private core.FileUpload toFileUpload(jakarta.servlet.http.Part part) throws IOException {
-        String fileName = part.getSubmittedFileName();
-        String contentType = part.getContentType();
-        byte[] bytes = part.getInputStream().readAllBytes();
-        return new core.FileUpload(fileName, bytes, contentType);
+        return core.FileUpload.fromPart(part);
     }
 
     // ===================== END SPRINT 10 HELPERS =====================
@@ -359,169 +1318,56 @@ public class RouterServlet extends HttpServlet {
         return data;
     }
 
-    // ===================== SPRINT 10: POJO + FileUpload =====================
-  private Object buildObjectFromRequest(Class<?> clazz, HttpServletRequest req) throws Exception {
-     //Special case: don't instantiate Session reflectively
-    if (clazz == core.Session.class) {
-        return new core.Session(req.getSession());
-    }
-
-    // Step 1: Create main object via no-arg constructor
-    Object obj = clazz.getDeclaredConstructor().newInstance();
-
-    // Step 2: pre-load file parts once (merge-friendly)
-    java.util.Map<String, jakarta.servlet.http.Part> fileParts = getFilePartsByName(req);
-
-    // Step 3: populate fields
-    for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
-        field.setAccessible(true);
-
-        String name = field.getName();
-        Class<?> type = field.getType();
-
-        // ===== SPRINT 11: Session Injection =====
-        if (type == core.Session.class) {
-            // Directly inject Session; DO NOT call newInstance() on Session
-            field.set(obj, new core.Session(req.getSession()));
-            continue;
-        }
-
-        // ---- SPRINT 10: FileUpload field in VO/POJO ----
-        if (type == core.FileUpload.class) {
-            jakarta.servlet.http.Part part = fileParts.get(name);
-            if (part != null) {
-                field.set(obj, toFileUpload(part));
-            }
-            continue;
-        }
-
-        // ---- Handle regular request parameters ----
-        String[] values = req.getParameterValues(name);
-        if (values == null || values.length == 0)
-            continue;
-
-        // ---- MULTI VALUE ----
-        if (java.util.List.class.isAssignableFrom(type)) {
-            field.set(obj, java.util.Arrays.asList(values));
-            continue;
-        }
-
-        if (type.isArray() && type.getComponentType() == String.class) {
-            field.set(obj, values);
-            continue;
-        }
+    // ===================== REST JSON =====================
 
-        // ---- SINGLE VALUE ----
-        String raw = values[0];
-        Object converted;
+    // Streams UTF-8 JSON straight to the response (no intermediate Strings)
+    private void writeJson(HttpServletResponse resp, Object obj) throws IOException {
+        core.rest.JsonWriter json = new core.rest.JsonWriter(resp.getOutputStream());
+        json.write(obj);
+        json.flush();
+    }
 
-        if (type == String.class) {
-            converted = raw;
-        } else if (type == int.class || type == Integer.class) {
-            converted = Integer.parseInt(raw);
-        } else if (type == long.class || type == Long.class) {
-            converted = Long.parseLong(raw);
-        } else if (type == double.class || type == Double.class) {
-            converted = Double.parseDouble(raw);
-        } else if (type == boolean.class || type == Boolean.class) {
-            converted = raw.equalsIgnoreCase("true") || raw.equalsIgnoreCase("on") || raw.equals("1");
-        } else {
-            converted = raw;
+    // Same, through the compression stage (gzip/deflate above compressionMinBytes)
+    private void writeJson(HttpServletRequest req, HttpServletResponse resp, Object obj) throws IOException {
+        java.io.OutputStream out = compressor.open(resp, compressor.negotiate(req, resp.getContentType()));
+        boolean complete = false;
+        try {
+            core.rest.JsonWriter json = new core.rest.JsonWriter(out);
+            json.write(obj);
+            json.flush();
+            complete = true;
+        } finally {
+            // always give the pooled Deflater back, even when serialization throws
+            if (complete)
+                out.close();
+            else
+                compressor.abandon(out);
         }
-
-        field.set(obj, converted);
     }
 
-    return obj;
-}
-
-    
-
-    // ===================== REST JSON =====================
-
-    private String toJson(Object obj) {
-        if (obj == null)
-            return "null";
-
-        if (obj instanceof String s)
-            return "\"" + escapeJson(s) + "\"";
-        if (obj instanceof Number || obj instanceof Boolean)
-            return obj.toString();
-
-        if (obj instanceof java.util.Map<?, ?> map)
-            return toJsonMap(map);
-        if (obj instanceof Iterable<?> it)
-            return toJsonIterable(it);
-        if (obj.getClass().isArray())
-            return toJsonArray(obj);
-
-        return toJsonObject(obj);
-    }
-
-    private String escapeJson(String s) {
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
-    }
-
-    private String toJsonMap(java.util.Map<?, ?> map) {
-        StringBuilder sb = new StringBuilder("{");
-        boolean first = true;
-        for (var e : map.entrySet()) {
-            if (!first)
-                sb.append(",");
-            first = false;
-            sb.append("\"").append(escapeJson(String.valueOf(e.getKey()))).append("\":");
-            sb.append(toJson(e.getValue()));
-        }
-        sb.append("}");
-        return sb.toString();
-    }
-
-    private String toJsonIterable(Iterable<?> it) {
-        StringBuilder sb = new StringBuilder("[");
-        boolean first = true;
-        for (Object v : it) {
-            if (!first)
-                sb.append(",");
-            first = false;
-            sb.append(toJson(v));
-        }
-        sb.append("]");
-        return sb.toString();
-    }
-
-    private String toJsonArray(Object arr) {
-        int len = java.lang.reflect.Array.getLength(arr);
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < len; i++) {
-            if (i > 0)
-                sb.append(",");
-            sb.append(toJson(java.lang.reflect.Array.get(arr, i)));
-        }
-        sb.append("]");
-        return sb.toString();
-    }
-
-    private String toJsonObject(Object obj) {
-        StringBuilder sb = new StringBuilder("{");
-        boolean first = true;
-        for (java.lang.reflect.Field f : obj.getClass().getDeclaredFields()) {
-            f.setAccessible(true);
-            try {
-                Object val = f.get(obj);
-                if (!first)
-                    sb.append(",");
-                first = false;
-                sb.append("\"").append(escapeJson(f.getName())).append("\":");
-                sb.append(toJson(val));
-            } catch (Exception ignored) {
-            }
+    // JSON, or CBOR / MessagePack when the client's Accept header prefers them
+    private void writeRest(HttpServletRequest req, HttpServletResponse resp, Object obj) throws IOException {
+        BinaryFormat format = BinaryFormat.fromAccept(req.getHeader("Accept"));
+        resp.addHeader("Vary", "Accept");
+        if (format == null) {
+            resp.setContentType("application/json;charset=UTF-8");
+            writeJson(req, resp, obj);
+            return;
+        }
+        resp.setContentType(format.mediaType);
+        java.io.OutputStream out = compressor.open(resp, compressor.negotiate(req, format.mediaType));
+        boolean complete = false;
+        try {
+            BinaryWriter writer = format.newWriter(out);
+            writer.write(obj);
+            writer.flush();
+            complete = true;
+        } finally {
+            if (complete)
+                out.close();
+            else
+                compressor.abandon(out);
         }
-        sb.append("}");
-        return sb.toString();
     }
 
     private boolean isApiPath(String path) {
@@ -532,90 +1378,153 @@ public class RouterServlet extends HttpServlet {
         resp.setStatus(code);
         resp.setContentType("application/json;charset=UTF-8");
         core.rest.ApiResponse api = new core.rest.ApiResponse(code, "error", msg);
-        resp.getWriter().write(toJson(api));
+        writeJson(resp, api);
     }
 
     // ===================== PARAM INJECTION (Sprint 6/7 + Sprint 10)
     // =====================
 
-    private Object[] injectParameters(Method method, HttpServletRequest req, Map<String, String> pathParams) {
-        Object[] params = new Object[method.getParameterCount()];
+    // Built once per route: decides the binding mode and resolves every
+    // parameter's key, type and converter up front.
+    private RouteInvoker compileInvoker(Method method, Object controller, RouteInvoker.Target target,
+            boolean rest) {
+        java.lang.reflect.Parameter[] parameters = method.getParameters();
+        RouteInvoker.ArgResolver[] resolvers = new RouteInvoker.ArgResolver[parameters.length];
+
+        if (parameters.length == 1 && Map.class.isAssignableFrom(parameters[0].getType())) {
+            // Sprint 8 (Map)
+            resolvers[0] = (req, pathParams, fileParts) -> pathParams;
+            return new RouteInvoker(method, controller, target, resolvers, false);
+        }
+
+        if (parameters.length == 1 && isValueObject(parameters[0].getType())) {
+            // Sprint 8-bis (Value Object / POJO): compiled binder, see ObjectBinder
+            Class<?> paramType = parameters[0].getType();
+            if (rest && paramType != core.Session.class) {
+                // @RestAPI: a JSON, CBOR or MessagePack body (POST/PUT/PATCH) is streamed into the object instead
+                resolvers[0] = (req, pathParams, fileParts) -> {
+                    ValueReader body = openBody(req);
+                    return (body != null)
+                            ? ObjectBinder.bindJson(paramType, req, body)
+                            : ObjectBinder.bind(paramType, req, fileParts);
+                };
+            } else {
+                resolvers[0] = (req, pathParams, fileParts) -> ObjectBinder.bind(paramType, req, fileParts);
+            }
+            return new RouteInvoker(method, controller, target, resolvers, ObjectBinder.mayBindFiles(paramType));
+        }
+
+        // Sprint 6/7 - classic injection
+        boolean usesFileParts = false;
+        for (int i = 0; i < parameters.length; i++) {
+            resolvers[i] = compileResolver(parameters[i]);
+            usesFileParts |= parameters[i].getType() == core.FileUpload.class;
+        }
+        return new RouteInvoker(method, controller, target, resolvers, usesFileParts);
+    }
+
+    // Reader over a POST/PUT/PATCH body in one of the structured formats; null for forms and the rest
+    private ValueReader openBody(HttpServletRequest req) throws IOException {
+        String method = req.getMethod();
+        if (!"POST".equals(method) && !"PUT".equals(method) && !"PATCH".equals(method))
+            return null;
+        String ct = req.getContentType();
+        if (ct == null)
+            return null;
+        String lower = ct.toLowerCase(java.util.Locale.ROOT);
+        if (lower.startsWith("application/json") || lower.contains("+json"))
+            return openJsonBody(req);
+        BinaryFormat format = BinaryFormat.fromContentType(ct);
+        return (format != null) ? openBinaryBody(req, format) : null;
+    }
 
-        // SPRINT 10: prepare file parts once (merge-friendly)
-        java.util.Map<String, jakarta.servlet.http.Part> fileParts = getFilePartsByName(req);
+    // Body is pulled token by token; Content-Length is checked up front, chunked bodies while reading
+    private JsonReader openJsonBody(HttpServletRequest req) throws IOException {
+        long length = req.getContentLengthLong();
+        if (length > maxJsonBodyBytes)
+            throw new JsonParseException("Request body exceeds " + maxJsonBodyBytes + " bytes", true);
+        int buffer = (length > 0 && length < 8192) ? (int) length : 8192;
+        return new JsonReader(req.getInputStream(), maxJsonBodyBytes, buffer);
+    }
 
-        for (int i = 0; i < method.getParameterCount(); i++) {
+    // Same limits (maxJsonBodyBytes) for CBOR / MessagePack bodies
+    private ValueReader openBinaryBody(HttpServletRequest req, BinaryFormat format) throws IOException {
+        long length = req.getContentLengthLong();
+        if (length > maxJsonBodyBytes)
+            throw new JsonParseException("Request body exceeds " + maxJsonBodyBytes + " bytes", true);
+        int buffer = (length > 0 && length < 8192) ? (int) length : 8192;
+        return format.newReader(req.getInputStream(), maxJsonBodyBytes, buffer);
+    }
 
-            java.lang.reflect.Parameter parameter = method.getParameters()[i];
-            Class<?> paramType = parameter.getType();
-            String paramName = parameter.getName();
+    // POJO binding applies to a lone parameter that is neither a servlet/framework type nor a scalar
+    private boolean isValueObject(Class<?> type) {
+        return type != HttpServletRequest.class
+                && type != HttpServletResponse.class
+                && type != core.Session.class
+                && type != core.FileUpload.class
+                && !type.isPrimitive()
+                && type != String.class
+                && !Number.class.isAssignableFrom(type)
+                && type != Boolean.class;
+    }
 
-            // ORDER 1: Check @RequestParam annotation
-            core.annotation.RequestParam rp = parameter.getAnnotation(core.annotation.RequestParam.class);
-            String key = (rp != null) ? rp.value() : paramName;
+    private RouteInvoker.ArgResolver compileResolver(java.lang.reflect.Parameter parameter) {
+        Class<?> paramType = parameter.getType();
 
-            // ----------------- SPRINT 10: direct FileUpload parameter -----------------
-            if (paramType == core.FileUpload.class) {
+        // ORDER 1: Check @RequestParam annotation
+        core.annotation.RequestParam rp = parameter.getAnnotation(core.annotation.RequestParam.class);
+        String key = (rp != null) ? rp.value() : parameter.getName();
+
+        // ----------------- SPRINT 10: direct FileUpload parameter -----------------
+        if (paramType == core.FileUpload.class) {
+            return (req, pathParams, fileParts) -> {
                 jakarta.servlet.http.Part part = fileParts.get(key);
-                if (part != null) {
-                    try {
-                        params[i] = toFileUpload(part);
-                    } catch (IOException ex) {
-                        throw new RuntimeException("Failed to read uploaded file: " + key, ex);
-                    }
-                } else {
-                    params[i] = null; // or throw if required
+                if (part == null)
+                    return null; // or throw if required
+                try {
+                    return toFileUpload(part);
+                } catch (IOException ex) {
+                    throw new RuntimeException("Failed to read uploaded file: " + key, ex);
                 }
-                continue;
-            }
-            // -------------------------------------------------------------------------
-            // ===================== SPRINT 11: Session Injection =====================
-            if (paramType == core.Session.class) {
-                jakarta.servlet.http.HttpSession httpSession = req.getSession();
-                params[i] = new core.Session(httpSession);
-                continue;
-            }
-            // -------------------------------------------------------------------------
-            String rawValue = null;
+            };
+        }
+        // ===================== SPRINT 11: Session Injection =====================
+        if (paramType == core.Session.class) {
+            return (req, pathParams, fileParts) -> core.Session.of(req);
+        }
+        if (paramType == HttpServletRequest.class) {
+            return (req, pathParams, fileParts) -> req;
+        }
+        if (paramType == HttpServletResponse.class) {
+            return (req, pathParams, fileParts) -> null; // you can support resp injection if you want later
+        }
+        // -------------------------------------------------------------------------
+
+        // Convert to correct type
+        java.util.function.Function<String, Object> converter;
+
+        if (paramType == int.class || paramType == Integer.class) {
+            converter = raw -> (raw != null) ? Integer.parseInt(raw) : 0;
+        } else if (paramType == boolean.class || paramType == Boolean.class) {
+            converter = raw -> (raw != null) ? Boolean.parseBoolean(raw) : false;
+        } else if (paramType == long.class || paramType == Long.class) {
+            converter = raw -> (raw != null) ? Long.parseLong(raw) : 0L;
+        } else if (paramType == double.class || paramType == Double.class) {
+            converter = raw -> (raw != null) ? Double.parseDouble(raw) : 0.0;
+        } else {
+            converter = raw -> raw;
+        }
 
+        return (req, pathParams, fileParts) -> {
             // ORDER 2: URL {variables}
-            if (pathParams != null && pathParams.containsKey(key)) {
-                rawValue = pathParams.get(key);
-            }
+            String rawValue = (pathParams != null) ? pathParams.get(key) : null;
 
             // ORDER 3: query string / form
             if (rawValue == null) {
                 rawValue = req.getParameter(key);
             }
-
-            // Convert to correct type
-            Object converted;
-
-            if (paramType == String.class) {
-                converted = rawValue;
-            } else if (paramType == int.class || paramType == Integer.class) {
-                converted = (rawValue != null) ? Integer.parseInt(rawValue) : 0;
-            } else if (paramType == boolean.class || paramType == Boolean.class) {
-                converted = (rawValue != null) ? Boolean.parseBoolean(rawValue) : false;
-            } else if (paramType == long.class || paramType == Long.class) {
-                converted = (rawValue != null) ? Long.parseLong(rawValue) : 0L;
-            } else if (paramType == double.class || paramType == Double.class) {
-                converted = (rawValue != null) ? Double.parseDouble(rawValue) : 0.0;
-            } else if (paramType == HttpServletRequest.class) {
-                converted = req;
-            } else if (paramType == HttpServletResponse.class) {
-                converted = null; // you can support resp injection if you want later
-            }else if (paramType == core.Session.class) {
-                 converted = new core.Session(req.getSession());
-            }else {
-                converted = rawValue;
-            }
-
-
-            params[i] = converted;
-        }
-
-        return params;
+            return converter.apply(rawValue);
+        };
     }
 }
 
@@ -1,49 +1,287 @@
 package core;
 
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Session wrapper (Sprint 11).
+ * Built from a request it is lazy: reads use getSession(false) and the HttpSession
+ * (plus its cookie) is only created by the first {@link #set}.
+ *
+ * With a {@link SessionStore} installed (init-param sessionStore) attributes live in the store
+ * instead, under an id carried by the framework's own cookie, so they survive across nodes.
+ */
 public class Session {
 
-    private final HttpSession httpSession;
+    // Requests that got a Session but never needed an HttpSession created
+    private static final LongAdder avoided = new LongAdder();
+
+    // External store, null => the container's HttpSession
+    private static volatile SessionStore store;
+    private static volatile String cookieName = "CORESESSIONID";
+    private static final String RESPONSE_ATTRIBUTE = "core.Session.response";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final HttpServletRequest request;
+    private HttpSession httpSession;
+    private boolean counted;
+
+    // store mode: id from the cookie (resolved once), live once known to exist in the store
+    private String storeId;
+    private boolean storeIdResolved;
+    private boolean storeLive;
+
+    // token mode (AuthorizationManager): the request's verified token, resolved once
+    TokenAuth.Principal principal;
+    boolean principalResolved;
 
     public Session(HttpSession session) {
-        System.out.println("Session constructor called. httpSession=" + session);
+        this.request = null;
         this.httpSession = session;
     }
 
+    public Session(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    private static final String REQUEST_ATTRIBUTE = "core.Session";
+
+    /** The request's shared lazy wrapper (auth check, parameter and field injection use the same one). */
+    public static Session of(HttpServletRequest request) {
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof Session s)
+            return s;
+        Session s = new Session(request);
+        request.setAttribute(REQUEST_ATTRIBUTE, s);
+        return s;
+    }
+
+    /**
+     * A copy of this wrapper, resolved now, installed as the Session of a batch sub-call:
+     * parallel sub-calls then never share (and race on) this wrapper's lazy state.
+     */
+    Session snapshotFor(HttpServletRequest call) {
+        if (usesStore()) {
+            String id = storeId();
+            if (id != null && !storeLive)
+                storeLive = store.exists(id);
+        } else {
+            existing();
+        }
+        Session s = new Session(call);
+        s.httpSession = httpSession;
+        s.counted = true; // already counted (or not) by this wrapper
+        s.storeId = storeId;
+        s.storeIdResolved = storeIdResolved;
+        s.storeLive = storeLive;
+        s.principal = principal;
+        s.principalResolved = principalResolved;
+        call.setAttribute(REQUEST_ATTRIBUTE, s);
+        return s;
+    }
+
+    public static long getAvoidedSessionCount() {
+        return avoided.sum();
+    }
+
+    public static void setStore(SessionStore sessionStore, String cookie) {
+        store = sessionStore;
+        if (cookie != null)
+            cookieName = cookie;
+    }
+
+    public static SessionStore getStore() {
+        return store;
+    }
+
+    /** Response that receives the store's session (or token) cookie; RouterServlet attaches it to each request. */
+    public static void attachResponse(HttpServletRequest request, HttpServletResponse response) {
+        request.setAttribute(RESPONSE_ATTRIBUTE, response);
+    }
+
+    private HttpSession existing() {
+        if (httpSession == null && request != null) {
+            httpSession = request.getSession(false);
+            if (httpSession == null && !counted) {
+                counted = true;
+                avoided.increment();
+            }
+        }
+        return httpSession;
+    }
+
+    private HttpSession create() {
+        if (existing() == null && request != null) {
+            httpSession = request.getSession(true);
+            if (counted) {
+                counted = false;
+                avoided.decrement();
+            }
+        }
+        return httpSession;
+    }
+
     public Object get(String key) {
-        return httpSession.getAttribute(key);
+        if (usesStore()) {
+            String id = storeId();
+            return (id != null) ? store.get(id, key) : null;
+        }
+        HttpSession s = existing();
+        return (s != null) ? s.getAttribute(key) : null;
     }
 
     public void set(String key, Object value) {
-        httpSession.setAttribute(key, value);
+        if (usesStore()) {
+            store.set(liveStoreId(), key, value);
+            return;
+        }
+        create().setAttribute(key, value);
     }
 
     public void remove(String key) {
-        httpSession.removeAttribute(key);
+        if (usesStore()) {
+            String id = storeId();
+            if (id != null)
+                store.remove(id, key);
+            return;
+        }
+        HttpSession s = existing();
+        if (s != null)
+            s.removeAttribute(key);
     }
 
     public boolean contains(String key) {
-        return httpSession.getAttribute(key) != null;
+        return get(key) != null;
     }
 
     public Map<String, Object> getAll() {
+        if (usesStore()) {
+            String id = storeId();
+            return (id != null) ? new HashMap<>(store.getAll(id)) : new HashMap<>();
+        }
         Map<String, Object> map = new HashMap<>();
-        var names = httpSession.getAttributeNames();
+        HttpSession s = existing();
+        if (s == null)
+            return map;
+        var names = s.getAttributeNames();
         while (names.hasMoreElements()) {
             String name = names.nextElement();
-            map.put(name, httpSession.getAttribute(name));
+            map.put(name, s.getAttribute(name));
         }
         return map;
     }
 
     public void invalidate() {
-        httpSession.invalidate();
+        if (usesStore()) {
+            String id = storeId();
+            if (id != null) {
+                store.invalidate(id);
+                writeCookie(cookieName, null, -1); // a later set() starts a new session under a new id
+            }
+            storeId = null;
+            storeLive = false;
+            return;
+        }
+        HttpSession s = existing();
+        if (s != null)
+            s.invalidate();
+        httpSession = null;
     }
 
+    /** Session id, or null while no HttpSession exists. */
     public String getId() {
-        return httpSession.getId();
+        if (usesStore()) {
+            String id = storeId();
+            if (id != null && !storeLive)
+                storeLive = store.exists(id);
+            return storeLive ? id : null;
+        }
+        HttpSession s = existing();
+        return (s != null) ? s.getId() : null;
+    }
+
+    HttpServletRequest getRequest() {
+        return request;
+    }
+
+    // ===================== STORE MODE =====================
+
+    private boolean usesStore() {
+        return store != null && request != null;
+    }
+
+    private String storeId() {
+        if (!storeIdResolved) {
+            storeIdResolved = true;
+            Cookie[] cookies = request.getCookies();
+            if (cookies != null) {
+                for (Cookie c : cookies) {
+                    if (c.getName().equals(cookieName) && isValidId(c.getValue())) {
+                        storeId = c.getValue();
+                        break;
+                    }
+                }
+            }
+            if (storeId == null && !counted) {
+                counted = true;
+                avoided.increment();
+            }
+        }
+        return storeId;
+    }
+
+    // The id to write to: a new one (and cookie) unless the client's id names a live session,
+    // so a client can't pick its own session id
+    private String liveStoreId() {
+        String id = storeId();
+        if (id != null && !storeLive)
+            storeLive = store.exists(id);
+        if (!storeLive) {
+            byte[] random = new byte[16];
+            RANDOM.nextBytes(random);
+            storeId = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+            storeLive = true;
+            writeCookie(cookieName, storeId, -1);
+            if (counted) {
+                counted = false;
+                avoided.decrement();
+            }
+        }
+        return storeId;
+    }
+
+    private static boolean isValidId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MappedSessionStore.MAX_ID)
+            return false;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(Character.isLetterOrDigit(c) && c < 128) && c != '-' && c != '_')
+                return false;
+        }
+        return true;
+    }
+
+    // HttpOnly cookie on the attached response; a null value expires it, maxAge < 0 = browser session
+    void writeCookie(String name, String value, long maxAgeSeconds) {
+        Object attached = request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (!(attached instanceof HttpServletResponse response))
+            throw new IllegalStateException("No response attached to carry the " + name + " cookie");
+        String path = request.getContextPath().isEmpty() ? "/" : request.getContextPath();
+        StringBuilder sb = new StringBuilder(name).append('=').append((value != null) ? value : "")
+                .append("; Path=").append(path).append("; HttpOnly; SameSite=Lax");
+        if (value == null)
+            sb.append("; Max-Age=0");
+        else if (maxAgeSeconds >= 0)
+            sb.append("; Max-Age=").append(maxAgeSeconds);
+        if (request.isSecure())
+            sb.append("; Secure");
+        response.addHeader("Set-Cookie", sb.toString());
     }
 }
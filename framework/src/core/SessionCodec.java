@@ -0,0 +1,305 @@
+package core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of session attributes for {@link SessionStore}s.
+ * A record is a sequence of (key, tag, value): lengths and integers are varints, Strings UTF-8,
+ * String[] (the roles of AuthorizationManager) native, and any other Serializable falls back to
+ * Java serialization, read back through an allow-list filter. Single attributes are found and
+ * replaced without decoding the others.
+ */
+public final class SessionCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte TRUE = 4;
+    private static final byte FALSE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte STRING_ARRAY = 7;
+    private static final byte SERIALIZED = 8;
+
+    // Serialized values may only be JDK value types, framework or application (app.**) classes, plus
+    // what allowClasses adds: the store file is shared, so its bytes are not trusted
+    private static final String ALLOWED = "maxdepth=32;maxrefs=100000;java.lang.*;java.util.*;java.time.*;"
+            + "java.math.*;core.**;app.**";
+    private static volatile ObjectInputFilter filter = createFilter(null);
+
+    private SessionCodec() {
+    }
+
+    /**
+     * Adds classes session attributes may deserialize to (init-param sessionSerialFilter),
+     * as {@link ObjectInputFilter.Config#createFilter} patterns: "com.example.model.*;com.acme.**".
+     */
+    public static void allowClasses(String patterns) {
+        filter = createFilter(patterns);
+    }
+
+    private static ObjectInputFilter createFilter(String patterns) {
+        String extra = (patterns == null || patterns.isBlank()) ? "" : patterns.trim() + ";";
+        return ObjectInputFilter.Config.createFilter(ALLOWED + ";" + extra + "!*");
+    }
+
+    /** Value of key in data[0..len), or null. */
+    public static Object find(byte[] data, int len, String key) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int[] pos = { 0 };
+        while (pos[0] < len) {
+            int keyLen = readVarint(data, pos);
+            int keyStart = pos[0];
+            pos[0] += keyLen;
+            if (Arrays.equals(data, keyStart, keyStart + keyLen, k, 0, k.length))
+                return readValue(data, pos);
+            skipValue(data, pos);
+        }
+        return null;
+    }
+
+    public static Map<String, Object> decodeAll(byte[] data, int len) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        int[] pos = { 0 };
+        while (pos[0] < len) {
+            int keyLen = readVarint(data, pos);
+            String key = new String(data, pos[0], keyLen, StandardCharsets.UTF_8);
+            pos[0] += keyLen;
+            map.put(key, readValue(data, pos));
+        }
+        return map;
+    }
+
+    /** data[0..len) with key set to value (removed when value is null). */
+    public static byte[] put(byte[] data, int len, String key, Object value) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(len + 64);
+        int[] pos = { 0 };
+        while (pos[0] < len) {
+            int entryStart = pos[0];
+            int keyLen = readVarint(data, pos);
+            int keyStart = pos[0];
+            pos[0] += keyLen;
+            skipValue(data, pos);
+            if (!Arrays.equals(data, keyStart, keyStart + keyLen, k, 0, k.length))
+                out.write(data, entryStart, pos[0] - entryStart);
+        }
+        if (value != null) {
+            writeVarint(out, k.length);
+            out.write(k, 0, k.length);
+            writeValue(out, value);
+        }
+        return out.toByteArray();
+    }
+
+    // ===================== VALUES =====================
+
+    private static void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value instanceof String s) {
+            out.write(STRING);
+            writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Integer i) {
+            out.write(INT);
+            writeVarint(out, (i << 1) ^ (i >> 31));
+        } else if (value instanceof Long l) {
+            out.write(LONG);
+            writeVarLong(out, (l << 1) ^ (l >> 63));
+        } else if (value instanceof Boolean b) {
+            out.write(b ? TRUE : FALSE);
+        } else if (value instanceof Double d) {
+            out.write(DOUBLE);
+            long bits = Double.doubleToLongBits(d);
+            for (int shift = 56; shift >= 0; shift -= 8)
+                out.write((int) (bits >>> shift));
+        } else if (value instanceof String[] array) {
+            out.write(STRING_ARRAY);
+            writeVarint(out, array.length);
+            for (String s : array) {
+                if (s == null) {
+                    writeVarint(out, 0); // length+1, 0 => null element
+                } else {
+                    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(out, b.length + 1);
+                    out.write(b, 0, b.length);
+                }
+            }
+        } else if (value instanceof Serializable) {
+            out.write(SERIALIZED);
+            writeBytes(out, serialize(value));
+        } else {
+            throw new IllegalArgumentException("Session attribute is not Serializable: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(byte[] data, int[] pos) {
+        byte tag = data[pos[0]++];
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING: {
+                int n = readVarint(data, pos);
+                String s = new String(data, pos[0], n, StandardCharsets.UTF_8);
+                pos[0] += n;
+                return s;
+            }
+            case INT: {
+                int v = readVarint(data, pos);
+                return (v >>> 1) ^ -(v & 1);
+            }
+            case LONG: {
+                long v = readVarLong(data, pos);
+                return (v >>> 1) ^ -(v & 1);
+            }
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case DOUBLE: {
+                long bits = 0;
+                for (int i = 0; i < 8; i++)
+                    bits = (bits << 8) | (data[pos[0]++] & 0xFF);
+                return Double.longBitsToDouble(bits);
+            }
+            case STRING_ARRAY: {
+                String[] array = new String[readVarint(data, pos)];
+                for (int i = 0; i < array.length; i++) {
+                    int n = readVarint(data, pos) - 1;
+                    if (n >= 0) {
+                        array[i] = new String(data, pos[0], n, StandardCharsets.UTF_8);
+                        pos[0] += n;
+                    }
+                }
+                return array;
+            }
+            case SERIALIZED: {
+                int n = readVarint(data, pos);
+                Object o = deserialize(data, pos[0], n);
+                pos[0] += n;
+                return o;
+            }
+            default:
+                throw new IllegalStateException("Corrupt session record: tag " + tag);
+        }
+    }
+
+    private static void skipValue(byte[] data, int[] pos) {
+        byte tag = data[pos[0]++];
+        switch (tag) {
+            case STRING, SERIALIZED -> {
+                int n = readVarint(data, pos); // before reading pos[0]: the varint moves it
+                pos[0] += n;
+            }
+            case INT -> readVarint(data, pos);
+            case LONG -> readVarLong(data, pos);
+            case DOUBLE -> pos[0] += 8;
+            case STRING_ARRAY -> {
+                int count = readVarint(data, pos);
+                for (int i = 0; i < count; i++) {
+                    int n = readVarint(data, pos) - 1;
+                    pos[0] += Math.max(0, n);
+                }
+            }
+            case NULL, TRUE, FALSE -> {
+            }
+            default -> throw new IllegalStateException("Corrupt session record: tag " + tag);
+        }
+    }
+
+    private static byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (NotSerializableException e) {
+            throw new IllegalArgumentException("Session attribute is not Serializable: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Classes are resolved through the web application's loader, not the framework's
+    private static Object deserialize(byte[] data, int offset, int len) {
+        try (ObjectInputStream in = new AppObjectInputStream(new ByteArrayInputStream(data, offset, len))) {
+            in.setObjectInputFilter(filter);
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot read session attribute: " + e, e);
+        }
+    }
+
+    private static final class AppObjectInputStream extends ObjectInputStream {
+        AppObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, loader);
+                } catch (ClassNotFoundException ignored) {
+                    // primitives / framework classes
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+    // ===================== VARINTS =====================
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] b) {
+        writeVarint(out, b.length);
+        out.write(b, 0, b.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int v) {
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int v = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = data[pos[0]++];
+            v |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return v;
+        }
+    }
+
+    private static long readVarLong(byte[] data, int[] pos) {
+        long v = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = data[pos[0]++];
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return v;
+        }
+    }
+}
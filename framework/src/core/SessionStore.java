@@ -0,0 +1,31 @@
+package core;
+
+import java.util.Map;
+
+/**
+ * Storage behind {@link Session} when sessions should not live in the container's HttpSession
+ * (init-param sessionStore). Sessions are keyed by the id carried in the framework's own cookie;
+ * the store owns expiry. Values go through {@link SessionCodec}, so what {@link #get} returns is
+ * a copy: set it again after changing it.
+ */
+public interface SessionStore extends AutoCloseable {
+
+    /** Attribute value, or null when the session or the attribute doesn't exist (or expired). */
+    Object get(String id, String key);
+
+    /** Creates the session if needed. A null value removes the attribute. */
+    void set(String id, String key, Object value);
+
+    void remove(String id, String key);
+
+    /** Every attribute; empty when the session doesn't exist. */
+    Map<String, Object> getAll(String id);
+
+    boolean exists(String id);
+
+    void invalidate(String id);
+
+    @Override
+    default void close() {
+    }
+}
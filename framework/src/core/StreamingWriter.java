@@ -0,0 +1,454 @@
+package core;
+
+import core.rest.BinaryFormat;
+import core.rest.BinaryWriter;
+import core.rest.JsonWriter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.BaseStream;
+
+/**
+ * Writes a Stream / Iterator / Flow.Publisher controller result element by element, as the
+ * data array of an ApiResponse envelope or as NDJSON (Accept: application/x-ndjson).
+ * With a {@link BinaryFormat} the envelope is CBOR with an indefinite-length data array; MessagePack
+ * has no such array, so there the elements go out as a MessagePack sequence (one value after another,
+ * no envelope), the NDJSON of that format.
+ *
+ * Elements are encoded (and compressed if negotiated) into a small chunk that goes out every
+ * {@link #CHUNK_BYTES} or {@link #FLUSH_EVERY} elements. Under an AsyncContext the writer is the
+ * response's WriteListener: it only pulls elements (and requests more from a Publisher) while the
+ * container reports the client can take them, so a slow client slows the producer down instead
+ * of piling up buffers. A Publisher that sends nothing for idleTimeoutMs fails the response.
+ */
+public class StreamingWriter implements WriteListener {
+
+    static final int CHUNK_BYTES = 8192;
+    static final int FLUSH_EVERY = 64;
+    static final int PUBLISHER_DEMAND = 32;
+
+    private static final byte[] ENVELOPE_START = "{\"code\":200,\"message\":\"success\",\"data\":["
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENVELOPE_END = { ']', '}' };
+    private static final byte[] COMMA = { ',' };
+    private static final byte[] NEWLINE = { '\n' };
+    private static final byte[] CBOR_ENVELOPE_START = cborEnvelopeStart();
+    private static final byte[] CBOR_BREAK = { (byte) 0xFF };
+
+    private final Source source;
+    private final boolean ndjson;
+    private final boolean enveloped;
+    private final ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_BYTES + 1024);
+    private final OutputStream encoder; // gzip/deflate into chunk, null for identity
+    private final JsonWriter json; // null when binary
+    private final BinaryWriter binary; // null when JSON
+
+    private ServletOutputStream out;
+    private AsyncContext ctx;
+    private Runnable onDone;
+    private final AtomicInteger wip = new AtomicInteger();
+    private boolean started;
+    private boolean done;
+    private int count;
+    private int unflushed;
+
+    // Wakes async writers whose publisher went quiet, so they can give up
+    private static volatile ScheduledExecutorService idleTimer;
+
+    /**
+     * @param format        CBOR or MessagePack, null for JSON (then ndjson picks the framing)
+     * @param idleTimeoutMs longest wait for a Publisher's next signal, 0 = forever
+     */
+    public StreamingWriter(Object result, boolean ndjson, BinaryFormat format, ResponseCompressor compressor,
+            String encoding, long idleTimeoutMs) throws IOException {
+        this.source = Source.of(result, idleTimeoutMs);
+        this.ndjson = ndjson && format == null;
+        this.enveloped = (format == null) ? !ndjson : format == BinaryFormat.CBOR;
+        this.encoder = (encoding != null) ? compressor.wrap(chunk, encoding) : null;
+        OutputStream sink = (encoder != null) ? encoder : chunk;
+        this.json = (format == null) ? new JsonWriter(sink, 2048) : null;
+        this.binary = (format != null) ? format.newWriter(sink) : null;
+    }
+
+    // {"code":200,"message":"success","data":[ in CBOR: the empty array's head becomes an indefinite one
+    private static byte[] cborEnvelopeStart() {
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put("code", 200);
+        envelope.put("message", "success");
+        envelope.put("data", List.of());
+        byte[] bytes = BinaryFormat.CBOR.toBytes(envelope);
+        bytes[bytes.length - 1] = (byte) 0x9F;
+        return bytes;
+    }
+
+    public static boolean isStreamable(Object result) {
+        return result instanceof BaseStream<?, ?> || result instanceof Iterator<?>
+                || result instanceof Flow.Publisher<?>;
+    }
+
+    public static boolean wantsNdjson(HttpServletRequest req) {
+        String accept = req.getHeader("Accept");
+        return accept != null && accept.contains("application/x-ndjson");
+    }
+
+    /** Writes the whole result on the calling thread, with blocking I/O. */
+    public void writeBlocking(ServletOutputStream out) throws IOException {
+        this.out = out;
+        try {
+            while (!done) {
+                step(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        } catch (Exception e) {
+            abort();
+            throw new IOException(e);
+        }
+    }
+
+    /** Streams with non-blocking I/O; onDone runs once the body is complete or has failed. */
+    public void start(AsyncContext ctx, ServletOutputStream out, Runnable onDone) {
+        this.ctx = ctx;
+        this.out = out;
+        this.onDone = onDone;
+        source.attach(this::pump);
+        out.setWriteListener(this); // the container calls onWritePossible when writes can go out,
+                                    // the first call pulls (and subscribes to) the source
+    }
+
+    @Override
+    public void onWritePossible() {
+        pump();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        fail(t); // typically the client went away
+    }
+
+    // Serializes every trigger (container callbacks, publisher signals) into one drain loop
+    private void pump() {
+        if (wip.getAndIncrement() != 0)
+            return;
+        int missed = 1;
+        do {
+            try {
+                while (!done && out.isReady()) {
+                    if (!step(false))
+                        break; // publisher has nothing yet: its next signal resumes
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    // Appends the next element; does at most one write to the servlet stream.
+    // False when the source has nothing available right now.
+    private boolean step(boolean block) throws Exception {
+        if (!started) {
+            started = true;
+            if (enveloped)
+                writeRaw((json != null) ? ENVELOPE_START : CBOR_ENVELOPE_START);
+        }
+
+        Object element = source.next(block);
+        if (element == Source.PENDING) {
+            if (unflushed > 0 || chunk.size() > 0)
+                emit(); // let the client see what we have while the producer catches up
+            return false;
+        }
+        if (element == Source.END) {
+            if (enveloped)
+                writeRaw((json != null) ? ENVELOPE_END : CBOR_BREAK);
+            flushWriter();
+            if (encoder != null)
+                encoder.close(); // trailer
+            done = true;
+            emit();
+            if (ctx != null) {
+                ctx.complete();
+                onDone.run();
+            }
+            return true;
+        }
+
+        if (binary != null) {
+            binary.write(element);
+        } else {
+            if (!ndjson && count > 0)
+                json.writeRaw(COMMA);
+            json.write(element);
+            if (ndjson)
+                json.writeRaw(NEWLINE);
+        }
+        count++;
+        unflushed++;
+
+        if (unflushed >= FLUSH_EVERY || chunk.size() >= CHUNK_BYTES)
+            emit();
+        return true;
+    }
+
+    private void writeRaw(byte[] bytes) throws IOException {
+        if (json != null)
+            json.writeRaw(bytes);
+        else
+            binary.writeRaw(bytes);
+    }
+
+    private void flushWriter() throws IOException {
+        if (json != null)
+            json.flush();
+        else
+            binary.flush();
+    }
+
+    private void emit() throws IOException {
+        if (!done)
+            flushWriter(); // through the encoder's sync flush when compressing
+        unflushed = 0;
+        if (chunk.size() == 0)
+            return;
+        chunk.writeTo(out);
+        chunk.reset();
+        if (ctx == null)
+            out.flush(); // blocking mode: push it to the client now
+    }
+
+    private void fail(Throwable t) {
+        if (done)
+            return;
+        Log.error("Streaming response failed after {} elements", count, t);
+        abort();
+        // the status is long sent: the client sees a truncated body
+        try {
+            ctx.complete();
+        } catch (RuntimeException ignored) {
+            // already completed by the container
+        }
+        onDone.run();
+    }
+
+    private void abort() {
+        done = true;
+        source.cancel();
+        if (encoder != null) {
+            try {
+                encoder.close(); // returns the Deflater to the pool
+            } catch (IOException ignored) {
+                // in-memory
+            }
+        }
+    }
+
+    private static ScheduledExecutorService idleTimer() {
+        ScheduledExecutorService timer = idleTimer;
+        if (timer == null) {
+            synchronized (StreamingWriter.class) {
+                timer = idleTimer;
+                if (timer == null) {
+                    ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, r -> {
+                        Thread t = new Thread(r, "stream-idle-timer");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    pool.setRemoveOnCancelPolicy(true);
+                    idleTimer = timer = pool;
+                }
+            }
+        }
+        return timer;
+    }
+
+    // ===================== SOURCES =====================
+
+    private abstract static class Source {
+        static final Object PENDING = new Object();
+        static final Object END = new Object();
+
+        /** Next element, {@link #END}, or {@link #PENDING} (only when not blocking). */
+        abstract Object next(boolean block) throws Exception;
+
+        /** Callback for elements arriving on another thread. */
+        void attach(Runnable signal) {
+        }
+
+        void cancel() {
+        }
+
+        static Source of(Object result, long idleTimeoutMs) {
+            if (result instanceof Flow.Publisher<?> publisher)
+                return new PublisherSource(publisher, idleTimeoutMs);
+            if (result instanceof BaseStream<?, ?> stream)
+                return new IteratorSource(stream.iterator(), stream);
+            return new IteratorSource((Iterator<?>) result, null);
+        }
+    }
+
+    private static final class IteratorSource extends Source {
+        private final Iterator<?> it;
+        private final AutoCloseable resource;
+
+        IteratorSource(Iterator<?> it, AutoCloseable resource) {
+            this.it = it;
+            this.resource = resource;
+        }
+
+        @Override
+        Object next(boolean block) throws Exception {
+            if (it.hasNext())
+                return it.next();
+            cancel();
+            return END;
+        }
+
+        @Override
+        void cancel() {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception ignored) {
+                    // best effort
+                }
+            }
+        }
+    }
+
+    /** Subscriber with a bounded demand: more is requested only as elements get written. */
+    private static final class PublisherSource extends Source implements Flow.Subscriber<Object> {
+        private static final Object NULL_ITEM = new Object();
+
+        private final Flow.Publisher<?> publisher;
+        private final long idleNanos; // 0 = wait forever
+        private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+        private volatile Runnable signal;
+        private boolean subscribed;
+        private int consumed;
+        private long lastSignal; // nanoTime of the last element taken (or of the subscription)
+        private ScheduledFuture<?> idleCheck;
+
+        PublisherSource(Flow.Publisher<?> publisher, long idleTimeoutMs) {
+            this.publisher = publisher;
+            this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, idleTimeoutMs));
+        }
+
+        private record Failure(Throwable error) {
+        }
+
+        @SuppressWarnings("unchecked")
+        private void subscribe() {
+            if (!subscribed) {
+                subscribed = true;
+                lastSignal = System.nanoTime();
+                ((Flow.Publisher<Object>) publisher).subscribe(this);
+            }
+        }
+
+        // subscription happens on the first next(), once the writer is ready to be signalled
+        @Override
+        void attach(Runnable signal) {
+            this.signal = signal;
+        }
+
+        @Override
+        Object next(boolean block) throws Exception {
+            subscribe();
+            Object e;
+            if (!block)
+                e = queue.poll();
+            else if (idleNanos == 0)
+                e = queue.take();
+            else
+                e = queue.poll(Math.max(0, lastSignal + idleNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (e == null) {
+                long idle = System.nanoTime() - lastSignal;
+                if (idleNanos > 0 && idle >= idleNanos)
+                    throw new TimeoutException("Publisher sent nothing for "
+                            + TimeUnit.NANOSECONDS.toMillis(idleNanos) + " ms");
+                if (idleNanos > 0)
+                    scheduleIdleCheck(idleNanos - idle);
+                return PENDING;
+            }
+            lastSignal = System.nanoTime();
+            if (e == END)
+                return END;
+            if (e instanceof Failure f)
+                throw (f.error instanceof Exception ex) ? ex : new RuntimeException(f.error);
+
+            if (++consumed == PUBLISHER_DEMAND / 2) {
+                consumed = 0;
+                subscription.request(PUBLISHER_DEMAND / 2);
+            }
+            return (e == NULL_ITEM) ? null : e;
+        }
+
+        // async mode: the writer's next pump after the deadline fails it if nothing came meanwhile
+        private void scheduleIdleCheck(long delayNanos) {
+            if (idleCheck != null && !idleCheck.isDone())
+                return;
+            idleCheck = idleTimer().schedule(this::wake, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        void cancel() {
+            ScheduledFuture<?> check = idleCheck;
+            if (check != null)
+                check.cancel(false);
+            Flow.Subscription s = subscription;
+            if (s != null)
+                s.cancel();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            s.request(PUBLISHER_DEMAND);
+        }
+
+        @Override
+        public void onNext(Object item) {
+            queue.add((item != null) ? item : NULL_ITEM);
+            wake();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            queue.add(new Failure(t));
+            wake();
+        }
+
+        @Override
+        public void onComplete() {
+            queue.add(END);
+            wake();
+        }
+
+        private void wake() {
+            Runnable r = signal;
+            if (r != null)
+                r.run();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package core;
+
+import core.rest.TypePlan;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template parsed once into a tree of nodes, rendered straight to a Writer.
+ * Mustache-style syntax:
+ *
+ * <pre>
+ *   {{name}}  {{user.city}}     value, HTML-escaped (null renders nothing)
+ *   {{{html}}}                  value, unescaped
+ *   {{#items}}...{{/items}}     loop over a collection / array, or block shown if the value is truthy
+ *   {{^items}}...{{/items}}     block shown if the value is missing, false or empty
+ *   {{.}}                       current element inside a loop
+ *   {{> header.html}}           another template of the same engine
+ *   {{! comment }}
+ * </pre>
+ *
+ * Names are looked up in the current element first, then in the enclosing ones, ending with
+ * the ModelView data; POJO fields are read through their cached {@link TypePlan}.
+ */
+public class Template {
+
+    private interface Node {
+        void render(Writer out, Deque<Object> scope, TemplateEngine engine) throws IOException;
+    }
+
+    private final String name;
+    private final Node[] nodes;
+
+    private Template(String name, Node[] nodes) {
+        this.name = name;
+        this.nodes = nodes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Renders with data as the outermost scope. */
+    public void render(Map<String, Object> data, Writer out, TemplateEngine engine) throws IOException {
+        Deque<Object> scope = new ArrayDeque<>();
+        scope.push(data);
+        render(out, scope, engine);
+    }
+
+    void render(Writer out, Deque<Object> scope, TemplateEngine engine) throws IOException {
+        for (Node n : nodes) {
+            n.render(out, scope, engine);
+        }
+    }
+
+    // ===================== PARSING =====================
+
+    public static Template parse(String name, String source) {
+        List<Node> root = new ArrayList<>();
+        Deque<List<Node>> stack = new ArrayDeque<>();
+        Deque<String> open = new ArrayDeque<>();
+        Deque<Boolean> inverted = new ArrayDeque<>();
+        List<Node> current = root;
+
+        int pos = 0;
+        while (pos < source.length()) {
+            int tag = source.indexOf("{{", pos);
+            if (tag < 0) {
+                current.add(text(source.substring(pos)));
+                break;
+            }
+            if (tag > pos)
+                current.add(text(source.substring(pos, tag)));
+
+            boolean triple = source.startsWith("{{{", tag);
+            int close = source.indexOf(triple ? "}}}" : "}}", tag);
+            if (close < 0)
+                throw error(name, source, tag, "unclosed tag");
+            String body = source.substring(tag + (triple ? 3 : 2), close).trim();
+            pos = close + (triple ? 3 : 2);
+
+            if (triple) {
+                current.add(variable(body, false));
+                continue;
+            }
+            if (body.isEmpty())
+                throw error(name, source, tag, "empty tag");
+
+            char kind = body.charAt(0);
+            String key = body.substring(1).trim();
+            switch (kind) {
+                case '!' -> {
+                    // comment
+                }
+                case '#', '^' -> {
+                    stack.push(current);
+                    open.push(key);
+                    inverted.push(kind == '^');
+                    current = new ArrayList<>();
+                }
+                case '/' -> {
+                    if (open.isEmpty() || !open.peek().equals(key))
+                        throw error(name, source, tag, "unexpected {{/" + key + "}}");
+                    Node[] children = current.toArray(new Node[0]);
+                    current = stack.pop();
+                    current.add(section(open.pop(), inverted.pop(), children));
+                }
+                case '>' -> current.add(partial(key));
+                case '&' -> current.add(variable(key, false));
+                default -> current.add(variable(body, true));
+            }
+        }
+        if (!open.isEmpty())
+            throw new IllegalStateException("Template " + name + ": {{#" + open.peek() + "}} is never closed");
+        return new Template(name, root.toArray(new Node[0]));
+    }
+
+    private static IllegalStateException error(String name, String source, int at, String message) {
+        int line = 1;
+        for (int i = 0; i < at; i++) {
+            if (source.charAt(i) == '\n')
+                line++;
+        }
+        return new IllegalStateException("Template " + name + " line " + line + ": " + message);
+    }
+
+    private static Node text(String s) {
+        return (out, scope, engine) -> out.write(s);
+    }
+
+    private static Node variable(String key, boolean escape) {
+        String[] path = path(key);
+        return (out, scope, engine) -> {
+            Object value = lookup(scope, path);
+            if (value == null)
+                return;
+            String s = String.valueOf(value);
+            if (escape)
+                escapeHtml(s, out);
+            else
+                out.write(s);
+        };
+    }
+
+    private static Node section(String key, boolean inverted, Node[] children) {
+        String[] path = path(key);
+        return (out, scope, engine) -> {
+            Object value = lookup(scope, path);
+            if (inverted) {
+                if (isEmpty(value))
+                    renderAll(children, out, scope, engine);
+                return;
+            }
+            if (isEmpty(value))
+                return;
+
+            if (value instanceof Iterable<?> it) {
+                for (Object element : it)
+                    renderIn(element, children, out, scope, engine);
+            } else if (value.getClass().isArray()) {
+                int len = Array.getLength(value);
+                for (int i = 0; i < len; i++)
+                    renderIn(Array.get(value, i), children, out, scope, engine);
+            } else if (value instanceof Boolean) {
+                renderAll(children, out, scope, engine);
+            } else {
+                renderIn(value, children, out, scope, engine);
+            }
+        };
+    }
+
+    private static Node partial(String name) {
+        return (out, scope, engine) -> engine.get(name).render(out, scope, engine);
+    }
+
+    // ===================== RENDERING =====================
+
+    private static void renderIn(Object element, Node[] children, Writer out, Deque<Object> scope,
+            TemplateEngine engine) throws IOException {
+        scope.push((element != null) ? element : NULL_SCOPE);
+        try {
+            renderAll(children, out, scope, engine);
+        } finally {
+            scope.pop();
+        }
+    }
+
+    private static void renderAll(Node[] children, Writer out, Deque<Object> scope, TemplateEngine engine)
+            throws IOException {
+        for (Node n : children) {
+            n.render(out, scope, engine);
+        }
+    }
+
+    private static final Object NULL_SCOPE = new Object();
+    private static final Object MISSING = new Object();
+
+    private static String[] path(String key) {
+        return key.equals(".") ? new String[0] : key.split("\\.");
+    }
+
+    // First segment from the innermost scope outwards, the rest from that value
+    private static Object lookup(Deque<Object> scope, String[] path) {
+        if (path.length == 0) {
+            Object top = scope.peek();
+            return (top == NULL_SCOPE) ? null : top;
+        }
+        Object value = MISSING;
+        for (Iterator<Object> it = scope.iterator(); it.hasNext() && value == MISSING;) {
+            value = property(it.next(), path[0]);
+        }
+        for (int i = 1; i < path.length && value != MISSING && value != null; i++) {
+            value = property(value, path[i]);
+        }
+        return (value == MISSING) ? null : value;
+    }
+
+    private static Object property(Object target, String name) {
+        if (target == null || target == NULL_SCOPE)
+            return MISSING;
+        if (target instanceof Map<?, ?> map)
+            return map.containsKey(name) ? map.get(name) : MISSING;
+        if (target instanceof String || target instanceof Number || target instanceof Boolean
+                || target.getClass().getName().startsWith("java."))
+            return MISSING;
+        for (TypePlan.Property p : TypePlan.of(target.getClass()).properties) {
+            if (p.name.equals(name))
+                return p.get(target);
+        }
+        return MISSING;
+    }
+
+    private static boolean isEmpty(Object value) {
+        if (value == null || Boolean.FALSE.equals(value))
+            return true;
+        if (value instanceof java.util.Collection<?> c)
+            return c.isEmpty();
+        if (value instanceof Iterable<?> it)
+            return !it.iterator().hasNext();
+        if (value.getClass().isArray())
+            return Array.getLength(value) == 0;
+        if (value instanceof CharSequence cs)
+            return cs.length() == 0;
+        return false;
+    }
+
+    static void escapeHtml(String s, Writer out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            String rep;
+            switch (s.charAt(i)) {
+                case '<' -> rep = "&lt;";
+                case '>' -> rep = "&gt;";
+                case '&' -> rep = "&amp;";
+                case '"' -> rep = "&quot;";
+                case '\'' -> rep = "&#39;";
+                default -> {
+                    continue;
+                }
+            }
+            out.write(s, start, i - start);
+            out.write(rep);
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+    }
+}
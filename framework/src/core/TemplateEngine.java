@@ -0,0 +1,102 @@
+package core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads and caches {@link Template}s from a directory (WEB-INF/views).
+ * Each file is parsed once; in dev mode a template whose file changed is re-parsed,
+ * checking the modification time at most once per {@link #CHECK_INTERVAL_MS}.
+ */
+public class TemplateEngine {
+
+    static final long CHECK_INTERVAL_MS = 1000;
+
+    private static final class Entry {
+        final Template template;
+        final long lastModified;
+        volatile long checkedAt;
+
+        Entry(Template template, long lastModified, long checkedAt) {
+            this.template = template;
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    private final Path root;
+    private final String suffix;
+    private final boolean devMode;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    /** Views ending with suffix (e.g. ".html") are rendered by this engine. */
+    public TemplateEngine(Path root, String suffix, boolean devMode) {
+        this.root = root.toAbsolutePath().normalize();
+        this.suffix = suffix;
+        this.devMode = devMode;
+    }
+
+    public boolean handles(String view) {
+        return view != null && view.endsWith(suffix);
+    }
+
+    /** Compiled template of a view, loading it on first use. */
+    public Template get(String view) throws IOException {
+        Entry e = cache.get(view);
+        if (e != null && (!devMode || isFresh(view, e)))
+            return e.template;
+        try {
+            return cache.compute(view, (k, old) -> {
+                if (old != null && old != e)
+                    return old; // reloaded meanwhile by another thread
+                try {
+                    return load(k);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).template;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private boolean isFresh(String view, Entry e) {
+        long now = System.currentTimeMillis();
+        if (now - e.checkedAt < CHECK_INTERVAL_MS)
+            return true;
+        e.checkedAt = now;
+        try {
+            return Files.getLastModifiedTime(resolve(view)).toMillis() == e.lastModified;
+        } catch (IOException ex) {
+            return false; // deleted: the reload reports it
+        }
+    }
+
+    private Entry load(String view) throws IOException {
+        Path file = resolve(view);
+        try {
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            String source = Files.readString(file, StandardCharsets.UTF_8);
+            return new Entry(Template.parse(view, source), lastModified, System.currentTimeMillis());
+        } catch (NoSuchFileException ex) {
+            throw new NoSuchFileException("Template not found: " + view);
+        }
+    }
+
+    // Keeps lookups inside the views directory
+    private Path resolve(String view) throws IOException {
+        Path file = root.resolve(view).normalize();
+        if (!file.startsWith(root))
+            throw new IOException("Template outside the views directory: " + view);
+        return file;
+    }
+}
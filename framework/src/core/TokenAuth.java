@@ -0,0 +1,218 @@
+package core;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Stateless authentication tokens for {@link AuthorizationManager} (init-param authTokenKeys).
+ * A token carries the user, roles and expiry, signed with HMAC-SHA256:
+ *
+ * <pre>
+ *   kid.expiry.base64url(user).base64url(roles joined by ',').base64url(hmac of everything before)
+ * </pre>
+ *
+ * Several keys can be active: the first one signs, all of them verify, so a key is rotated by
+ * putting the new one first and dropping the old one once its tokens have expired.
+ * Initialized Macs are pooled per key (a bounded pool, so no thread keeps one past its use);
+ * recently verified tokens are remembered in small striped LRUs so a client's repeated requests
+ * skip the HMAC.
+ */
+public final class TokenAuth {
+
+    static final int MIN_KEY_BYTES = 32;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int CACHE_STRIPES = 16;
+    private static final int CACHE_PER_STRIPE = 64;
+    private static final int MAC_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    /** Verified contents of a token. */
+    public static final class Principal {
+        public final String user;
+        public final String[] roles;
+        public final long expiresAt; // epoch seconds
+
+        Principal(String user, String[] roles, long expiresAt) {
+            this.user = user;
+            this.roles = roles;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Key {
+        final String id;
+        final byte[] secret;
+
+        Key(String id, byte[] secret) {
+            this.id = id;
+            this.secret = secret;
+        }
+    }
+
+    private final Key[] keys; // keys[0] signs
+    private final long ttlSeconds;
+    private final String cookieName;
+
+    // Per key of this instance: idle initialized Macs (a rotation creates a new TokenAuth)
+    private final BlockingQueue<Mac>[] macs;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final LinkedHashMap<String, Principal>[] verified = new LinkedHashMap[CACHE_STRIPES];
+
+    /**
+     * @param keys key id => secret (at least {@value #MIN_KEY_BYTES} bytes), signing key first
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public TokenAuth(LinkedHashMap<String, byte[]> keys, long ttlSeconds, String cookieName) {
+        if (keys.isEmpty())
+            throw new IllegalArgumentException("At least one token key is required");
+        this.keys = new Key[keys.size()];
+        int i = 0;
+        for (Map.Entry<String, byte[]> e : keys.entrySet()) {
+            if (e.getKey().isEmpty() || e.getKey().indexOf('.') >= 0)
+                throw new IllegalArgumentException("Invalid token key id: '" + e.getKey() + "'");
+            if (e.getValue().length < MIN_KEY_BYTES)
+                throw new IllegalArgumentException("Token key " + e.getKey() + " is shorter than " + MIN_KEY_BYTES + " bytes");
+            this.keys[i++] = new Key(e.getKey(), e.getValue().clone());
+        }
+        this.ttlSeconds = ttlSeconds;
+        this.cookieName = cookieName;
+        this.macs = new BlockingQueue[this.keys.length];
+        for (int k = 0; k < this.keys.length; k++)
+            macs[k] = new ArrayBlockingQueue<>(MAC_POOL_SIZE);
+        for (int s = 0; s < CACHE_STRIPES; s++) {
+            verified[s] = new LinkedHashMap<>(CACHE_PER_STRIPE * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Principal> eldest) {
+                    return size() > CACHE_PER_STRIPE;
+                }
+            };
+        }
+    }
+
+    /**
+     * Parses init-param authTokenKeys: "kid:base64secret,kid2:base64secret", signing key first.
+     * "env:NAME" reads that list from an environment variable instead.
+     */
+    public static LinkedHashMap<String, byte[]> parseKeys(String spec) {
+        if (spec.startsWith("env:")) {
+            String value = System.getenv(spec.substring(4));
+            if (value == null)
+                throw new IllegalArgumentException("Environment variable " + spec.substring(4) + " is not set");
+            spec = value;
+        }
+        LinkedHashMap<String, byte[]> keys = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            int colon = entry.indexOf(':');
+            if (colon <= 0)
+                throw new IllegalArgumentException("Token key must be kid:base64secret");
+            keys.put(entry.substring(0, colon).trim(), Base64.getDecoder().decode(entry.substring(colon + 1).trim()));
+        }
+        return keys;
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    // ===================== ISSUE / VERIFY =====================
+
+    public String issue(String user, String[] roles) {
+        for (String role : roles) {
+            if (role.isEmpty() || role.indexOf(',') >= 0)
+                throw new IllegalArgumentException("Invalid role name for a token: '" + role + "'");
+        }
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String body = keys[0].id + "." + expiresAt + "."
+                + b64.encodeToString(user.getBytes(StandardCharsets.UTF_8)) + "."
+                + b64.encodeToString(String.join(",", roles).getBytes(StandardCharsets.UTF_8));
+        return body + "." + b64.encodeToString(sign(0, body));
+    }
+
+    /** Contents of a valid, unexpired token signed by one of the keys; null otherwise. */
+    public Principal verify(String token) {
+        if (token == null || token.isEmpty())
+            return null;
+        long now = System.currentTimeMillis() / 1000;
+        LinkedHashMap<String, Principal> cache = verified[(token.hashCode() & 0x7fffffff) % CACHE_STRIPES];
+        Principal p;
+        synchronized (cache) {
+            p = cache.get(token);
+        }
+        if (p != null)
+            return (p.expiresAt > now) ? p : null;
+
+        p = parse(token, now);
+        if (p != null) {
+            synchronized (cache) {
+                cache.put(token, p);
+            }
+        }
+        return p;
+    }
+
+    private Principal parse(String token, long now) {
+        int sig = token.lastIndexOf('.');
+        int d1 = token.indexOf('.');
+        int d2 = (d1 > 0) ? token.indexOf('.', d1 + 1) : -1;
+        int d3 = (d2 > 0) ? token.indexOf('.', d2 + 1) : -1;
+        if (d3 < 0 || token.indexOf('.', d3 + 1) != sig)
+            return null;
+
+        int key = keyIndex(token, d1);
+        if (key < 0)
+            return null;
+        try {
+            String body = token.substring(0, sig);
+            byte[] expected = sign(key, body);
+            byte[] actual = Base64.getUrlDecoder().decode(token.substring(sig + 1));
+            if (!MessageDigest.isEqual(expected, actual))
+                return null;
+
+            long expiresAt = Long.parseLong(token.substring(d1 + 1, d2));
+            if (expiresAt <= now)
+                return null;
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            String user = new String(b64.decode(token.substring(d2 + 1, d3)), StandardCharsets.UTF_8);
+            String roles = new String(b64.decode(token.substring(d3 + 1, sig)), StandardCharsets.UTF_8);
+            return new Principal(user, roles.isEmpty() ? new String[0] : roles.split(","), expiresAt);
+        } catch (IllegalArgumentException e) {
+            return null; // bad base64 / number: tampered
+        }
+    }
+
+    private int keyIndex(String token, int end) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].id.length() == end && token.startsWith(keys[i].id))
+                return i;
+        }
+        return -1;
+    }
+
+    private byte[] sign(int key, String body) {
+        Mac mac = macs[key].poll();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(new SecretKeySpec(keys[key].secret, ALGORITHM));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " unavailable", e);
+            }
+        }
+        byte[] signature = mac.doFinal(body.getBytes(StandardCharsets.UTF_8)); // doFinal resets the Mac
+        macs[key].offer(mac); // pool full: dropped
+        return signature;
+    }
+}
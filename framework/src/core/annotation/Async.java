@@ -0,0 +1,12 @@
+package core.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Run the handler outside the container thread (virtual threads on Java 21+).
+ * Handlers returning a CompletionStage are completed asynchronously without it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Async {
+}
@@ -0,0 +1,17 @@
+package core.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Cache the rendered response of a GET route (REST or String results) for ttlSeconds.
+ * The key is the route + its path variables + the listed query parameters (+ the user's role if perRole).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cached {
+    int ttlSeconds() default 60;
+
+    String[] params() default {};
+
+    boolean perRole() default false;
+}
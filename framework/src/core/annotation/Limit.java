@@ -0,0 +1,31 @@
+package core.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Admission control for a route. At most maxConcurrent executions run at once and up to
+ * queueSize more requests wait queueTimeoutMs for a slot; the rest get an immediate 503
+ * with Retry-After. ratePerSecond (whole route) and perClientRatePerSecond (per authenticated
+ * user, or per address without one) add token-bucket limits answered with 429.
+ *
+ * -1 takes the servlet default (init-params maxConcurrent, maxQueue, queueTimeoutMs,
+ * retryAfterSeconds); 0 disables a limit.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Limit {
+    int maxConcurrent() default -1;
+
+    int queueSize() default -1;
+
+    long queueTimeoutMs() default -1;
+
+    double ratePerSecond() default 0;
+
+    double perClientRatePerSecond() default 0;
+
+    /** Requests allowed in a burst by the rate limits (0 = one second's worth). */
+    int burst() default 0;
+
+    int retryAfterSeconds() default -1;
+}
@@ -0,0 +1,239 @@
+package core.processor;
+
+import core.annotation.Authorized;
+import core.annotation.Controller;
+import core.annotation.RestAPI;
+import core.annotation.Route;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@code core.RouteRegistry} for the @Controller classes of a compilation,
+ * with one direct-call lambda per @Route, and lists it in
+ * META-INF/services/core.RouteRegistry so RouterServlet can load it instead of scanning.
+ * The registry is named after its first controller ({@code UserController_GeneratedRoutes})
+ * and lists the controllers it covers.
+ *
+ * Shipped in framework.jar with its own service entry, so javac picks it up automatically.
+ */
+@SupportedAnnotationTypes("core.annotation.Controller")
+public class RouteProcessor extends AbstractProcessor {
+
+    private final List<String> generated = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        List<TypeElement> controllers = new ArrayList<>();
+        for (Element e : roundEnv.getElementsAnnotatedWith(Controller.class)) {
+            if (e.getKind() == ElementKind.CLASS)
+                controllers.add((TypeElement) e);
+        }
+        if (!controllers.isEmpty()) {
+            writeRegistry(controllers);
+        }
+        return false;
+    }
+
+    private void writeRegistry(List<TypeElement> controllers) {
+        // named after its first controller: two modules compiled apart into one package can't collide,
+        // since a class only exists in one of them
+        controllers.sort(Comparator.comparing(t -> t.getQualifiedName().toString()));
+        TypeElement first = controllers.get(0);
+        String pkg = processingEnv.getElementUtils().getPackageOf(first).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(first).toString();
+        String simpleName = binaryName.substring(pkg.isEmpty() ? 0 : pkg.length() + 1).replace('$', '_')
+                + "_GeneratedRoutes";
+        String className = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+
+        StringBuilder src = new StringBuilder();
+        if (!pkg.isEmpty())
+            src.append("package ").append(pkg).append(";\n\n");
+        src.append("// Generated by core.processor.RouteProcessor - do not edit\n");
+        src.append("public final class ").append(simpleName).append(" implements core.RouteRegistry {\n\n");
+        src.append("    @Override\n");
+        src.append("    public java.util.Set<String> controllerClasses() {\n");
+        src.append("        return java.util.Set.of(");
+        for (int i = 0; i < controllers.size(); i++) {
+            src.append(i > 0 ? ", " : "")
+                    .append(literal(processingEnv.getElementUtils().getBinaryName(controllers.get(i)).toString()));
+        }
+        src.append(");\n    }\n\n");
+        src.append("    @Override\n");
+        src.append("    @SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+        src.append("    public void registerRoutes(core.RouteRegistry.Registrar r) throws Exception {\n");
+
+        int c = 0;
+        for (TypeElement type : controllers) {
+            String var = "c" + c++;
+            String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+            boolean typeVisible = isPublic(type);
+
+            if (typeVisible && hasPublicNoArgConstructor(type)) {
+                src.append("        final ").append(typeName).append(' ').append(var)
+                        .append(" = new ").append(typeName).append("();\n");
+            } else {
+                src.append("        final Object ").append(var).append(" = Class.forName(\"")
+                        .append(processingEnv.getElementUtils().getBinaryName(type))
+                        .append("\").getDeclaredConstructor().newInstance();\n");
+            }
+
+            boolean restType = type.getAnnotation(RestAPI.class) != null;
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getKind() != ElementKind.METHOD)
+                    continue;
+                Route route = member.getAnnotation(Route.class);
+                if (route == null)
+                    continue;
+                writeRoute(src, var, typeVisible, restType, (ExecutableElement) member, route);
+            }
+        }
+
+        src.append("    }\n}\n");
+
+        try (Writer w = processingEnv.getFiler().createSourceFile(className, controllers.toArray(new Element[0]))
+                .openWriter()) {
+            w.write(src.toString());
+            generated.add(className);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write route registry " + className + ": " + e.getMessage());
+        }
+    }
+
+    private void writeRoute(StringBuilder src, String var, boolean typeVisible, boolean restType,
+            ExecutableElement method, Route route) {
+        Authorized auth = method.getAnnotation(Authorized.class);
+        boolean rest = restType || method.getAnnotation(RestAPI.class) != null;
+        List<? extends VariableElement> params = method.getParameters();
+
+        src.append("        r.route(").append(var).append(", ")
+                .append(literal(route.value())).append(", ")
+                .append(literal(route.method())).append(", ")
+                .append(rest).append(", ");
+        if (auth == null) {
+            src.append("null");
+        } else {
+            src.append("new String[] {");
+            String[] roles = auth.value();
+            for (int i = 0; i < roles.length; i++) {
+                src.append(i > 0 ? ", " : " ").append(literal(roles[i]));
+            }
+            src.append(" }");
+        }
+        src.append(", ").append(literal(method.getSimpleName().toString())).append(",\n");
+
+        src.append("                new Class<?>[] {");
+        for (int i = 0; i < params.size(); i++) {
+            src.append(i > 0 ? ", " : " ").append(erased(params.get(i).asType())).append(".class");
+        }
+        src.append(params.isEmpty() ? "},\n" : " },\n");
+
+        boolean callable = typeVisible && isPublic(method) && !method.getModifiers().contains(Modifier.STATIC);
+        if (!callable) {
+            src.append("                null);\n");
+            return;
+        }
+
+        StringBuilder call = new StringBuilder(var).append('.').append(method.getSimpleName()).append('(');
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0)
+                call.append(", ");
+            call.append('(').append(erased(params.get(i).asType())).append(") args[").append(i).append(']');
+        }
+        call.append(')');
+
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            src.append("                args -> { ").append(call).append("; return null; });\n");
+        } else {
+            src.append("                args -> ").append(call).append(");\n");
+        }
+    }
+
+    private void writeServiceFile() {
+        if (generated.isEmpty())
+            return;
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/core.RouteRegistry");
+            try (Writer w = file.openWriter()) {
+                for (String name : generated) {
+                    w.write(name);
+                    w.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write META-INF/services/core.RouteRegistry: " + e.getMessage());
+        }
+    }
+
+    private String erased(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static boolean isPublic(Element e) {
+        if (!e.getModifiers().contains(Modifier.PUBLIC))
+            return false;
+        Element outer = e.getEnclosingElement();
+        if (outer instanceof TypeElement)
+            return isPublic(outer) && (e.getKind() != ElementKind.CLASS || e.getModifiers().contains(Modifier.STATIC));
+        return true;
+    }
+
+    private static boolean hasPublicNoArgConstructor(TypeElement type) {
+        boolean anyConstructor = false;
+        for (Element e : type.getEnclosedElements()) {
+            if (e.getKind() != ElementKind.CONSTRUCTOR)
+                continue;
+            anyConstructor = true;
+            if (((ExecutableElement) e).getParameters().isEmpty() && e.getModifiers().contains(Modifier.PUBLIC))
+                return true;
+        }
+        return !anyConstructor;
+    }
+
+    private static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char ch : s.toCharArray()) {
+            switch (ch) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (ch < 0x20 || ch > 0x7e)
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    else
+                        sb.append(ch);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,104 @@
+package core.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Binary alternatives to JSON for @RestAPI routes, chosen by content negotiation:
+ * Accept for responses, Content-Type for request bodies. JSON stays the default.
+ */
+public enum BinaryFormat {
+
+    CBOR("application/cbor", "+cbor"),
+    MSGPACK("application/msgpack", "application/x-msgpack", "application/vnd.msgpack");
+
+    public final String mediaType;
+    private final String[] aliases; // other accepted types; "+suffix" for structured syntax types
+
+    BinaryFormat(String mediaType, String... aliases) {
+        this.mediaType = mediaType;
+        this.aliases = aliases;
+    }
+
+    public BinaryWriter newWriter(OutputStream out) {
+        return (this == CBOR) ? new CborWriter(out) : new MsgPackWriter(out);
+    }
+
+    public BinaryReader newReader(InputStream in, long maxBytes, int bufferSize) {
+        return (this == CBOR) ? new CborReader(in, maxBytes, bufferSize) : new MsgPackReader(in, maxBytes, bufferSize);
+    }
+
+    /** Serialize a value to a standalone byte array. */
+    public byte[] toBytes(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            BinaryWriter w = newWriter(bytes);
+            w.write(value);
+            w.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown by ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Format of a request body, or null (JSON, form...). */
+    public static BinaryFormat fromContentType(String contentType) {
+        if (contentType == null)
+            return null;
+        int semi = contentType.indexOf(';');
+        String type = ((semi >= 0) ? contentType.substring(0, semi) : contentType).trim().toLowerCase(Locale.ROOT);
+        for (BinaryFormat f : values()) {
+            if (f.matches(type))
+                return f;
+        }
+        return null;
+    }
+
+    /**
+     * Format the client prefers over JSON, or null. Highest q wins, earlier entries on ties;
+     * wildcards count for JSON.
+     */
+    public static BinaryFormat fromAccept(String accept) {
+        if (accept == null || (accept.indexOf("cbor") < 0 && accept.indexOf("msgpack") < 0))
+            return null; // common case: no binary type mentioned
+
+        BinaryFormat best = null;
+        double bestQ = 0;
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            String type = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String p = parts[i].trim();
+                if (p.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(p.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (q <= bestQ)
+                continue;
+            BinaryFormat f = fromContentType(type);
+            if (f != null || type.equals("application/json") || type.equals("application/*") || type.equals("*/*")) {
+                best = f;
+                bestQ = q;
+            }
+        }
+        return best;
+    }
+
+    private boolean matches(String type) {
+        if (type.equals(mediaType))
+            return true;
+        for (String alias : aliases) {
+            if (alias.startsWith("+") ? type.endsWith(alias) : type.equals(alias))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,354 @@
+package core.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Base of the binary request body readers ({@link CborReader}, {@link MsgPackReader}).
+ * Items are decoded straight from the InputStream through a small byte buffer and exposed with
+ * {@link JsonReader}'s tokens, so the same binding code handles every format: maps become objects
+ * (keys must be strings or integers), byte strings are read as base64 text. Subclasses decode item
+ * headers; container bookkeeping, limits and errors live here.
+ *
+ * Input is capped at maxBytes and nesting at {@link JsonReader#MAX_DEPTH}; malformed input throws
+ * {@link JsonParseException}.
+ */
+public abstract class BinaryReader implements ValueReader {
+
+    // kinds of the item read by readHead()
+    protected static final int INT = 1;
+    protected static final int UINT64 = 2; // unsigned value above Long.MAX_VALUE
+    protected static final int NEGINT64 = 3; // CBOR -1 - n, n unsigned above Long.MAX_VALUE
+    protected static final int FLOAT = 4;
+    protected static final int DOUBLE = 5;
+    protected static final int TRUE = 6;
+    protected static final int FALSE = 7;
+    protected static final int NULL = 8;
+    protected static final int STRING = 9;
+    protected static final int BYTES = 10;
+    protected static final int ARRAY = 11;
+    protected static final int MAP = 12;
+    protected static final int BREAK = 13; // end of an indefinite-length container
+
+    /** Set by readHead(): kind, length (strings, containers; -1 = indefinite) and scalar value. */
+    protected int kind;
+    protected long length;
+    protected long longValue;
+    protected double doubleValue;
+
+    private final String format;
+    private final InputStream in;
+    private final long maxBytes;
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private long total; // bytes read from the stream
+
+    // one frame per open container; frame 0 is the document (a single root item)
+    private final long[] remaining = new long[JsonReader.MAX_DEPTH + 1]; // items left, -1 = until break
+    private final boolean[] map = new boolean[JsonReader.MAX_DEPTH + 1];
+    private final boolean[] nameNext = new boolean[JsonReader.MAX_DEPTH + 1];
+    private int depth;
+    private JsonReader.Token peeked;
+
+    protected BinaryReader(String format, InputStream in, long maxBytes, int bufferSize) {
+        this.format = format;
+        this.in = in;
+        this.maxBytes = maxBytes;
+        this.buf = new byte[Math.max(64, bufferSize)];
+        remaining[0] = 1;
+        depth = 1;
+    }
+
+    /** Decodes the next item header into kind / length / longValue / doubleValue. */
+    protected abstract void readHead() throws IOException;
+
+    @Override
+    public JsonReader.Token peek() throws IOException {
+        if (peeked != null)
+            return peeked;
+
+        int d = depth - 1;
+        if (d == 0) {
+            if (!fill())
+                return peeked = JsonReader.Token.END_DOCUMENT; // empty body, or after the root
+            if (remaining[0] == 0)
+                throw syntax("data after the root value");
+        } else if (remaining[d] == 0) {
+            return peeked = map[d] ? JsonReader.Token.END_OBJECT : JsonReader.Token.END_ARRAY;
+        }
+
+        readHead();
+        if (kind == BREAK) {
+            if (remaining[d] != -1 || (map[d] && !nameNext[d]))
+                throw syntax("unexpected break");
+            return peeked = map[d] ? JsonReader.Token.END_OBJECT : JsonReader.Token.END_ARRAY;
+        }
+        if (map[d] && nameNext[d]) {
+            if (kind != STRING && kind != INT)
+                throw syntax("map keys must be strings");
+            return peeked = JsonReader.Token.NAME;
+        }
+        return peeked = switch (kind) {
+            case MAP -> JsonReader.Token.BEGIN_OBJECT;
+            case ARRAY -> JsonReader.Token.BEGIN_ARRAY;
+            case STRING, BYTES -> JsonReader.Token.STRING;
+            case TRUE, FALSE -> JsonReader.Token.BOOLEAN;
+            case NULL -> JsonReader.Token.NULL;
+            default -> JsonReader.Token.NUMBER;
+        };
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(JsonReader.Token.BEGIN_OBJECT);
+        consumed();
+        push(true, (length < 0) ? -1 : length * 2);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(JsonReader.Token.END_OBJECT);
+        depth--;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(JsonReader.Token.BEGIN_ARRAY);
+        consumed();
+        push(false, length);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(JsonReader.Token.END_ARRAY);
+        depth--;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonReader.Token t = peek();
+        return t != JsonReader.Token.END_OBJECT && t != JsonReader.Token.END_ARRAY
+                && t != JsonReader.Token.END_DOCUMENT;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(JsonReader.Token.NAME);
+        String name = (kind == STRING) ? readText() : numberText();
+        consumed();
+        return name;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonReader.Token t = peek();
+        String s = switch (t) {
+            case STRING -> (kind == STRING) ? readText() : Base64.getEncoder().encodeToString(readBytes());
+            case NUMBER -> numberText();
+            case BOOLEAN -> (kind == TRUE) ? "true" : "false";
+            default -> throw syntax("expected a string, number or boolean but was " + t);
+        };
+        peeked = null;
+        consumed();
+        return s;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        expect(JsonReader.Token.BOOLEAN);
+        consumed();
+        return kind == TRUE;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(JsonReader.Token.NULL);
+        consumed();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    level++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    level++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    level--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    level--;
+                }
+                case END_DOCUMENT -> throw syntax("unexpected end of input");
+                default -> {
+                    peeked = null;
+                    if (kind == STRING || kind == BYTES)
+                        skipPayload(); // never decoded
+                    consumed();
+                }
+            }
+        } while (level > 0);
+    }
+
+    @Override
+    public void endDocument() throws IOException {
+        expect(JsonReader.Token.END_DOCUMENT);
+    }
+
+    @Override
+    public long position() {
+        return total - (limit - pos);
+    }
+
+    // ===================== PAYLOADS =====================
+
+    /** The current STRING item, decoded from UTF-8. */
+    protected String readText() throws IOException {
+        int n = (int) length;
+        if (n <= limit - pos) {
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8); // straight from the buffer
+            pos += n;
+            return s;
+        }
+        return new String(read(n), StandardCharsets.UTF_8);
+    }
+
+    /** The current BYTES item. */
+    protected byte[] readBytes() throws IOException {
+        return read((int) length);
+    }
+
+    /** Skips the current STRING or BYTES item. */
+    protected void skipPayload() throws IOException {
+        skip(length);
+    }
+
+    private String numberText() {
+        switch (kind) {
+            case INT:
+                return Long.toString(longValue);
+            case UINT64:
+                return Long.toUnsignedString(longValue);
+            case NEGINT64:
+                return BigInteger.ONE.negate()
+                        .subtract(new BigInteger(Long.toUnsignedString(longValue))).toString();
+            case FLOAT:
+            case DOUBLE:
+                double d = doubleValue;
+                if (d == Math.rint(d) && Math.abs(d) < 1e15)
+                    return Long.toString((long) d); // 3.0 binds to an int field like 3
+                return (kind == FLOAT) ? Float.toString((float) d) : Double.toString(d);
+            default:
+                throw new IllegalStateException("not a number: " + kind);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+
+    private void expect(JsonReader.Token expected) throws IOException {
+        JsonReader.Token t = peek();
+        if (t != expected)
+            throw syntax("expected " + expected + " but was " + t);
+        peeked = null;
+    }
+
+    // one more item of the current container has been read
+    private void consumed() {
+        int d = depth - 1;
+        if (remaining[d] > 0)
+            remaining[d]--;
+        if (map[d])
+            nameNext[d] = !nameNext[d];
+    }
+
+    private void push(boolean isMap, long items) throws JsonParseException {
+        if (depth == remaining.length)
+            throw syntax("nesting deeper than " + JsonReader.MAX_DEPTH);
+        remaining[depth] = items;
+        map[depth] = isMap;
+        nameNext[depth] = isMap;
+        depth++;
+    }
+
+    protected final JsonParseException syntax(String message) {
+        return new JsonParseException("Malformed " + format + " at byte " + position() + ": " + message);
+    }
+
+    /** A length or count from the input: a single item can't be larger than the whole body. */
+    protected final long checkLength(long n) throws JsonParseException {
+        if (n < 0 || n > maxBytes)
+            throw new JsonParseException("Request body exceeds " + maxBytes + " bytes", true);
+        return n;
+    }
+
+    // ===================== INPUT =====================
+
+    private boolean fill() throws IOException {
+        if (pos < limit)
+            return true;
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0)
+            return false;
+        total += n;
+        if (total > maxBytes)
+            throw new JsonParseException("Request body exceeds " + maxBytes + " bytes", true);
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    protected final int readByte() throws IOException {
+        if (!fill())
+            throw syntax("unexpected end of input");
+        return buf[pos++] & 0xFF;
+    }
+
+    /** Big-endian unsigned 16 bits. */
+    protected final int readShort() throws IOException {
+        return (readByte() << 8) | readByte();
+    }
+
+    protected final int readInt() throws IOException {
+        return (readShort() << 16) | readShort();
+    }
+
+    protected final long readLong() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    protected final byte[] read(int n) throws IOException {
+        byte[] out = new byte[n];
+        int off = 0;
+        while (off < n) {
+            if (!fill())
+                throw syntax("unexpected end of input");
+            int chunk = Math.min(n - off, limit - pos);
+            System.arraycopy(buf, pos, out, off, chunk);
+            pos += chunk;
+            off += chunk;
+        }
+        return out;
+    }
+
+    protected final void skip(long n) throws IOException {
+        while (n > 0) {
+            if (!fill())
+                throw syntax("unexpected end of input");
+            int chunk = (int) Math.min(n, limit - pos);
+            pos += chunk;
+            n -= chunk;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package core.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.BaseStream;
+
+/**
+ * Base of the binary response serializers ({@link CborWriter}, {@link MsgPackWriter}).
+ * Walks values exactly like {@link JsonWriter} (POJOs through their cached {@link TypePlan},
+ * names pre-encoded in {@link TypePlan.Property#utf8Name}) and encodes straight into the
+ * OutputStream through a small byte buffer; subclasses only supply the item headers.
+ */
+public abstract class BinaryWriter {
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int pos;
+
+    protected BinaryWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buf = new byte[Math.max(16, bufferSize)];
+    }
+
+    public void write(Object obj) throws IOException {
+        if (obj == null) {
+            writeNull();
+        } else if (obj instanceof String s) {
+            string(s);
+        } else if (obj instanceof Boolean b) {
+            writeBoolean(b);
+        } else if (obj instanceof Number n) {
+            number(n);
+        } else if (obj instanceof Character || obj instanceof Enum<?>) {
+            string(obj.toString());
+        } else if (obj instanceof Map<?, ?> map) {
+            map(map);
+        } else if (obj instanceof Collection<?> c) {
+            collection(c);
+        } else if (obj instanceof Iterable<?> it) {
+            iterator(it.iterator());
+        } else if (obj instanceof Iterator<?> it) {
+            iterator(it);
+        } else if (obj instanceof BaseStream<?, ?> stream) {
+            try (stream) {
+                iterator(stream.iterator());
+            }
+        } else if (obj instanceof byte[] bytes) {
+            bytesHeader(bytes.length);
+            raw(bytes, 0, bytes.length);
+        } else if (obj.getClass().isArray()) {
+            array(obj);
+        } else if (obj.getClass().getName().startsWith("java.")) {
+            // JDK value types (dates, UUID, ...) can't be opened reflectively
+            string(obj.toString());
+        } else {
+            object(obj);
+        }
+    }
+
+    /** Pre-encoded items (envelope fragments), copied as is. */
+    public void writeRaw(byte[] bytes) throws IOException {
+        raw(bytes, 0, bytes.length);
+    }
+
+    public void flush() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+        out.flush();
+    }
+
+    // ===================== FORMAT =====================
+
+    protected abstract void writeNull() throws IOException;
+
+    protected abstract void writeBoolean(boolean b) throws IOException;
+
+    protected abstract void writeLong(long v) throws IOException;
+
+    protected abstract void writeFloat(float f) throws IOException;
+
+    protected abstract void writeDouble(double d) throws IOException;
+
+    /** Header of a UTF-8 string of len bytes. */
+    protected abstract void stringHeader(int len) throws IOException;
+
+    protected abstract void bytesHeader(int len) throws IOException;
+
+    protected abstract void arrayHeader(int count) throws IOException;
+
+    /** Header of a map of count entries. */
+    protected abstract void mapHeader(int count) throws IOException;
+
+    /**
+     * Iterators and Streams have no known size: buffered here so the array gets a definite length.
+     * Formats with indefinite-length arrays stream them instead.
+     */
+    protected void iterator(Iterator<?> it) throws IOException {
+        List<Object> items = new ArrayList<>();
+        while (it.hasNext())
+            items.add(it.next());
+        collection(items);
+    }
+
+    // ---------------------------------------------------------------------
+
+    private void map(Map<?, ?> map) throws IOException {
+        mapHeader(map.size());
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            string(String.valueOf(e.getKey()));
+            write(e.getValue());
+        }
+    }
+
+    private void collection(Collection<?> c) throws IOException {
+        arrayHeader(c.size());
+        for (Object o : c)
+            write(o);
+    }
+
+    private void array(Object arr) throws IOException {
+        if (arr instanceof Object[] objects) {
+            arrayHeader(objects.length);
+            for (Object o : objects)
+                write(o);
+        } else {
+            int len = java.lang.reflect.Array.getLength(arr);
+            arrayHeader(len);
+            for (int i = 0; i < len; i++)
+                write(java.lang.reflect.Array.get(arr, i));
+        }
+    }
+
+    private void object(Object obj) throws IOException {
+        TypePlan.Property[] props = TypePlan.of(obj.getClass()).properties;
+        mapHeader(props.length);
+        for (TypePlan.Property p : props) {
+            stringHeader(p.utf8Name.length);
+            raw(p.utf8Name, 0, p.utf8Name.length);
+            write(p.get(obj));
+        }
+    }
+
+    private void number(Number n) throws IOException {
+        if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte
+                || n instanceof AtomicInteger || n instanceof AtomicLong) {
+            writeLong(n.longValue());
+        } else if (n instanceof Double d) {
+            double v = d;
+            if ((double) (float) v == v)
+                writeFloat((float) v); // exact in 4 bytes
+            else
+                writeDouble(v);
+        } else if (n instanceof Float f) {
+            writeFloat(f);
+        } else if (n instanceof BigInteger big && big.bitLength() < 64) {
+            writeLong(big.longValue());
+        } else {
+            string(n.toString()); // BigDecimal, large BigInteger: no precision lost
+        }
+    }
+
+    private void string(String s) throws IOException {
+        int len = s.length();
+        int utf8 = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                utf8++;
+            } else if (c < 0x800) {
+                utf8 += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8 += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8++;
+            } else {
+                utf8 += 3;
+            }
+        }
+        stringHeader(utf8);
+
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | (c >> 6));
+                put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                put(0xF0 | (cp >> 18));
+                put(0x80 | ((cp >> 12) & 0x3F));
+                put(0x80 | ((cp >> 6) & 0x3F));
+                put(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                put('?'); // lone surrogate: not encodable
+            } else {
+                put(0xE0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3F));
+                put(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    // ===================== BUFFER =====================
+
+    protected final void put(int b) throws IOException {
+        if (pos == buf.length)
+            drain();
+        buf[pos++] = (byte) b;
+    }
+
+    /** Big-endian, the byte order of both formats. */
+    protected final void putShort(int v) throws IOException {
+        put(v >>> 8);
+        put(v);
+    }
+
+    protected final void putInt(int v) throws IOException {
+        putShort(v >>> 16);
+        putShort(v);
+    }
+
+    protected final void putLong(long v) throws IOException {
+        putInt((int) (v >>> 32));
+        putInt((int) v);
+    }
+
+    protected final void raw(byte[] bytes, int off, int len) throws IOException {
+        if (len > buf.length - pos) {
+            drain();
+            if (len > buf.length) {
+                out.write(bytes, off, len);
+                return;
+            }
+        }
+        System.arraycopy(bytes, off, buf, pos, len);
+        pos += len;
+    }
+
+    private void drain() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+}
@@ -0,0 +1,146 @@
+package core.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming CBOR (RFC 8949) reader. Indefinite-length strings and containers are accepted,
+ * half-precision floats widened, and tags skipped (their content is read as is).
+ */
+public class CborReader extends BinaryReader {
+
+    public CborReader(InputStream in, long maxBytes) {
+        this(in, maxBytes, 8192);
+    }
+
+    public CborReader(InputStream in, long maxBytes, int bufferSize) {
+        super("CBOR", in, maxBytes, bufferSize);
+    }
+
+    @Override
+    protected void readHead() throws IOException {
+        while (true) {
+            int b = readByte();
+            int major = b >>> 5;
+            int info = b & 31;
+
+            if (major == 7) {
+                switch (info) {
+                    case 20 -> kind = FALSE;
+                    case 21 -> kind = TRUE;
+                    case 22, 23 -> kind = NULL; // null, undefined
+                    case 25 -> {
+                        kind = FLOAT;
+                        doubleValue = halfToFloat(readShort());
+                    }
+                    case 26 -> {
+                        kind = FLOAT;
+                        doubleValue = Float.intBitsToFloat(readInt());
+                    }
+                    case 27 -> {
+                        kind = DOUBLE;
+                        doubleValue = Double.longBitsToDouble(readLong());
+                    }
+                    case 31 -> kind = BREAK;
+                    default -> throw syntax("unsupported simple value " + info);
+                }
+                return;
+            }
+
+            if (info == 31) {
+                if (major < 2 || major == 6)
+                    throw syntax("indefinite length on major type " + major);
+                length = -1;
+            } else {
+                long arg = argument(info);
+                if (major == 0) {
+                    kind = (arg >= 0) ? INT : UINT64;
+                    longValue = arg;
+                    return;
+                }
+                if (major == 1) {
+                    kind = (arg >= 0) ? INT : NEGINT64;
+                    longValue = (arg >= 0) ? ~arg : arg; // -1 - arg
+                    return;
+                }
+                if (major == 6)
+                    continue; // tag: the tagged item follows
+                length = checkLength(arg);
+            }
+            kind = switch (major) {
+                case 2 -> BYTES;
+                case 3 -> STRING;
+                case 4 -> ARRAY;
+                default -> MAP;
+            };
+            return;
+        }
+    }
+
+    @Override
+    protected String readText() throws IOException {
+        return (length >= 0) ? super.readText() : new String(chunks(3), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected byte[] readBytes() throws IOException {
+        return (length >= 0) ? super.readBytes() : chunks(2);
+    }
+
+    @Override
+    protected void skipPayload() throws IOException {
+        if (length >= 0) {
+            super.skipPayload();
+            return;
+        }
+        for (long n = nextChunk(kind == STRING ? 3 : 2); n >= 0; n = nextChunk(kind == STRING ? 3 : 2))
+            skip(n);
+    }
+
+    // indefinite-length string: definite chunks of the same major type up to a break
+    private byte[] chunks(int major) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long n = nextChunk(major); n >= 0; n = nextChunk(major)) {
+            byte[] chunk = read((int) n);
+            out.write(chunk, 0, chunk.length);
+        }
+        return out.toByteArray();
+    }
+
+    // length of the next chunk, -1 at the break
+    private long nextChunk(int major) throws IOException {
+        int b = readByte();
+        if (b == 0xFF)
+            return -1;
+        if (b >>> 5 != major || (b & 31) == 31)
+            throw syntax("invalid chunk in indefinite-length string");
+        return checkLength(argument(b & 31));
+    }
+
+    private long argument(int info) throws IOException {
+        if (info < 24)
+            return info;
+        return switch (info) {
+            case 24 -> readByte();
+            case 25 -> readShort();
+            case 26 -> readInt() & 0xFFFFFFFFL;
+            case 27 -> readLong();
+            default -> throw syntax("reserved additional info " + info);
+        };
+    }
+
+    private static float halfToFloat(int half) {
+        int sign = (half & 0x8000) << 16;
+        int exp = (half >>> 10) & 0x1F;
+        int mant = half & 0x3FF;
+        if (exp == 0) { // zero, subnormal
+            float v = mant * 0x1p-24f;
+            return (sign != 0) ? -v : v;
+        }
+        if (exp == 31) // infinity, NaN
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mant << 13));
+        return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+    }
+}
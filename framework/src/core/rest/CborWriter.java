@@ -0,0 +1,102 @@
+package core.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/** CBOR (RFC 8949) serializer; Iterators and Streams become indefinite-length arrays. */
+public class CborWriter extends BinaryWriter {
+
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1;
+    private static final int BYTES = 2;
+    private static final int TEXT = 3;
+    private static final int ARRAY = 4;
+    private static final int MAP = 5;
+
+    public CborWriter(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public CborWriter(OutputStream out, int bufferSize) {
+        super(out, bufferSize);
+    }
+
+    @Override
+    protected void writeNull() throws IOException {
+        put(0xF6);
+    }
+
+    @Override
+    protected void writeBoolean(boolean b) throws IOException {
+        put(b ? 0xF5 : 0xF4);
+    }
+
+    @Override
+    protected void writeLong(long v) throws IOException {
+        if (v >= 0)
+            head(UNSIGNED, v);
+        else
+            head(NEGATIVE, ~v); // -1 - v
+    }
+
+    @Override
+    protected void writeFloat(float f) throws IOException {
+        put(0xFA);
+        putInt(Float.floatToIntBits(f));
+    }
+
+    @Override
+    protected void writeDouble(double d) throws IOException {
+        put(0xFB);
+        putLong(Double.doubleToLongBits(d));
+    }
+
+    @Override
+    protected void stringHeader(int len) throws IOException {
+        head(TEXT, len);
+    }
+
+    @Override
+    protected void bytesHeader(int len) throws IOException {
+        head(BYTES, len);
+    }
+
+    @Override
+    protected void arrayHeader(int count) throws IOException {
+        head(ARRAY, count);
+    }
+
+    @Override
+    protected void mapHeader(int count) throws IOException {
+        head(MAP, count);
+    }
+
+    @Override
+    protected void iterator(Iterator<?> it) throws IOException {
+        put(ARRAY << 5 | 31);
+        while (it.hasNext())
+            write(it.next());
+        put(0xFF); // break
+    }
+
+    // major type and argument, in the shortest form
+    private void head(int major, long arg) throws IOException {
+        int type = major << 5;
+        if (arg < 24) {
+            put(type | (int) arg);
+        } else if (arg <= 0xFF) {
+            put(type | 24);
+            put((int) arg);
+        } else if (arg <= 0xFFFF) {
+            put(type | 25);
+            putShort((int) arg);
+        } else if (arg <= 0xFFFFFFFFL) {
+            put(type | 26);
+            putInt((int) arg);
+        } else {
+            put(type | 27);
+            putLong(arg);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package core.rest;
+
+import java.io.IOException;
+
+/** Malformed (or oversized) JSON input; the router answers 400 (413 when too large). */
+public class JsonParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean tooLarge;
+
+    public JsonParseException(String message) {
+        this(message, false);
+    }
+
+    public JsonParseException(String message, boolean tooLarge) {
+        super(message);
+        this.tooLarge = tooLarge;
+    }
+
+    public boolean isTooLarge() {
+        return tooLarge;
+    }
+}
@@ -0,0 +1,436 @@
+package core.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming JSON pull parser: decodes UTF-8 tokens straight from an InputStream
+ * through a small byte buffer, without building a tree or reading the body into a String.
+ * The caller drives it (beginObject / nextName / nextString ... / endObject), so values
+ * nobody asks for are skipped without being materialized.
+ *
+ * Input is capped at maxBytes and nesting at {@link #MAX_DEPTH}; any violation of the
+ * grammar throws {@link JsonParseException}.
+ */
+public class JsonReader implements ValueReader {
+
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    public static final int MAX_DEPTH = 64;
+
+    // scopes
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    private final InputStream in;
+    private final long maxBytes;
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private long total; // bytes read from the stream
+
+    private final int[] stack = new int[MAX_DEPTH + 1];
+    private int depth;
+    private Token peeked;
+
+    private final StringBuilder text = new StringBuilder(32); // reused by strings and numbers
+
+    public JsonReader(InputStream in, long maxBytes) {
+        this(in, maxBytes, 8192);
+    }
+
+    public JsonReader(InputStream in, long maxBytes, int bufferSize) {
+        this.in = in;
+        this.maxBytes = maxBytes;
+        this.buf = new byte[Math.max(64, bufferSize)];
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /** Type of the next token, without consuming it. */
+    @Override
+    public Token peek() throws IOException {
+        if (peeked != null)
+            return peeked;
+
+        int scope = stack[depth - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY -> {
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                if (nextNonWhitespace() == ']') {
+                    pos++;
+                    return peeked = Token.END_ARRAY;
+                }
+            }
+            case NONEMPTY_ARRAY -> {
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    pos++;
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',')
+                    throw syntax("expected ',' or ']'");
+                pos++;
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                stack[depth - 1] = DANGLING_NAME;
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    pos++;
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',')
+                        throw syntax("expected ',' or '}'");
+                    pos++;
+                    c = nextNonWhitespace();
+                }
+                if (c != '"')
+                    throw syntax("expected a member name");
+                pos++;
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':')
+                    throw syntax("expected ':'");
+                pos++;
+            }
+            case EMPTY_DOCUMENT -> stack[depth - 1] = NONEMPTY_DOCUMENT;
+            default -> {
+                // NONEMPTY_DOCUMENT: only whitespace may follow the root value
+                if (nextNonWhitespace() != -1)
+                    throw syntax("unexpected data after the JSON value");
+                return peeked = Token.END_DOCUMENT;
+            }
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{' -> {
+                pos++;
+                return peeked = Token.BEGIN_OBJECT;
+            }
+            case '[' -> {
+                pos++;
+                return peeked = Token.BEGIN_ARRAY;
+            }
+            case '"' -> {
+                pos++;
+                return peeked = Token.STRING;
+            }
+            case 't', 'f' -> {
+                return peeked = Token.BOOLEAN;
+            }
+            case 'n' -> {
+                return peeked = Token.NULL;
+            }
+            case -1 -> {
+                if (scope == EMPTY_DOCUMENT)
+                    return peeked = Token.END_DOCUMENT; // empty body
+                throw syntax("unexpected end of input");
+            }
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return peeked = Token.NUMBER;
+                throw syntax("unexpected character '" + (char) c + "'");
+            }
+        }
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /** Whether the current object or array has another element. */
+    @Override
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /** A string, number or boolean value as text (numbers keep their literal form). */
+    @Override
+    public String nextString() throws IOException {
+        Token t = peek();
+        peeked = null;
+        switch (t) {
+            case STRING:
+                return readString();
+            case NUMBER:
+                return readNumber();
+            case BOOLEAN:
+                return nextLiteral() ? "true" : "false";
+            default:
+                peeked = t;
+                throw syntax("expected a string, number or boolean but was " + t);
+        }
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return nextLiteral();
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        literal("null");
+    }
+
+    /** Skips the next value, nested objects and arrays included. */
+    @Override
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            Token t = peek();
+            switch (t) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    level++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    level++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    level--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    level--;
+                }
+                case NAME -> nextName();
+                case NULL -> nextNull();
+                case END_DOCUMENT -> throw syntax("unexpected end of input");
+                default -> nextString();
+            }
+        } while (level > 0);
+    }
+
+    /** Checks that nothing but whitespace follows the root value. */
+    @Override
+    public void endDocument() throws IOException {
+        expect(Token.END_DOCUMENT);
+    }
+
+    /** Bytes consumed so far. */
+    @Override
+    public long position() {
+        return total - (limit - pos);
+    }
+
+    // ---------------------------------------------------------------------
+
+    private void expect(Token expected) throws IOException {
+        Token t = peek();
+        if (t != expected)
+            throw syntax("expected " + expected + " but was " + t);
+        peeked = null;
+    }
+
+    private void push(int scope) throws JsonParseException {
+        if (depth == stack.length)
+            throw syntax("nesting deeper than " + MAX_DEPTH);
+        stack[depth++] = scope;
+    }
+
+    private JsonParseException syntax(String message) {
+        return new JsonParseException("Malformed JSON at byte " + position() + ": " + message);
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < limit)
+            return true;
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0)
+            return false;
+        total += n;
+        if (total > maxBytes)
+            throw new JsonParseException("Request body exceeds " + maxBytes + " bytes", true);
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    // next non-whitespace byte, not consumed; -1 at end of input
+    private int nextNonWhitespace() throws IOException {
+        while (fill()) {
+            int c = buf[pos] & 0xff;
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return c;
+            pos++;
+        }
+        return -1;
+    }
+
+    private int read() throws IOException {
+        if (!fill())
+            throw syntax("unexpected end of input");
+        return buf[pos++] & 0xff;
+    }
+
+    private int peekByte() throws IOException {
+        return fill() ? buf[pos] & 0xff : -1;
+    }
+
+    // after the opening quote
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"')
+                return text.toString();
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case '"', '\\', '/' -> text.append((char) c);
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'n' -> text.append('\n');
+                    case 'r' -> text.append('\r');
+                    case 't' -> text.append('\t');
+                    case 'u' -> {
+                        int cp = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int h = Character.digit(read(), 16);
+                            if (h < 0)
+                                throw syntax("invalid \\u escape");
+                            cp = (cp << 4) | h;
+                        }
+                        text.append((char) cp); // surrogate pairs arrive as two escapes
+                    }
+                    default -> throw syntax("invalid escape '\\" + (char) c + "'");
+                }
+            } else if (c < 0x20) {
+                throw syntax("unescaped control character in string");
+            } else if (c < 0x80) {
+                text.append((char) c);
+            } else {
+                text.appendCodePoint(decodeUtf8(c));
+            }
+        }
+    }
+
+    private int decodeUtf8(int lead) throws IOException {
+        int extra;
+        int cp;
+        if ((lead & 0xe0) == 0xc0) {
+            extra = 1;
+            cp = lead & 0x1f;
+        } else if ((lead & 0xf0) == 0xe0) {
+            extra = 2;
+            cp = lead & 0x0f;
+        } else if ((lead & 0xf8) == 0xf0) {
+            extra = 3;
+            cp = lead & 0x07;
+        } else {
+            throw syntax("invalid UTF-8 byte");
+        }
+        for (int i = 0; i < extra; i++) {
+            int c = read();
+            if ((c & 0xc0) != 0x80)
+                throw syntax("invalid UTF-8 sequence");
+            cp = (cp << 6) | (c & 0x3f);
+        }
+        int min = (extra == 1) ? 0x80 : (extra == 2) ? 0x800 : 0x10000;
+        if (cp < min || cp > 0x10ffff || (cp >= 0xd800 && cp <= 0xdfff))
+            throw syntax("invalid UTF-8 sequence");
+        return cp;
+    }
+
+    // -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+    private String readNumber() throws IOException {
+        text.setLength(0);
+        int c = peekByte();
+        if (c == '-') {
+            text.append((char) read());
+            c = peekByte();
+        }
+        if (c == '0') {
+            text.append((char) read());
+        } else if (digits() == 0) {
+            throw syntax("invalid number");
+        }
+        if (peekByte() == '.') {
+            text.append((char) read());
+            if (digits() == 0)
+                throw syntax("invalid number");
+        }
+        c = peekByte();
+        if (c == 'e' || c == 'E') {
+            text.append((char) read());
+            c = peekByte();
+            if (c == '+' || c == '-')
+                text.append((char) read());
+            if (digits() == 0)
+                throw syntax("invalid number");
+        }
+        c = peekByte();
+        if (c != -1 && (Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '+'))
+            throw syntax("invalid number");
+        return text.toString();
+    }
+
+    private int digits() throws IOException {
+        int n = 0;
+        int c;
+        while ((c = peekByte()) >= '0' && c <= '9') {
+            text.append((char) read());
+            n++;
+        }
+        return n;
+    }
+
+    private boolean nextLiteral() throws IOException {
+        if (peekByte() == 't') {
+            literal("true");
+            return true;
+        }
+        literal("false");
+        return false;
+    }
+
+    private void literal(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (read() != word.charAt(i))
+                throw syntax("invalid literal, expected " + word);
+        }
+        int c = peekByte();
+        if (c != -1 && Character.isLetterOrDigit(c))
+            throw syntax("invalid literal, expected " + word);
+    }
+}
@@ -0,0 +1,256 @@
+package core.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.BaseStream;
+
+/**
+ * Streaming JSON serializer: encodes UTF-8 straight into an OutputStream
+ * through a small byte buffer, escaping strings in a single pass.
+ * POJOs are written through their cached {@link TypePlan}; Iterators and Streams as arrays.
+ */
+public class JsonWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int pos;
+
+    public JsonWriter(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public JsonWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buf = new byte[bufferSize];
+    }
+
+    /** Serialize a value to a standalone byte array (UTF-8). */
+    public static byte[] toBytes(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            JsonWriter w = new JsonWriter(bytes, 1024);
+            w.write(value);
+            w.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown by ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+    public void write(Object obj) throws IOException {
+        if (obj == null) {
+            raw(NULL);
+        } else if (obj instanceof String s) {
+            string(s);
+        } else if (obj instanceof Boolean b) {
+            raw(b ? TRUE : FALSE);
+        } else if (obj instanceof Number n) {
+            number(n);
+        } else if (obj instanceof Character || obj instanceof Enum<?>) {
+            string(obj.toString());
+        } else if (obj instanceof Map<?, ?> map) {
+            map(map);
+        } else if (obj instanceof Iterable<?> it) {
+            iterator(it.iterator());
+        } else if (obj instanceof Iterator<?> it) {
+            iterator(it);
+        } else if (obj instanceof BaseStream<?, ?> stream) {
+            try (stream) {
+                iterator(stream.iterator());
+            }
+        } else if (obj.getClass().isArray()) {
+            array(obj);
+        } else if (obj.getClass().getName().startsWith("java.")) {
+            // JDK value types (dates, UUID, ...) can't be opened reflectively
+            string(obj.toString());
+        } else {
+            object(obj);
+        }
+    }
+
+    /** Pre-encoded JSON text (envelope fragments, separators), copied as is. */
+    public void writeRaw(byte[] json) throws IOException {
+        raw(json);
+    }
+
+    public void flush() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+        out.flush();
+    }
+
+    // ---------------------------------------------------------------------
+
+    private void map(Map<?, ?> map) throws IOException {
+        put('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> e : map.entrySet()) {
+            if (!first)
+                put(',');
+            first = false;
+            string(String.valueOf(e.getKey()));
+            put(':');
+            write(e.getValue());
+        }
+        put('}');
+    }
+
+    private void iterator(Iterator<?> it) throws IOException {
+        put('[');
+        boolean first = true;
+        while (it.hasNext()) {
+            if (!first)
+                put(',');
+            first = false;
+            write(it.next());
+        }
+        put(']');
+    }
+
+    private void array(Object arr) throws IOException {
+        put('[');
+        if (arr instanceof Object[] objects) {
+            for (int i = 0; i < objects.length; i++) {
+                if (i > 0)
+                    put(',');
+                write(objects[i]);
+            }
+        } else {
+            int len = java.lang.reflect.Array.getLength(arr);
+            for (int i = 0; i < len; i++) {
+                if (i > 0)
+                    put(',');
+                write(java.lang.reflect.Array.get(arr, i));
+            }
+        }
+        put(']');
+    }
+
+    private void object(Object obj) throws IOException {
+        put('{');
+        TypePlan.Property[] props = TypePlan.of(obj.getClass()).properties;
+        for (int i = 0; i < props.length; i++) {
+            if (i > 0)
+                put(',');
+            raw(props[i].jsonKey);
+            write(props[i].get(obj));
+        }
+        put('}');
+    }
+
+    private void number(Number n) throws IOException {
+        if ((n instanceof Double d && !Double.isFinite(d)) || (n instanceof Float f && !Float.isFinite(f))) {
+            raw(NULL); // NaN / Infinity are not valid JSON
+            return;
+        }
+        ascii(n.toString());
+    }
+
+    private void string(String s) throws IOException {
+        put('"');
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    put(c);
+                    continue;
+                }
+                put('\\');
+                switch (c) {
+                    case '"' -> put('"');
+                    case '\\' -> put('\\');
+                    case '\n' -> put('n');
+                    case '\r' -> put('r');
+                    case '\t' -> put('t');
+                    case '\b' -> put('b');
+                    case '\f' -> put('f');
+                    default -> {
+                        put('u');
+                        put('0');
+                        put('0');
+                        put(HEX[c >> 4]);
+                        put(HEX[c & 0xF]);
+                    }
+                }
+            } else if (c < 0x800) {
+                put(0xC0 | (c >> 6));
+                put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                put(0xF0 | (cp >> 18));
+                put(0x80 | ((cp >> 12) & 0x3F));
+                put(0x80 | ((cp >> 6) & 0x3F));
+                put(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                put('?'); // lone surrogate: not encodable
+            } else {
+                put(0xE0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3F));
+                put(0x80 | (c & 0x3F));
+            }
+        }
+        put('"');
+    }
+
+    private void ascii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            put(s.charAt(i));
+        }
+    }
+
+    private void raw(byte[] bytes) throws IOException {
+        if (bytes.length > buf.length - pos) {
+            drain();
+            if (bytes.length > buf.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void put(int b) throws IOException {
+        if (pos == buf.length)
+            drain();
+        buf[pos++] = (byte) b;
+    }
+
+    private void drain() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    /** JSON string escaping (without surrounding quotes), for precomputed keys. */
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package core.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Streaming MessagePack reader. Extension types are rejected. */
+public class MsgPackReader extends BinaryReader {
+
+    public MsgPackReader(InputStream in, long maxBytes) {
+        this(in, maxBytes, 8192);
+    }
+
+    public MsgPackReader(InputStream in, long maxBytes, int bufferSize) {
+        super("MessagePack", in, maxBytes, bufferSize);
+    }
+
+    @Override
+    protected void readHead() throws IOException {
+        int b = readByte();
+        if (b <= 0x7F) {
+            integer(b); // positive fixint
+        } else if (b <= 0x8F) {
+            container(MAP, b & 0x0F);
+        } else if (b <= 0x9F) {
+            container(ARRAY, b & 0x0F);
+        } else if (b <= 0xBF) {
+            container(STRING, b & 0x1F);
+        } else if (b >= 0xE0) {
+            integer((byte) b); // negative fixint
+        } else {
+            switch (b) {
+                case 0xC0 -> kind = NULL;
+                case 0xC2 -> kind = FALSE;
+                case 0xC3 -> kind = TRUE;
+                case 0xC4 -> container(BYTES, readByte());
+                case 0xC5 -> container(BYTES, readShort());
+                case 0xC6 -> container(BYTES, readInt() & 0xFFFFFFFFL);
+                case 0xCA -> {
+                    kind = FLOAT;
+                    doubleValue = Float.intBitsToFloat(readInt());
+                }
+                case 0xCB -> {
+                    kind = DOUBLE;
+                    doubleValue = Double.longBitsToDouble(readLong());
+                }
+                case 0xCC -> integer(readByte());
+                case 0xCD -> integer(readShort());
+                case 0xCE -> integer(readInt() & 0xFFFFFFFFL);
+                case 0xCF -> {
+                    long v = readLong();
+                    kind = (v >= 0) ? INT : UINT64;
+                    longValue = v;
+                }
+                case 0xD0 -> integer((byte) readByte());
+                case 0xD1 -> integer((short) readShort());
+                case 0xD2 -> integer(readInt());
+                case 0xD3 -> integer(readLong());
+                case 0xD9 -> container(STRING, readByte());
+                case 0xDA -> container(STRING, readShort());
+                case 0xDB -> container(STRING, readInt() & 0xFFFFFFFFL);
+                case 0xDC -> container(ARRAY, readShort());
+                case 0xDD -> container(ARRAY, readInt() & 0xFFFFFFFFL);
+                case 0xDE -> container(MAP, readShort());
+                case 0xDF -> container(MAP, readInt() & 0xFFFFFFFFL);
+                default -> throw syntax("unsupported type 0x" + Integer.toHexString(b));
+            }
+        }
+    }
+
+    private void integer(long v) {
+        kind = INT;
+        longValue = v;
+    }
+
+    private void container(int k, long n) throws JsonParseException {
+        kind = k;
+        length = checkLength(n);
+    }
+}
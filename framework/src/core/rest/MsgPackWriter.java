@@ -0,0 +1,129 @@
+package core.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** MessagePack serializer; every item uses its most compact encoding. */
+public class MsgPackWriter extends BinaryWriter {
+
+    public MsgPackWriter(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public MsgPackWriter(OutputStream out, int bufferSize) {
+        super(out, bufferSize);
+    }
+
+    @Override
+    protected void writeNull() throws IOException {
+        put(0xC0);
+    }
+
+    @Override
+    protected void writeBoolean(boolean b) throws IOException {
+        put(b ? 0xC3 : 0xC2);
+    }
+
+    @Override
+    protected void writeLong(long v) throws IOException {
+        if (v >= 0) {
+            if (v < 0x80) {
+                put((int) v); // positive fixint
+            } else if (v <= 0xFF) {
+                put(0xCC);
+                put((int) v);
+            } else if (v <= 0xFFFF) {
+                put(0xCD);
+                putShort((int) v);
+            } else if (v <= 0xFFFFFFFFL) {
+                put(0xCE);
+                putInt((int) v);
+            } else {
+                put(0xCF);
+                putLong(v);
+            }
+        } else if (v >= -32) {
+            put((int) v); // negative fixint
+        } else if (v >= Byte.MIN_VALUE) {
+            put(0xD0);
+            put((int) v);
+        } else if (v >= Short.MIN_VALUE) {
+            put(0xD1);
+            putShort((int) v);
+        } else if (v >= Integer.MIN_VALUE) {
+            put(0xD2);
+            putInt((int) v);
+        } else {
+            put(0xD3);
+            putLong(v);
+        }
+    }
+
+    @Override
+    protected void writeFloat(float f) throws IOException {
+        put(0xCA);
+        putInt(Float.floatToIntBits(f));
+    }
+
+    @Override
+    protected void writeDouble(double d) throws IOException {
+        put(0xCB);
+        putLong(Double.doubleToLongBits(d));
+    }
+
+    @Override
+    protected void stringHeader(int len) throws IOException {
+        if (len < 32) {
+            put(0xA0 | len);
+        } else if (len <= 0xFF) {
+            put(0xD9);
+            put(len);
+        } else if (len <= 0xFFFF) {
+            put(0xDA);
+            putShort(len);
+        } else {
+            put(0xDB);
+            putInt(len);
+        }
+    }
+
+    @Override
+    protected void bytesHeader(int len) throws IOException {
+        if (len <= 0xFF) {
+            put(0xC4);
+            put(len);
+        } else if (len <= 0xFFFF) {
+            put(0xC5);
+            putShort(len);
+        } else {
+            put(0xC6);
+            putInt(len);
+        }
+    }
+
+    @Override
+    protected void arrayHeader(int count) throws IOException {
+        if (count < 16) {
+            put(0x90 | count);
+        } else if (count <= 0xFFFF) {
+            put(0xDC);
+            putShort(count);
+        } else {
+            put(0xDD);
+            putInt(count);
+        }
+    }
+
+    @Override
+    protected void mapHeader(int count) throws IOException {
+        if (count < 16) {
+            put(0x80 | count);
+        } else if (count <= 0xFFFF) {
+            put(0xDE);
+            putShort(count);
+        } else {
+            put(0xDF);
+            putInt(count);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package core.rest;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-class field accessors used by the response serializers.
+ * Built on first use (getDeclaredFields + setAccessible happen once per class)
+ * and cached for the lifetime of the class.
+ */
+public class TypePlan {
+
+    public static class Property {
+        public final String name;
+        public final byte[] jsonKey; // "name": already escaped and UTF-8 encoded
+        public final byte[] utf8Name; // name as UTF-8, for the binary formats
+        private final MethodHandle getter; // (Object) -> Object
+
+        Property(String name, MethodHandle getter) {
+            this.name = name;
+            this.getter = getter;
+            this.jsonKey = ("\"" + JsonWriter.escape(name) + "\":").getBytes(StandardCharsets.UTF_8);
+            this.utf8Name = name.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+    }
+
+    private static final ClassValue<TypePlan> CACHE = new ClassValue<>() {
+        @Override
+        protected TypePlan computeValue(Class<?> type) {
+            return new TypePlan(type);
+        }
+    };
+
+    public static TypePlan of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    public final Property[] properties;
+
+    private TypePlan(Class<?> type) {
+        List<Property> props = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Field f : type.getDeclaredFields()) {
+            if (Modifier.isStatic(f.getModifiers()) || f.isSynthetic())
+                continue;
+            try {
+                f.setAccessible(true);
+                MethodHandle getter = lookup.unreflectGetter(f)
+                        .asType(java.lang.invoke.MethodType.methodType(Object.class, Object.class));
+                props.add(new Property(f.getName(), getter));
+            } catch (RuntimeException | IllegalAccessException ignored) {
+                // field not accessible (e.g. JDK internals): skipped, as before
+            }
+        }
+        this.properties = props.toArray(new Property[0]);
+    }
+}
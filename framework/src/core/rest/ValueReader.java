@@ -0,0 +1,43 @@
+package core.rest;
+
+import java.io.IOException;
+
+/**
+ * Pull API shared by the request body readers ({@link JsonReader}, {@link CborReader},
+ * {@link MsgPackReader}), so binding code is written once for every format.
+ * Values are exposed with JSON's data model: objects with string names, arrays and scalars.
+ */
+public interface ValueReader {
+
+    /** Type of the next token, without consuming it. */
+    JsonReader.Token peek() throws IOException;
+
+    void beginObject() throws IOException;
+
+    void endObject() throws IOException;
+
+    void beginArray() throws IOException;
+
+    void endArray() throws IOException;
+
+    /** Whether the current object or array has another element. */
+    boolean hasNext() throws IOException;
+
+    String nextName() throws IOException;
+
+    /** A string, number or boolean value as text. */
+    String nextString() throws IOException;
+
+    boolean nextBoolean() throws IOException;
+
+    void nextNull() throws IOException;
+
+    /** Skips the next value, nested objects and arrays included. */
+    void skipValue() throws IOException;
+
+    /** Checks that nothing follows the root value. */
+    void endDocument() throws IOException;
+
+    /** Bytes consumed so far. */
+    long position();
+}